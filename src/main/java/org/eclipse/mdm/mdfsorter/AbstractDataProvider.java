@@ -34,4 +34,19 @@ public interface AbstractDataProvider {
 	 * @return The length of the data section.
 	 */
 	abstract long getLength();
+
+	/**
+	 * Get the position of a part of the data section in the input file, if it
+	 * is stored there as it is (not zipped and within one block).
+	 *
+	 * @param globaloffset
+	 *            The offset of the part in the data section.
+	 * @param length
+	 *            The length of the part.
+	 * @return The position in the input file, or -1 if the part cannot be
+	 *         copied directly from the input file.
+	 */
+	default long getFilePosition(long globaloffset, long length) {
+		return -1;
+	}
 }
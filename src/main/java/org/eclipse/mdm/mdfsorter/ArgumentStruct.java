@@ -15,6 +15,7 @@
 package org.eclipse.mdm.mdfsorter;
 
 import java.util.logging.Level;
+import java.util.zip.Deflater;
 
 /**
  * Structure to store the program arguments.
@@ -23,10 +24,30 @@ import java.util.logging.Level;
  *
  */
 public class ArgumentStruct {
+
+	/**
+	 * How data of DZ blocks is zipped. TRANSPOSE transposes the records of
+	 * data blocks before deflating them, AUTO chooses per block, whichever
+	 * variant compresses a sample better.
+	 */
+	public enum ZipMode {
+		DEFLATE, TRANSPOSE, AUTO
+	}
+
 	public String inputname;
 	public String outputname;
 	public boolean unzip = true;
 	public long maxblocksize = 2_147_483_648L; // 2GB
+	public long writebuffersize = DataBlockBuffer.DEFAULT_CAPACITY; // 4MB
+	public int parallel = 0; // sections are solved in the process thread
+	public int parsethreads = 1; // blocks are decoded, when they are found
+	public long transferthreshold = 64L * 1024L; // 64k
+	public int zipthreads = Runtime.getRuntime().availableProcessors();
+	public long zipbuffersize = 64L * 1024L * 1024L; // 64MB
+	public ZipMode zipmode = ZipMode.DEFLATE;
+	public int ziplevel = Deflater.DEFAULT_COMPRESSION;
+	public int zipstrategy = Deflater.DEFAULT_STRATEGY;
+	public int zipthreshold = 90; // percent
 
 	public boolean overrideOldSize;
 	public boolean verbose;
@@ -82,6 +103,54 @@ public class ArgumentStruct {
 						args.maxblocksize = parseLong(splitted[1]);
 					}
 					break;
+				case "-writebuffer":
+					if (splitted.length < 2) {
+						throw new MDFSorterArgException("Argument must be provided after \"-writebuffer=\" flag.");
+					} else {
+						args.writebuffersize = parseLong(splitted[1]);
+					}
+					break;
+				case "-parallel":
+					if (splitted.length < 2) {
+						throw new MDFSorterArgException("Argument must be provided after \"-parallel=\" flag.");
+					} else {
+						args.parallel = (int) parseLong(splitted[1]);
+					}
+					break;
+				case "-parsethreads":
+					if (splitted.length < 2) {
+						throw new MDFSorterArgException("Argument must be provided after \"-parsethreads=\" flag.");
+					} else {
+						args.parsethreads = (int) parseLong(splitted[1]);
+					}
+					break;
+				case "-transferthreshold":
+					if (splitted.length < 2) {
+						throw new MDFSorterArgException("Argument must be provided after \"-transferthreshold=\" flag.");
+					} else {
+						args.transferthreshold = parseLong(splitted[1]);
+					}
+					break;
+				case "-zipthreads":
+					if (splitted.length < 2) {
+						throw new MDFSorterArgException("Argument must be provided after \"-zipthreads=\" flag.");
+					} else {
+						args.zipthreads = (int) parseLong(splitted[1]);
+					}
+					break;
+				case "-zipbuffer":
+					if (splitted.length < 2) {
+						throw new MDFSorterArgException("Argument must be provided after \"-zipbuffer=\" flag.");
+					} else {
+						args.zipbuffersize = parseLong(splitted[1]);
+					}
+					break;
+				case "-zipmode":
+				case "-ziplevel":
+				case "-zipstrategy":
+				case "-zipthreshold":
+					parseZipFlag(args, splitted);
+					break;
 				default:
 					throw new MDFSorterArgException("Unknown Argument " + splitted[0]);
 				}
@@ -97,31 +166,151 @@ public class ArgumentStruct {
 		}
 	}
 
+	/**
+	 * Describes how data blocks are zipped with these arguments.
+	 *
+	 * @return A message for the log.
+	 */
+	public String describeZipPolicy() {
+		var sb = new StringBuilder().append("Zip policy: mode ").append(zipmode.name().toLowerCase()).append(", level ");
+		if (ziplevel == Deflater.DEFAULT_COMPRESSION) {
+			sb.append("default");
+		} else {
+			sb.append(ziplevel);
+		}
+		sb.append(", strategy ");
+		switch (zipstrategy) {
+		case Deflater.FILTERED:
+			sb.append("filtered");
+			break;
+		case Deflater.HUFFMAN_ONLY:
+			sb.append("huffman");
+			break;
+		default:
+			sb.append("default");
+		}
+		if (zipthreshold > 100) {
+			sb.append(", all blocks are zipped.");
+		} else {
+			sb.append(", blocks compressing to more than ").append(zipthreshold).append("% of their size are not zipped.");
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Parse Arguments given via the Command-Line-Inferface for the "check"
+	 * call.
+	 *
+	 * @param argv
+	 *            The Arguments of the call.
+	 * @return An ArgumentStruct containing all values for this call.
+	 * @throws MDFSorterArgException
+	 *             If the arguments are not valid.
+	 */
 	public static ArgumentStruct parseArgsCheck(String[] argv) {
 		var args = new ArgumentStruct();
-		if (argv.length < 1) {
+		if (argv.length < 2) {
 			throw new MDFSorterArgException("At least one arguments must be provided.");
 		}
 		args.inputname = argv[1];
 
-		if (argv.length <= 2) {
-			args.maxblocksize = parseLong(argv[1]);
-			if (argv.length == 3) {
-				if ("-unzip".equals(argv[2])) {
-					args.unzip = true;
-				} else if ("-zip".equals(argv[2])) {
-					args.unzip = false;
-				} else {
-					throw new MDFSorterArgException("Unknown zipflag");
-				}
-			} else if (argv.length > 3) {
-				throw new MDFSorterArgException("Too many arguments.");
+		int i = 2;
+		if (i < argv.length && !argv[i].startsWith("-")) {
+			args.maxblocksize = parseLong(argv[i++]);
+		}
+		if (i < argv.length) {
+			if ("-unzip".equals(argv[i])) {
+				args.unzip = true;
+				i++;
+			} else if ("-zip".equals(argv[i])) {
+				args.unzip = false;
+				i++;
+			}
+		}
+		for (; i < argv.length; i++) {
+			var splitted = argv[i].split("=");
+			switch (splitted[0]) {
+			case "-zipmode":
+			case "-ziplevel":
+			case "-zipstrategy":
+			case "-zipthreshold":
+				parseZipFlag(args, splitted);
+				break;
+			default:
+				throw new MDFSorterArgException("Unknown Argument " + splitted[0]);
 			}
 		}
 
 		return args;
 	}
 
+	/**
+	 * Parse one of the flags choosing how data is zipped, which are accepted
+	 * by the "process" and the "check" call.
+	 *
+	 * @param args
+	 *            The ArgumentStruct to store the value in.
+	 * @param splitted
+	 *            The flag, split at "=".
+	 */
+	private static void parseZipFlag(ArgumentStruct args, String[] splitted) {
+		switch (splitted[0]) {
+		case "-zipmode":
+			if (splitted.length < 2) {
+				throw new MDFSorterArgException("Argument must be provided after \"-zipmode=\" flag.");
+			}
+			switch (splitted[1].toLowerCase()) {
+			case "deflate":
+				args.zipmode = ZipMode.DEFLATE;
+				break;
+			case "transpose":
+				args.zipmode = ZipMode.TRANSPOSE;
+				break;
+			case "auto":
+				args.zipmode = ZipMode.AUTO;
+				break;
+			default:
+				throw new MDFSorterArgException("Unknown zip mode " + splitted[1]);
+			}
+			break;
+		case "-ziplevel":
+			if (splitted.length < 2) {
+				throw new MDFSorterArgException("Argument must be provided after \"-ziplevel=\" flag.");
+			}
+			args.ziplevel = (int) parseLong(splitted[1]);
+			if (args.ziplevel < 0 || args.ziplevel > 9) {
+				throw new MDFSorterArgException("Zip level must be between 0 and 9.");
+			}
+			break;
+		case "-zipstrategy":
+			if (splitted.length < 2) {
+				throw new MDFSorterArgException("Argument must be provided after \"-zipstrategy=\" flag.");
+			}
+			switch (splitted[1].toLowerCase()) {
+			case "default":
+				args.zipstrategy = Deflater.DEFAULT_STRATEGY;
+				break;
+			case "filtered":
+				args.zipstrategy = Deflater.FILTERED;
+				break;
+			case "huffman":
+				args.zipstrategy = Deflater.HUFFMAN_ONLY;
+				break;
+			default:
+				throw new MDFSorterArgException("Unknown zip strategy " + splitted[1]);
+			}
+			break;
+		case "-zipthreshold":
+			if (splitted.length < 2) {
+				throw new MDFSorterArgException("Argument must be provided after \"-zipthreshold=\" flag.");
+			}
+			args.zipthreshold = (int) parseLong(splitted[1]);
+			break;
+		default:
+			throw new MDFSorterArgException("Unknown Argument " + splitted[0]);
+		}
+	}
+
 	/**
 	 * Parse a long from a String with decimal prefix, e.g. "100M", "2G", ...
 	 *
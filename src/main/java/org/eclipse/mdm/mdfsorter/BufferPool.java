@@ -0,0 +1,101 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pool of equally sized <code>byte[]</code> buffers. The WriteDataCache takes
+ * its cache arrays from this pool, and the WriteWorker returns them after
+ * their content has been written. Therefore only a few arrays are allocated,
+ * no matter how much data is written.
+ *
+ * @see WriteDataCache
+ * @see WriteWorker
+ */
+public class BufferPool {
+
+	/**
+	 * Size of the buffers in this pool.
+	 */
+	private final int buffersize;
+
+	/**
+	 * Maximum number of buffers kept in the pool. Returned buffers are
+	 * discarded, if the pool is full.
+	 */
+	private final int maxpooled;
+
+	/**
+	 * Buffers available for reuse.
+	 */
+	private final ArrayDeque<byte[]> pooled = new ArrayDeque<>();
+
+	/**
+	 * Number of buffers allocated by this pool so far.
+	 */
+	private int allocated = 0;
+
+	/**
+	 * Create a new, empty pool.
+	 *
+	 * @param buffersize
+	 *            Size of the buffers in this pool.
+	 * @param maxpooled
+	 *            Maximum number of buffers kept for reuse.
+	 */
+	public BufferPool(int buffersize, int maxpooled) {
+		this.buffersize = buffersize;
+		this.maxpooled = maxpooled;
+	}
+
+	/**
+	 * Takes a buffer from the pool, or allocates a new one, if the pool is
+	 * empty.
+	 *
+	 * @return A buffer of size <code>buffersize</code>. Its content is
+	 *         undefined.
+	 */
+	public synchronized byte[] take() {
+		byte[] ret = pooled.pollFirst();
+		if (ret == null) {
+			ret = new byte[buffersize];
+			allocated++;
+		}
+		return ret;
+	}
+
+	/**
+	 * Returns a buffer to this pool. The buffer must not be used by the
+	 * caller afterwards.
+	 *
+	 * @param buffer
+	 *            The buffer, which was taken from this pool.
+	 */
+	public synchronized void release(byte[] buffer) {
+		if (buffer.length == buffersize && pooled.size() < maxpooled) {
+			pooled.addFirst(buffer);
+		}
+	}
+
+	public int getBuffersize() {
+		return buffersize;
+	}
+
+	public synchronized int getAllocated() {
+		return allocated;
+	}
+}
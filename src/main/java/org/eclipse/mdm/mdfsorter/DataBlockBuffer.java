@@ -15,15 +15,22 @@
 
 package org.eclipse.mdm.mdfsorter;
 
-import java.util.LinkedList;
-import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * This is a buffer to store <code>byte[]</code>-Data, which is put in by the
- * read an process thread, and taken out by a new Instance of Write-Worker, to
- * be written to the disk. Aim of this class is to store data to be passed on to
+ * This is a buffer to store data sections, which are put in by the read and
+ * process thread, and taken out by a new Instance of Write-Worker, to be
+ * written to the disk. Aim of this class is to store data to be passed on to
  * the write thread.
  *
+ * The buffer is a lock-free ring for exactly one producer (the process
+ * thread) and one consumer (the WriteWorker). Its depth is limited by the
+ * number of bytes of array data queued. A thread that has to wait, because the
+ * buffer is full (producer) or empty (consumer), spins shortly and then parks
+ * for short periods. These stalls are counted, which helps to choose a
+ * suitable capacity.
+ *
  * @author Tobias Leemann
  * @see WriteWorker
  *
@@ -31,70 +38,211 @@ import java.util.Map.Entry;
 public class DataBlockBuffer implements AutoCloseable {
 
 	/**
-	 * This list contains the pointers to the data, and an integer with the
-	 * length of the data to be written, or -1, if all data should be written.
-	 * Write always starts at index 0 of the data array.
+	 * Default capacity of the buffer in bytes.
+	 */
+	public static final long DEFAULT_CAPACITY = 4L * 1024L * 1024L;
+
+	/**
+	 * Number of slots in the ring, must be a power of two. Limits the number
+	 * of sections queued, regardless of their size.
+	 */
+	private static final int SLOTS = 256;
+
+	private static final int MASK = SLOTS - 1;
+
+	/**
+	 * Number of busy-wait iterations, before a waiting thread is parked.
+	 */
+	private static final int SPINS = 100;
+
+	/**
+	 * The sections to be written. Slot <code>i & MASK</code> holds the i-th
+	 * section put into the buffer.
+	 */
+	private final DataSection[] ring = new DataSection[SLOTS];
+
+	/**
+	 * Maximum number of bytes of array data in the buffer. (A single larger
+	 * section is accepted, if the buffer is empty.)
+	 */
+	private final long capacity;
+
+	/**
+	 * Number of sections put into the buffer. Only written by the producer.
+	 */
+	private volatile long tail = 0;
+
+	/**
+	 * Number of sections taken from the buffer. Only written by the consumer.
+	 */
+	private volatile long head = 0;
+
+	/**
+	 * Bytes of array data currently in the buffer.
 	 */
-	private volatile LinkedList<Entry<byte[], Integer>> data;
+	private final AtomicLong queuedbytes = new AtomicLong();
 
 	/**
-	 * Maximum number of entries which can be buffered in the data list.
+	 * True, once the producer signaled that no more data is going to come.
 	 */
-	public static final int maxlength = 10;
+	private volatile boolean closed = false;
+
+	// Stall counters, each only written by one thread.
+	private volatile long producerstalls = 0;
+	private volatile long producerstallnanos = 0;
+	private volatile long consumerstalls = 0;
+	private volatile long consumerstallnanos = 0;
 
 	public DataBlockBuffer() {
-		data = new LinkedList<>();
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a buffer with the given capacity.
+	 *
+	 * @param capacity
+	 *            Maximum number of bytes queued in this buffer.
+	 */
+	public DataBlockBuffer(long capacity) {
+		this.capacity = capacity;
 	}
 
 	/**
 	 * Fetches the next data section from the buffer.
 	 *
-	 * @return The next data section which can be written.
-	 */
-	public synchronized Entry<byte[], Integer> getData() {
-		while (data.isEmpty()) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-				throw new RuntimeException("Interrupted!");
+	 * @return The next data section which can be written, or null, if no more
+	 *         data will come.
+	 */
+	public DataSection getData() {
+		if (head == tail) {
+			// Buffer is empty, wait for the producer.
+			long stallstart = System.nanoTime();
+			int spins = 0;
+			while (head == tail && !closed) {
+				idle(spins++);
+			}
+			consumerstalls++;
+			consumerstallnanos += System.nanoTime() - stallstart;
+			// all sections put before closing are visible now.
+			if (head == tail) {
+				return null;
 			}
 		}
-		Entry<byte[], Integer> ret = null;
-		if (!data.isEmpty()) {
-			ret = data.removeFirst();
-		}
-		// notify processes waiting for write.
-		notifyAll();
+		int idx = (int) (head & MASK);
+		DataSection ret = ring[idx];
+		ring[idx] = null;
+		queuedbytes.addAndGet(-getSize(ret));
+		head = head + 1;
 		return ret;
 	}
 
 	/**
-	 * Put a section of data (<code>byte[]</code>) into the buffer.
+	 * Put a section of data into the buffer. Passing null has the same effect
+	 * as calling close().
 	 *
 	 * @param dataarray
 	 *            The data to put.
 	 */
-	public synchronized void putData(Entry<byte[], Integer> dataarray) {
-		while (data.size() >= maxlength) {
-			try {
-				wait();
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-				throw new RuntimeException("Interrupted!");
+	public void putData(DataSection dataarray) {
+		if (dataarray == null) {
+			closed = true;
+			return;
+		}
+		long size = getSize(dataarray);
+		if (!hasSpace(size)) {
+			// Buffer is full, wait for the consumer.
+			long stallstart = System.nanoTime();
+			int spins = 0;
+			while (!hasSpace(size)) {
+				idle(spins++);
 			}
+			producerstalls++;
+			producerstallnanos += System.nanoTime() - stallstart;
 		}
-		data.addLast(dataarray);
-		if (data.size() == 1) {
-			// notify processes waiting for read.
-			notifyAll();
+		ring[(int) (tail & MASK)] = dataarray;
+		queuedbytes.addAndGet(size);
+		// publish the section.
+		tail = tail + 1;
+	}
+
+	/**
+	 * Checks if a section of the given size can be put into the buffer.
+	 *
+	 * @param size
+	 *            Number of bytes of the section.
+	 * @return True, if the section fits.
+	 */
+	private boolean hasSpace(long size) {
+		long queued = tail - head;
+		if (queued >= SLOTS) {
+			return false;
+		}
+		return queued == 0 || queuedbytes.get() + size <= capacity;
+	}
+
+	/**
+	 * Number of bytes of memory a section occupies while queued. Transfers of
+	 * input file sections do not hold any data.
+	 */
+	private static long getSize(DataSection section) {
+		return section.isTransfer() ? 0 : section.getLength();
+	}
+
+	/**
+	 * Waits a short moment, longer with increasing number of iterations.
+	 *
+	 * @param iteration
+	 *            Number of times the caller already waited.
+	 */
+	private static void idle(int iteration) {
+		if (iteration < SPINS) {
+			Thread.onSpinWait();
+		} else {
+			LockSupport.parkNanos(iteration < SPINS * 10 ? 10_000L : 200_000L);
+			if (Thread.interrupted()) {
+				throw new RuntimeException("Interrupted!");
+			}
 		}
 	}
 
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return Number of times the producer had to wait, because the buffer was
+	 *         full.
+	 */
+	public long getProducerStalls() {
+		return producerstalls;
+	}
+
+	/**
+	 * @return Total time in ns the producer waited.
+	 */
+	public long getProducerStallNanos() {
+		return producerstallnanos;
+	}
+
+	/**
+	 * @return Number of times the consumer had to wait, because the buffer was
+	 *         empty.
+	 */
+	public long getConsumerStalls() {
+		return consumerstalls;
+	}
+
+	/**
+	 * @return Total time in ns the consumer waited.
+	 */
+	public long getConsumerStallNanos() {
+		return consumerstallnanos;
+	}
+
 	/*
-	 * Puts null into the buffer, which causes the write tread using this buffer
-	 * to finish.
-	 * 
+	 * Signals the write tread using this buffer to finish, once all data put
+	 * before is taken.
+	 *
 	 * @see java.lang.AutoCloseable#close()
 	 */
 	@Override
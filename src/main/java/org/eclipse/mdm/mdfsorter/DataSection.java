@@ -0,0 +1,164 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A section of output data, which is passed from the processing thread to the
+ * WriteWorker via the DataBlockBuffer. A section either holds one or more
+ * buffers with the data to write (written with a single gathering write), or
+ * describes a range of an input file, that is copied to the output without
+ * being read into memory.
+ *
+ * @see DataBlockBuffer
+ * @see WriteWorker
+ */
+public class DataSection {
+
+	/**
+	 * The data to be written, from the position to the limit of each buffer.
+	 * Null, if this section is a transfer from an input file.
+	 */
+	private final ByteBuffer[] buffers;
+
+	/**
+	 * The pool the (only) array of this section is returned to after the
+	 * write, or null if the array is not pooled.
+	 */
+	private final BufferPool pool;
+
+	/**
+	 * The input file, this section is copied from. Null, if this section
+	 * holds buffers.
+	 */
+	private final FileChannel source;
+
+	/**
+	 * Start position of this section in the input file. (transfer only)
+	 */
+	private final long sourcepos;
+
+	/**
+	 * Number of bytes of this section.
+	 */
+	private final long length;
+
+	/**
+	 * Creates a section containing the first <code>length</code> bytes of
+	 * <code>data</code>.
+	 *
+	 * @param data
+	 *            The data array.
+	 * @param length
+	 *            The number of bytes to be written.
+	 */
+	public DataSection(byte[] data, int length) {
+		this(data, length, null);
+	}
+
+	/**
+	 * Creates a section containing the first <code>length</code> bytes of
+	 * <code>data</code>, which is returned to <code>pool</code> once it is
+	 * written.
+	 *
+	 * @param data
+	 *            The data array.
+	 * @param length
+	 *            The number of bytes to be written.
+	 * @param pool
+	 *            The pool <code>data</code> was taken from.
+	 */
+	public DataSection(byte[] data, int length, BufferPool pool) {
+		buffers = new ByteBuffer[] { ByteBuffer.wrap(data, 0, length) };
+		this.pool = pool;
+		this.length = length;
+		source = null;
+		sourcepos = 0;
+	}
+
+	/**
+	 * Creates a section containing the remaining bytes of all given buffers,
+	 * in the given order.
+	 *
+	 * @param buffers
+	 *            The buffers.
+	 */
+	public DataSection(ByteBuffer... buffers) {
+		this.buffers = buffers;
+		long len = 0;
+		for (ByteBuffer b : buffers) {
+			len += b.remaining();
+		}
+		length = len;
+		pool = null;
+		source = null;
+		sourcepos = 0;
+	}
+
+	/**
+	 * Creates a section, that copies <code>length</code> bytes starting at
+	 * <code>sourcepos</code> from the channel <code>source</code>.
+	 *
+	 * @param source
+	 *            The input file.
+	 * @param sourcepos
+	 *            Start position in the input file.
+	 * @param length
+	 *            The number of bytes to be copied.
+	 */
+	public DataSection(FileChannel source, long sourcepos, long length) {
+		buffers = null;
+		pool = null;
+		this.source = source;
+		this.sourcepos = sourcepos;
+		this.length = length;
+	}
+
+	/**
+	 * @return True, if this section is copied from an input file.
+	 */
+	public boolean isTransfer() {
+		return source != null;
+	}
+
+	/**
+	 * Returns the array of this section to its pool, if it has one. Must only
+	 * be called once the section has been written.
+	 */
+	public void release() {
+		if (pool != null) {
+			pool.release(buffers[0].array());
+		}
+	}
+
+	public ByteBuffer[] getBuffers() {
+		return buffers;
+	}
+
+	public FileChannel getSource() {
+		return source;
+	}
+
+	public long getSourcepos() {
+		return sourcepos;
+	}
+
+	public long getLength() {
+		return length;
+	}
+}
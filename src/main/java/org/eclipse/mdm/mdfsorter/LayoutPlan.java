@@ -0,0 +1,269 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Layout of the output file, determined before any data is written. The plan
+ * holds the final length of the output and the link sections of all blocks.
+ * Link sections are added like they were written to a RandomAccessFile, with
+ * <code>seek</code> and <code>write</code>. Links of successive writes are
+ * merged into one section.
+ *
+ * While the output is written, the WriteDataCache overlays the planned link
+ * sections on the data passing through it. Therefore links to blocks, which
+ * are written later, are correct right away, and the output is written in a
+ * single sequential pass.
+ *
+ * @see WriteDataCache
+ */
+public class LayoutPlan {
+
+	/**
+	 * Final length of the output file.
+	 */
+	private long length;
+
+	/**
+	 * Start position in the output, offset in <code>data</code> and length of
+	 * each link section.
+	 */
+	private long[] starts = new long[64];
+	private int[] offsets = new int[64];
+	private int[] lengths = new int[64];
+
+	/**
+	 * Number of link sections.
+	 */
+	private int count = 0;
+
+	/**
+	 * Content of all link sections.
+	 */
+	private byte[] data = new byte[1024];
+	private int datalength = 0;
+
+	/**
+	 * Position the next call of <code>write</code> writes to.
+	 */
+	private long position = 0;
+
+	/**
+	 * False, if the link sections are not ordered by their start positions.
+	 */
+	private boolean sorted = true;
+
+	/**
+	 * Index of the first link section, which may still be overlaid. Output is
+	 * written with ascending positions, so sections before are done.
+	 */
+	private int cursor = 0;
+
+	/**
+	 * Sets the position in the output, which the next link section is written
+	 * to.
+	 *
+	 * @param pos
+	 *            Position in the output file.
+	 */
+	public void seek(long pos) {
+		position = pos;
+	}
+
+	/**
+	 * Writes <code>b</code> to the current position, and advances the
+	 * position. Sections directly following each other are merged.
+	 *
+	 * @param b
+	 *            The bytes to write.
+	 */
+	public void write(byte[] b) {
+		if (b.length == 0) {
+			return;
+		}
+		if (count > 0) {
+			long laststart = starts[count - 1];
+			long lastend = laststart + lengths[count - 1];
+			if (position >= laststart && position + b.length <= lastend) {
+				// Overwrite a part of the last section.
+				System.arraycopy(b, 0, data, offsets[count - 1] + (int) (position - laststart), b.length);
+				position += b.length;
+				return;
+			}
+			if (position == lastend) {
+				// Extend the last section.
+				append(b);
+				lengths[count - 1] += b.length;
+				position += b.length;
+				return;
+			}
+			if (position < lastend) {
+				sorted = false;
+			}
+		}
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			offsets = Arrays.copyOf(offsets, count * 2);
+			lengths = Arrays.copyOf(lengths, count * 2);
+		}
+		starts[count] = position;
+		offsets[count] = datalength;
+		lengths[count] = b.length;
+		count++;
+		append(b);
+		position += b.length;
+	}
+
+	private void append(byte[] b) {
+		if (datalength + b.length > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, datalength + b.length));
+		}
+		System.arraycopy(b, 0, data, datalength, b.length);
+		datalength += b.length;
+	}
+
+	/**
+	 * Orders the link sections by their start positions, if needed.
+	 */
+	private void sort() {
+		if (sorted) {
+			return;
+		}
+		var idx = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			idx[i] = i;
+		}
+		Arrays.sort(idx, Comparator.comparingLong(i -> starts[i]));
+		var newstarts = new long[count];
+		var newoffsets = new int[count];
+		var newlengths = new int[count];
+		for (int i = 0; i < count; i++) {
+			newstarts[i] = starts[idx[i]];
+			newoffsets[i] = offsets[idx[i]];
+			newlengths[i] = lengths[idx[i]];
+		}
+		starts = newstarts;
+		offsets = newoffsets;
+		lengths = newlengths;
+		sorted = true;
+	}
+
+	/**
+	 * Skips all link sections, which end before <code>pos</code>.
+	 */
+	private void advance(long pos) {
+		sort();
+		while (cursor < count && starts[cursor] + lengths[cursor] <= pos) {
+			cursor++;
+		}
+	}
+
+	/**
+	 * Checks if any link section overlaps the given range of the output.
+	 * Ranges must be queried in ascending order.
+	 *
+	 * @param pos
+	 *            Start of the range.
+	 * @param len
+	 *            Length of the range.
+	 * @return True, if a link section starts before the end of the range.
+	 */
+	public boolean intersects(long pos, long len) {
+		advance(pos);
+		return cursor < count && starts[cursor] < pos + len;
+	}
+
+	/**
+	 * @return Start of the next link section ending after <code>pos</code>,
+	 *         or Long.MAX_VALUE if there is none.
+	 */
+	public long getSectionStart(long pos) {
+		advance(pos);
+		return cursor < count ? starts[cursor] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return End of the next link section ending after <code>pos</code>, or
+	 *         Long.MAX_VALUE if there is none.
+	 */
+	public long getSectionEnd(long pos) {
+		advance(pos);
+		return cursor < count ? starts[cursor] + lengths[cursor] : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Copies all planned links within the range of the output starting at
+	 * <code>pos</code> into <code>dst</code>.
+	 *
+	 * @param pos
+	 *            Position of dst[off] in the output.
+	 * @param dst
+	 *            The array with the output data.
+	 * @param off
+	 *            Offset of the range in dst.
+	 * @param len
+	 *            Length of the range.
+	 */
+	public void overlay(long pos, byte[] dst, int off, int len) {
+		advance(pos);
+		for (int i = cursor; i < count && starts[i] < pos + len; i++) {
+			long from = Math.max(starts[i], pos);
+			long to = Math.min(starts[i] + lengths[i], pos + len);
+			System.arraycopy(data, offsets[i] + (int) (from - starts[i]), dst, off + (int) (from - pos),
+					(int) (to - from));
+		}
+	}
+
+	/**
+	 * Writes all link sections to an already written file, in ascending order
+	 * and with one positional write per section.
+	 *
+	 * @param out
+	 *            The output file.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	public void applyTo(FileChannel out) throws IOException {
+		sort();
+		for (int i = 0; i < count; i++) {
+			var section = ByteBuffer.wrap(data, offsets[i], lengths[i]);
+			long pos = starts[i];
+			while (section.hasRemaining()) {
+				pos += out.write(section, pos);
+			}
+		}
+	}
+
+	public long getLength() {
+		return length;
+	}
+
+	public void setLength(long length) {
+		this.length = length;
+	}
+
+	/**
+	 * @return The number of link sections in this plan.
+	 */
+	public int getSectionCount() {
+		return count;
+	}
+}
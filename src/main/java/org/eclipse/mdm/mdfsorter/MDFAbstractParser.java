@@ -16,40 +16,95 @@
 package org.eclipse.mdm.mdfsorter;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public abstract class MDFAbstractParser<MDFXBlock extends MDFGenBlock> {
 	abstract public MDFFileContent<MDFXBlock> parse() throws IOException;
 
 	/**
-	 * Queue storing all known links to blocks that have not been parsed yet.
+	 * Size of the window, through which headers, links and bodies of the
+	 * blocks are read.
 	 */
-	protected PriorityQueue<MDFXBlock> queue;
+	static final int WINDOWSIZE = 1024 * 1024; // 1MB
 
 	/**
-	 * Queue, containing all blocks that have been skipped, because their
-	 * address is lower, that the current position of the reader in the file.
-	 * These blocks will be parsed during the next run through the file.
+	 * Queue storing all known links to blocks that have not been parsed yet,
+	 * ordered by their position. Blocks are parsed in this order, so the file
+	 * is mostly read forward. Blocks found behind the last parsed block are
+	 * read at once with a positional read, no further run through the file is
+	 * needed.
 	 */
-	protected PriorityQueue<MDFXBlock> skipped;
+	protected PriorityQueue<MDFXBlock> queue;
 
 	/**
 	 * The input stream to the file.
 	 */
 	protected FileChannel in;
 
+	/**
+	 * Position of the next read of <code>readBytes()</code>. The position of
+	 * <code>in</code> itself is never changed.
+	 */
+	protected long position = 0;
+
 	/**
 	 * Address of the last block which has been parsed
 	 */
 	protected long lasthandled = 0;
 
-	// Debug purposes
-	protected int fileruns = 0;
+	/**
+	 * Number of runs through the file, always 1.
+	 */
+	protected int fileruns = 0;
+
+	/**
+	 * Number of blocks parsed behind the last parsed block.
+	 */
+	protected int backwardblocks = 0;
 
 	protected int foundblocks = 0;
 
+	/**
+	 * Section of the file, which was read last. Reads inside of it are served
+	 * from memory, so the many small reads of headers and links turn into few
+	 * large ones.
+	 */
+	private final byte[] window = new byte[WINDOWSIZE];
+	private long windowstart = 0;
+	private int windowlength = 0;
+
+	/**
+	 * Number of reads from the input file.
+	 */
+	protected int filereads = 0;
+
+	/**
+	 * Number of threads decoding the bodies of the blocks. With more than one
+	 * thread, the parser only discovers the blocks and their links in its run
+	 * through the file. The bodies are decoded afterwards on a ForkJoinPool.
+	 */
+	protected int parsethreads = 1;
+
+	/**
+	 * Blocks, which were discovered, but not decoded yet.
+	 */
+	private final List<MDFXBlock> undecoded = new ArrayList<>();
+
+	/**
+	 * True, while the blocks are decoded in parallel.
+	 */
+	private volatile boolean decoding = false;
+
 	/**
 	 * This map contains all MDFGenBlocks that have not been parsed, but their
 	 * address is known. Key: The position of the block in the file. Value: The
@@ -67,9 +122,190 @@ public abstract class MDFAbstractParser<MDFXBlock extends MDFGenBlock> {
 		this.in = in;
 		// Initialize Datastructures
 		queue = new PriorityQueue<>();
-		skipped = new PriorityQueue<>();
 		blocklist = new TreeMap<>();
 		unfinished = new TreeMap<>();
 	}
 
+	/**
+	 * @return Number of runs through the file while parsing.
+	 */
+	public int getFileRuns() {
+		return fileruns;
+	}
+
+	/**
+	 * @return Number of blocks, which were found behind the last parsed block,
+	 *         and were read without a further run through the file.
+	 */
+	public int getBackwardBlocks() {
+		return backwardblocks;
+	}
+
+	/**
+	 * @return Number of reads from the input file while parsing.
+	 */
+	public int getFileReads() {
+		return filereads;
+	}
+
+	/**
+	 * Sets the number of threads decoding the bodies of the blocks.
+	 *
+	 * @param parsethreads
+	 *            The number of threads, 1 decodes each block, when it is
+	 *            discovered.
+	 */
+	public void setParseThreads(int parsethreads) {
+		this.parsethreads = parsethreads;
+	}
+
+	/**
+	 * Reads the body of a block, creates its more special block and parses
+	 * the body into it.
+	 *
+	 * @param blk
+	 *            The block, its header and links are already read.
+	 * @throws IOException
+	 *             If an input error occurs.
+	 */
+	protected abstract void forceparse(MDFXBlock blk) throws IOException;
+
+	/**
+	 * Decodes a discovered block right away, or remembers it for
+	 * <code>decodeAll()</code>, if the blocks are decoded in parallel.
+	 *
+	 * @param blk
+	 *            The block, its header and links are already read.
+	 * @throws IOException
+	 *             If an input error occurs.
+	 */
+	protected void decode(MDFXBlock blk) throws IOException {
+		if (parsethreads > 1) {
+			undecoded.add(blk);
+		} else {
+			forceparse(blk);
+		}
+	}
+
+	/**
+	 * Decodes all remembered blocks on a ForkJoinPool with
+	 * <code>parsethreads</code> threads. The blocks are split into a few
+	 * slices per thread, each block reads its body with a positional read.
+	 *
+	 * @return The decoded blocks.
+	 * @throws IOException
+	 *             If an input error occurs.
+	 */
+	protected List<MDFXBlock> decodeAll() throws IOException {
+		var ret = new ArrayList<>(undecoded);
+		undecoded.clear();
+		if (ret.isEmpty()) {
+			return ret;
+		}
+		int slices = Math.min(ret.size(), parsethreads * 4);
+		var tasks = new ArrayList<Callable<Void>>(slices);
+		for (int i = 0; i < slices; i++) {
+			var slice = ret.subList(i * ret.size() / slices, (i + 1) * ret.size() / slices);
+			tasks.add(() -> {
+				for (MDFXBlock blk : slice) {
+					forceparse(blk);
+				}
+				return null;
+			});
+		}
+		decoding = true;
+		var pool = new ForkJoinPool(parsethreads);
+		try {
+			for (Future<Void> f : pool.invokeAll(tasks)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+			decoding = false;
+		}
+		MDFSorter.log.fine(new StringBuilder().append("Decoded ").append(ret.size()).append(" blocks on ").append(parsethreads).append(" threads.").toString());
+		return ret;
+	}
+
+	/**
+	 * Reads the next bytes at <code>position</code> and advances it. The bytes
+	 * are copied from the window, if it contains them. Otherwise the window is
+	 * moved forward to <code>position</code>. Large sections and sections in
+	 * front of the window are read directly, the window is kept then.
+	 *
+	 * @param bytes
+	 *            The number of bytes to read.
+	 * @return A byte-Array with <code>length=bytes</code>.
+	 * @throws IOException
+	 *             If an input error occurs.
+	 * @see MDFParser#readBytes(FileChannel, long, int)
+	 */
+	protected byte[] readBytes(int bytes) throws IOException {
+		if (!inWindow(bytes) && bytes <= WINDOWSIZE / 2 && position > windowstart) {
+			fillWindow();
+		}
+		byte[] ret;
+		if (inWindow(bytes)) {
+			int off = (int) (position - windowstart);
+			ret = Arrays.copyOfRange(window, off, off + bytes);
+		} else {
+			ret = MDFParser.readBytes(in, position, bytes);
+			filereads++;
+		}
+		position += bytes;
+		return ret;
+	}
+
+	/**
+	 * Reads bytes at <code>pos</code>. While the blocks are decoded in
+	 * parallel, the channel is read directly with a positional read, because
+	 * the window is not thread safe. Otherwise the bytes are read through the
+	 * window.
+	 *
+	 * @param pos
+	 *            The position in the file.
+	 * @param bytes
+	 *            The number of bytes to read.
+	 * @return A byte-Array with <code>length=bytes</code>.
+	 * @throws IOException
+	 *             If an input error occurs.
+	 */
+	protected byte[] readBytes(long pos, int bytes) throws IOException {
+		if (decoding) {
+			return MDFParser.readBytes(in, pos, bytes);
+		}
+		position = pos;
+		return readBytes(bytes);
+	}
+
+	private boolean inWindow(int bytes) {
+		return position >= windowstart && position + bytes <= windowstart + windowlength;
+	}
+
+	/**
+	 * Reads the window starting at <code>position</code>, up to the end of the
+	 * file.
+	 *
+	 * @throws IOException
+	 *             If an input error occurs.
+	 */
+	private void fillWindow() throws IOException {
+		var buf = ByteBuffer.wrap(window, 0, (int) Math.max(0L, Math.min(WINDOWSIZE, in.size() - position)));
+		while (buf.hasRemaining()) {
+			if (in.read(buf, position + buf.position()) < 0) {
+				break;
+			}
+		}
+		windowstart = position;
+		windowlength = buf.position();
+		filereads++;
+	}
+
 }
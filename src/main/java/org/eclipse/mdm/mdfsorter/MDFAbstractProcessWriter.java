@@ -15,10 +15,14 @@
 
 package org.eclipse.mdm.mdfsorter;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.LinkedList;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.zip.DataFormatException;
 
 public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock> {
@@ -39,11 +43,11 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 	protected ArgumentStruct args;
 
 	/**
-	 * List with all block written to the file, ordered by ascending addresses.
-	 * This list is used to update all links after the first write operation has
-	 * been completed.
+	 * The link slots of all blocks written to the file. The table is used to
+	 * update all links after all blocks have been written (or planned).
+	 * Blocks without links are not stored.
 	 */
-	protected LinkedList<MDFXGenBlock> writtenblocks;
+	protected WrittenBlockTable writtenblocks = new WrittenBlockTable();
 
 	/**
 	 * Write position in the output file
@@ -55,10 +59,167 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 	 */
 	protected WriteDataCache myCache;
 
+	/**
+	 * True, while the layout of the output is planned. Nothing is written
+	 * then, only the writepointer is increased.
+	 */
+	protected boolean planning = false;
+
+	/**
+	 * True, once the layout of the output is planned. The links of written
+	 * blocks are part of the plan then, and are not recorded again.
+	 */
+	protected boolean planned = false;
+
+	/**
+	 * Blocks placed by this writer, if it writes a segment of the output,
+	 * whose position in the output is not known yet. Their output positions
+	 * are relative to the start of the segment, and are moved once it is
+	 * appended. Null, if this writer writes the output itself.
+	 */
+	protected List<MDFGenBlock> placedblocks;
+
+	/**
+	 * Links of all input blocks, saved while the layout is planned.
+	 */
+	private MDFGenBlock[][] savedlinks;
+
+	/**
+	 * The input file mapped into memory, while it is processed. Null
+	 * otherwise, or if it cannot be mapped.
+	 */
+	protected MappedInput mapped;
+
 	public abstract void processAndWriteOut() throws IOException, DataFormatException;
 
 	public abstract void writeSpacer(long length);
 
+	/**
+	 * Writes all blocks of the output. This is called twice if the layout is
+	 * planned, first in planning mode, then to actually write the output.
+	 *
+	 * @param reader
+	 *            Stream to the InputFile.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	protected abstract void writeOutput(FileChannel reader) throws IOException, DataFormatException;
+
+	/**
+	 * Encodes a link in the format of the output file.
+	 *
+	 * @param outputpos
+	 *            The output position of the linked block, 0 for no link.
+	 * @return The bytes of the link.
+	 */
+	protected abstract byte[] getBytesLink(long outputpos);
+
+	/**
+	 * Adds the links of all written blocks to the layout plan, and removes
+	 * them from the table of written blocks.
+	 *
+	 * @param plan
+	 *            The plan, all linked blocks have an output position.
+	 */
+	protected void planLinks(LayoutPlan plan) {
+		for (int i = 0; i < writtenblocks.size(); i++) {
+			MDFGenBlock linkedblock = writtenblocks.getTarget(i);
+			plan.seek(writtenblocks.getPosition(i));
+			plan.write(getBytesLink(linkedblock != null ? linkedblock.getOutputpos() : 0));
+		}
+		writtenblocks.clear();
+	}
+
+	/**
+	 * Called before a block is written, and its output position is set.
+	 * Subclasses can write pending blocks here, which have to precede it.
+	 */
+	protected void beforeBlock() {
+	}
+
+	/**
+	 * Saves the state of the input blocks, which is changed while the output
+	 * is written. Links are saved here, subclasses may save more.
+	 */
+	protected void saveInputState() {
+		savedlinks = new MDFGenBlock[filestructure.getList().size()][];
+		int i = 0;
+		for (MDFXGenBlock blk : filestructure.getList()) {
+			if (blk.getLinks() != null) {
+				savedlinks[i] = blk.getLinks().clone();
+			}
+			i++;
+		}
+	}
+
+	/**
+	 * Restores the state saved with saveInputState.
+	 */
+	protected void restoreInputState() {
+		int i = 0;
+		for (MDFXGenBlock blk : filestructure.getList()) {
+			if (savedlinks[i] != null) {
+				System.arraycopy(savedlinks[i], 0, blk.getLinks(), 0, savedlinks[i].length);
+			}
+			i++;
+		}
+		savedlinks = null;
+	}
+
+	/**
+	 * Plans the layout of the output. All blocks are written in planning mode,
+	 * which assigns their output positions without writing any data. The input
+	 * blocks are restored afterwards, so that the output can be written the
+	 * same way again.
+	 *
+	 * @param reader
+	 *            Stream to the InputFile.
+	 * @return The planned layout, with links of all blocks.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	public LayoutPlan planLayout(FileChannel reader) throws IOException, DataFormatException {
+		long start = System.currentTimeMillis();
+		saveInputState();
+		var ret = new LayoutPlan();
+		planning = true;
+		try {
+			writeOutput(reader);
+			ret.setLength(writeptr);
+			planLinks(ret);
+			planned = true;
+		} finally {
+			planning = false;
+			writeptr = 0;
+			writtenblocks.clear();
+			restoreInputState();
+		}
+		MDFSorter.log.log(Level.FINE, new StringBuilder().append("Planned ").append(ret.getLength() / 1000).append(" kB with ").append(ret.getSectionCount()).append(" link sections in ")
+				.append(System.currentTimeMillis() - start).append(" ms.").toString());
+		return ret;
+	}
+
+	/**
+	 * Sets the size of the output file to the planned length, before it is
+	 * written.
+	 *
+	 * @param out
+	 *            Stream to the empty output file.
+	 * @param plan
+	 *            The planned layout.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	protected void preallocate(FileOutputStream out, LayoutPlan plan) throws IOException {
+		if (plan.getLength() > 0) {
+			out.getChannel().write(ByteBuffer.allocate(1), plan.getLength() - 1);
+		}
+	}
+
 	public MDFFileContent<MDFXGenBlock> getFilestructure() {
 		return filestructure;
 	}
@@ -75,18 +236,82 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 		this.args = args;
 	}
 
-	public LinkedList<MDFXGenBlock> getWrittenblocks() {
+	public WrittenBlockTable getWrittenblocks() {
 		return writtenblocks;
 	}
 
-	public void setWrittenblocks(LinkedList<MDFXGenBlock> writtenblocks) {
+	public void setWrittenblocks(WrittenBlockTable writtenblocks) {
 		this.writtenblocks = writtenblocks;
 	}
 
+	/**
+	 * Remembers the link slots of a written block, whose links have to be
+	 * updated. Links may still change after the block has been written,
+	 * therefore they are resolved once all blocks are written. The block
+	 * itself is not kept.
+	 *
+	 * @param blk
+	 *            The written block.
+	 */
+	public void addWrittenBlock(MDFXGenBlock blk) {
+		if (!planned && blk.getLinkCount() > 0) {
+			writtenblocks.add(blk);
+		}
+	}
+
+	/**
+	 * Sets the output position of a block to the current write position.
+	 *
+	 * @param blk
+	 *            The block, which is written next.
+	 */
+	public void place(MDFGenBlock blk) {
+		blk.setOutputpos(writeptr);
+		if (placedblocks != null) {
+			placedblocks.add(blk);
+		}
+	}
+
 	public long getWriteptr() {
 		return writeptr;
 	}
 
+	public boolean isPlanning() {
+		return planning;
+	}
+
+	/**
+	 * @return The mapped input file, or null if data is read from the input
+	 *         channel.
+	 */
+	public MappedInput getMappedInput() {
+		return mapped;
+	}
+
+	/**
+	 * Maps the input file, before it is processed.
+	 */
+	protected void mapInput() {
+		mapped = MappedInput.map(filestructure.getInput());
+	}
+
+	/**
+	 * Releases the mapping of the input file, after it is processed.
+	 */
+	protected void unmapInput() {
+		if (mapped != null) {
+			mapped.close();
+			mapped = null;
+		}
+	}
+
+	/**
+	 * @return Directory for temporary files, the directory of the output file.
+	 */
+	public Path getSpillDirectory() {
+		return Paths.get(args.outputname).toAbsolutePath().getParent();
+	}
+
 	public boolean checkProblems() {
 		filestructure.getList().forEach(blk -> blk.analyseProblems(args));
 		boolean ret = false;
@@ -102,7 +327,9 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 	}
 
 	/**
-	 * Copy a block.
+	 * Copy a block. The block is not read, but passed through from the input
+	 * file to the output file (see WriteDataCache.transfer). Copies of blocks
+	 * which directly follow each other in input and output are merged.
 	 *
 	 * @param blk
 	 *            The block to copy.
@@ -112,35 +339,21 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 	 *             If an I/O error occurs.
 	 */
 	public void copyBlock(MDFXGenBlock blk, FileChannel reader) throws IOException {
-		reader.position(blk.getPos());
-		blk.setOutputpos(writeptr);
+		beforeBlock();
+		place(blk);
 
-		// write file out in 64k blocks
 		long length = blk.getLength();
-		// Number of Bytes written
-		long written = 0;
-
-		do {
-			int bytesread;
-			if (written + MAX_OUTPUTBLOCKSIZE > length) {
-				ByteBuffer custombuffer = ByteBuffer.allocate((int) (length - written));
-				bytesread = reader.read(custombuffer);
-				performPut(custombuffer, bytesread, false);
-			} else {
-				ByteBuffer buffer = ByteBuffer.allocate(MAX_OUTPUTBLOCKSIZE);
-				bytesread = reader.read(buffer);
-				performPut(buffer, bytesread, false);
-			}
-			written += bytesread;
-		} while (written < length);
-		if (length != written) {
-			throw new IOException(new StringBuilder().append("written length not equal to blocklength: ").append(length).append("/").append(written).toString());
+		long available = reader.size() - blk.getPos();
+		if (length > available) {
+			throw new IOException(new StringBuilder().append("Block at ").append(blk.getPos()).append(" exceeds the input file: ").append(length).append("/").append(available).toString());
 		}
+		performTransfer(reader, blk.getPos(), length);
+
 		// insert space if length%8!=0
 		if (length % 8 != 0) {
 			writeSpacer(length);
 		}
-		writtenblocks.addLast(blk);
+		addWrittenBlock(blk);
 	}
 
 	/**
@@ -157,15 +370,12 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 	 *             If an Output error occurs.
 	 */
 	public void writeBlock(MDFXGenBlock blk, byte[] appendData) throws IOException {
-		blk.setOutputpos(writeptr);
+		beforeBlock();
+		place(blk);
 
-		performPut(blk.getHeaderBytes());
-		performPut(blk.getBodyBytes());
-		if (appendData != null) {
-			performPut(appendData);
-		}
+		performGatheringPut(blk.getHeaderBytes(), blk.getBodyBytes(), appendData);
 		writeSpacer(blk.getLength());
-		writtenblocks.add(blk);
+		addWrittenBlock(blk);
 	}
 
 	/**
@@ -179,7 +389,9 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 			return;
 		}
 		writeptr += data.length;
-		myCache.put(data);
+		if (!planning) {
+			myCache.put(data);
+		}
 	}
 
 	/**
@@ -197,6 +409,81 @@ public abstract class MDFAbstractProcessWriter<MDFXGenBlock extends MDFGenBlock>
 	 */
 	public void performPut(ByteBuffer buf, int len, boolean reused) {
 		writeptr += len;
-		myCache.put(buf, len, reused);
+		if (!planning) {
+			myCache.put(buf, len, reused);
+		}
+	}
+
+	/**
+	 * Puts all given arrays in the WriteCache, and increases the writepointer.
+	 * Large sections are written with a single gathering write. Arrays which
+	 * are null are skipped.
+	 *
+	 * @param parts
+	 *            The arrays to be written, in this order.
+	 */
+	public void performGatheringPut(byte[]... parts) {
+		int count = 0;
+		for (byte[] part : parts) {
+			if (part != null && part.length != 0) {
+				count++;
+			}
+		}
+		ByteBuffer[] buffers = new ByteBuffer[count];
+		count = 0;
+		for (byte[] part : parts) {
+			if (part != null && part.length != 0) {
+				buffers[count++] = ByteBuffer.wrap(part);
+			}
+		}
+		performGatheringPut(buffers);
+	}
+
+	/**
+	 * Puts the remaining bytes of all given buffers in the WriteCache, and
+	 * increases the writepointer. The buffers must not be changed afterwards.
+	 *
+	 * @param parts
+	 *            The buffers to be written, in this order.
+	 */
+	public void performGatheringPut(ByteBuffer... parts) {
+		for (ByteBuffer part : parts) {
+			writeptr += part.remaining();
+		}
+		if (!planning) {
+			myCache.put(parts);
+		}
+	}
+
+	/**
+	 * Copies <code>len</code> bytes starting at <code>pos</code> from the
+	 * input file to the output, and increases the writepointer.
+	 *
+	 * @param reader
+	 *            The input file.
+	 * @param pos
+	 *            Start position in the input file.
+	 * @param len
+	 *            The number of bytes to be copied.
+	 */
+	public void performTransfer(FileChannel reader, long pos, long len) {
+		writeptr += len;
+		if (!planning) {
+			myCache.transfer(reader, pos, len);
+		}
+	}
+
+	/**
+	 * Increases the writepointer by <code>len</code> bytes of data, which are
+	 * not needed while planning. May only be called in planning mode.
+	 *
+	 * @param len
+	 *            The number of bytes.
+	 */
+	public void performSkip(long len) {
+		if (!planning) {
+			throw new IllegalStateException("Data can only be skipped while planning.");
+		}
+		writeptr += len;
 	}
 }
@@ -53,8 +53,20 @@ abstract public class MDFGenBlock {
 
 	public abstract MDFGenBlock getLink(int i);
 
+	public abstract MDFGenBlock[] getLinks();
+
 	public abstract int getLinkCount();
 
+	/**
+	 * Returns the position of a link field, relative to the start of the
+	 * block.
+	 *
+	 * @param i
+	 *            Index of the link.
+	 * @return The offset of the link in the block.
+	 */
+	public abstract long getLinkOffset(int i);
+
 	public abstract byte[] getHeaderBytes();
 
 	public abstract byte[] getBodyBytes() throws IOException;
@@ -35,11 +35,27 @@ import org.eclipse.mdm.mdfsorter.mdf4.MDF4Util;
  */
 public abstract class MDFParser {
 
-	@SuppressWarnings("unchecked")
 	public static MDFFileContent<? extends MDFGenBlock> serializeFile(FileChannel in) throws IOException {
+		return serializeFile(in, 1);
+	}
+
+	/**
+	 * Parses an MDF3 or MDF4 file.
+	 *
+	 * @param in
+	 *            The FileChannel to read from.
+	 * @param parsethreads
+	 *            Number of threads decoding the blocks after they are
+	 *            discovered. With 1, each block is decoded when it is found.
+	 * @return The content of the file.
+	 * @throws IOException
+	 *             If an input error occurs.
+	 */
+	@SuppressWarnings("unchecked")
+	public static MDFFileContent<? extends MDFGenBlock> serializeFile(FileChannel in, int parsethreads) throws IOException {
 		// some IDBLOCK Checks.
 		char[] versionnum = new char[8];
-		byte[] idblock = readBytes(64, in);
+		byte[] idblock = readBytes(in, 0L, 64);
 
 		var expected = "MDF     ";
 		for (int i = 0; i < 8; i++) {
@@ -55,7 +71,7 @@ public abstract class MDFParser {
 			}
 		}
 
-		int version = MDF4Util.readUInt16(getDataBuffer(idblock, 28, 30));
+		int version = MDF4Util.readUInt16(idblock, 28);
 		MDFSorter.log.log(Level.FINE, new StringBuilder().append("Found MDF Version ").append(String.valueOf(versionnum)).append(" (").append(version).append(")").toString());
 
 		@SuppressWarnings("rawtypes")
@@ -66,37 +82,44 @@ public abstract class MDFParser {
 			throw new IllegalArgumentException("Unsupported MDF Version.");
 		} else if (version < 400) {
 			if (version == 330) {
-				int codePage = MDF4Util.readUInt16(getDataBuffer(idblock, 30, 32));
+				int codePage = MDF4Util.readUInt16(idblock, 30);
 				if (codePage != 0) {
 					MDFSorter.log.warning(new StringBuilder().append("code page is defined to be '").append(codePage).append("' (value is ignored and ISO-8859-1 is used for string en-/decoding)").toString());
 				}
 			}
-			boolean bigendian = MDF4Util.readUInt16(getDataBuffer(idblock, 24, 26)) != 0;
+			boolean bigendian = MDF4Util.readUInt16(idblock, 24) != 0;
 			myParser = new MDF3Parser(in, bigendian);
 		} else {
 			myParser = new MDF4Parser(in);
 		}
 
+		myParser.setParseThreads(parsethreads);
 		return myParser.parse();
 	}
 
 	/**
-	 * Helper Method to read to an array from a FileChannel.
+	 * Helper Method to read to an array from a FileChannel. Only positional
+	 * reads are used, the position of the channel is not changed. Therefore the
+	 * channel can be shared by threads reading different parts of the file.
 	 *
-	 * @param bytes
-	 *            The number of bytes to read.
 	 * @param in
 	 *            The FileChannel to read from.
-	 * @return A byte-Array with <code>length=bytes</code> filled with the next
-	 *         bytes from the Channel.
+	 * @param pos
+	 *            The position in the file, where reading starts.
+	 * @param bytes
+	 *            The number of bytes to read.
+	 * @return A byte-Array with <code>length=bytes</code> filled with the bytes
+	 *         from the Channel at <code>pos</code>.
 	 * @throws IOException
 	 *             If an input error occurs.
 	 */
-	private static byte[] readBytes(int bytes, FileChannel in) throws IOException {
+	public static byte[] readBytes(FileChannel in, long pos, int bytes) throws IOException {
 		ByteBuffer chunk = ByteBuffer.allocate(bytes);
-		int bytesread = 0;
-		if ((bytesread = in.read(chunk)) != bytes) {
-			System.err.println(new StringBuilder().append("Read only ").append(bytesread).append(" Bytes instead of ").append(bytes).toString());
+		while (chunk.hasRemaining()) {
+			if (in.read(chunk, pos + chunk.position()) < 0) {
+				System.err.println(new StringBuilder().append("Read only ").append(chunk.position()).append(" Bytes instead of ").append(bytes).toString());
+				break;
+			}
 		}
 		return chunk.array();
 	}
@@ -79,7 +79,7 @@ abstract public class MDFSorter {
 					return;
 				case "check":
 					var structchk = ArgumentStruct.parseArgsCheck(args);
-					checkForProblems(structchk.inputname, structchk.maxblocksize, structchk.unzip);
+					checkForProblems(structchk);
 					return;
 				case "process":
 					setUpLogging();
@@ -193,7 +193,7 @@ abstract public class MDFSorter {
 		bufstream = new FileInputStream(struct.inputname);
 		log.log(Level.INFO, "File opened.");
 		// 1. Parse file and get Content-Struct
-		MDFFileContent<? extends MDFGenBlock> con = MDFParser.serializeFile(bufstream.getChannel());
+		MDFFileContent<? extends MDFGenBlock> con = MDFParser.serializeFile(bufstream.getChannel(), struct.parsethreads);
 
 		// 2. Check for Problems.
 		boolean ret = false;
@@ -201,6 +201,9 @@ abstract public class MDFSorter {
 			@SuppressWarnings("unchecked")
 			var pw = new MDF4ProcessWriter((MDFFileContent<MDF4GenBlock>) con, struct);
 			ret = pw.checkProblems();
+			if (!struct.unzip) {
+				log.info(struct.describeZipPolicy());
+			}
 		} else {
 			@SuppressWarnings("unchecked")
 			var pw = new MDF3ProcessWriter((MDFFileContent<MDF3GenBlock>) con, struct);
@@ -234,7 +237,7 @@ abstract public class MDFSorter {
 			bufstream = new FileInputStream(struct.inputname);
 			log.log(Level.INFO, "File opened.");
 			// 1. Parse file and get Content-Struct
-			MDFFileContent<? extends MDFGenBlock> con = MDFParser.serializeFile(bufstream.getChannel());
+			MDFFileContent<? extends MDFGenBlock> con = MDFParser.serializeFile(bufstream.getChannel(), struct.parsethreads);
 
 			// 2. Init processing and write out
 			@SuppressWarnings("rawtypes")
@@ -304,16 +307,27 @@ abstract public class MDFSorter {
 		System.out.println("\t\t-unzip: Unzip all Data found.");
 		System.out
 				.println("\t\t-maxblocksize=<Value>: Maximum size of a DataBlock. \n\t\te.g. \"200M\", \"3K\", \"1G\"");
+		System.out.println("\t\t-writebuffer=<Value>: Amount of data buffered for the\n\t\twrite thread. Default: \"4M\"");
+		System.out.println("\t\t-parallel=<Value>: Number of threads solving problem\n\t\tsections of MDF4 files in parallel. Default: 0 (off)");
+		System.out.println("\t\t-parsethreads=<Value>: Number of threads decoding the\n\t\tblocks of the input file. Default: 1 (off)");
+		System.out.println("\t\t-transferthreshold=<Value>: Records and unzipped blocks\n\t\tof this size are copied without reading them. Default: \"64K\"");
+		System.out.println("\t\t-zipthreads=<Value>: Number of threads compressing\n\t\tand inflating zipped blocks. Default: Number of processors");
+		System.out.println("\t\t-zipbuffer=<Value>: Amount of data in flight for\n\t\tcompression. Default: \"64M\"");
+		System.out.println("\t\t-zipmode=<Value>: deflate, transpose or auto.\n\t\tDefault: deflate");
+		System.out.println("\t\t-ziplevel=<Value>: Deflate level (0-9).\n\t\tDefault: 6");
+		System.out.println("\t\t-zipstrategy=<Value>: default, filtered or huffman.\n\t\tDefault: default");
+		System.out.println("\t\t-zipthreshold=<Value>: Blocks compressing to more than\n\t\tValue percent are not zipped. Default: 90");
 		System.out.println("\tExample: process infile.mf4 outfile.mf4 -maxblocksize=20m -zip");
 		System.out.println("\"check\":");
 		System.out.println(
-				"\tCheck if processing an MDF4 file for usage with an ASAM ODS Server\n\tis necessary. This call requires the following parameters:\n\t <inputfile> [<maxblocksize>] [<zipflag>]");
+				"\tCheck if processing an MDF4 file for usage with an ASAM ODS Server\n\tis necessary. This call requires the following parameters:\n\t <inputfile> [<maxblocksize>] [<zipflag>] [<flags>]");
 		System.out.println("\tInputfile: The MDF4-File to process");
 		System.out
 				.println("\t\t-maxblocksize=<Value>: Maximum size of a DataBlock. \n\t\te.g. \"200M\", \"3K\", \"1G\"");
 		System.out.println(
 				"\tzipflag: \"-zip\" or \"-unzip\", zip if all data will be zipped,\n\t\tunzipped if all data block will be unzipped.");
-		System.out.println("\tExample: check infile.mf4 4M -zip");
+		System.out.println("\tFlags: The zip flags of \"process\", e.g. -zipmode=<Value>.");
+		System.out.println("\tExample: check infile.mf4 4M -zip -zipmode=auto");
 		System.out.println("\"help\":");
 		System.out.println("\tPrint this info.");
 	}
@@ -0,0 +1,153 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+
+/**
+ * An input file mapped into memory. Data providers read data blocks from the
+ * mapping instead of reading from the FileChannel, and
+ * return slices of the mapping instead of copies where possible. The input is
+ * mapped by the ProcessWriter while a file is processed, and released when it
+ * is done.
+ *
+ * The file is mapped in chunks of 1GB, because a single MappedByteBuffer is
+ * limited to 2GB. Each chunk also maps the first MB of the next chunk, so
+ * slices up to this length are always available.
+ *
+ * @see org.eclipse.mdm.mdfsorter.mdf4.MDF4DataProvider
+ * @see org.eclipse.mdm.mdfsorter.mdf3.MDF3DataProvider
+ */
+public class MappedInput implements AutoCloseable {
+
+	/**
+	 * Distance between the starts of two chunks.
+	 */
+	static final long CHUNKSIZE = 1L << 30; // 1GB
+
+	/**
+	 * Number of bytes each chunk overlaps with the next one.
+	 */
+	static final int OVERLAP = 1 << 20; // 1MB
+
+	/**
+	 * The mapped chunks, null once the mapping is released.
+	 */
+	private MappedByteBuffer[] chunks;
+
+	/**
+	 * Size of the file, when it was mapped.
+	 */
+	private final long size;
+
+	private MappedInput(FileChannel reader) throws IOException {
+		size = reader.size();
+		int count = (int) ((size + CHUNKSIZE - 1) / CHUNKSIZE);
+		chunks = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i++) {
+			long start = i * CHUNKSIZE;
+			long length = Math.min(size - start, CHUNKSIZE + OVERLAP);
+			chunks[i] = reader.map(FileChannel.MapMode.READ_ONLY, start, length);
+		}
+	}
+
+	/**
+	 * Maps an input file. The mapping is released with close().
+	 *
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @return The mapping, or null if the file cannot be mapped.
+	 */
+	public static MappedInput map(FileChannel reader) {
+		if (reader == null) {
+			return null;
+		}
+		try {
+			return new MappedInput(reader);
+		} catch (IOException | UnsupportedOperationException e) {
+			MDFSorter.log.log(Level.FINE, new StringBuilder().append("Input file cannot be mapped, using channel reads. (").append(e.getMessage()).append(")").toString());
+			return null;
+		}
+	}
+
+	/**
+	 * Returns a slice of the mapped file. The slice is read-only and must not
+	 * be modified.
+	 *
+	 * @param pos
+	 *            Position in the file.
+	 * @param length
+	 *            Length of the slice.
+	 * @return A ByteBuffer with position 0 and limit <code>length</code>, or
+	 *         null if the range is not available in a single chunk, or the
+	 *         mapping is released.
+	 */
+	public ByteBuffer slice(long pos, int length) {
+		var mapped = chunks;
+		if (mapped == null || pos < 0 || pos >= size || pos + length > size) {
+			return null;
+		}
+		var chunk = mapped[(int) (pos / CHUNKSIZE)];
+		int off = (int) (pos % CHUNKSIZE);
+		if (off + length > chunk.capacity()) {
+			return null;
+		}
+		ByteBuffer ret = chunk.duplicate();
+		ret.position(off);
+		ret.limit(off + length);
+		return ret.slice();
+	}
+
+	/**
+	 * Copies data from the mapped file into <code>data</code>, until it is
+	 * full.
+	 *
+	 * @param pos
+	 *            Position in the file.
+	 * @param data
+	 *            The ByteBuffer to read in.
+	 * @return False, if the range is not mapped. Nothing is read then.
+	 */
+	public boolean read(long pos, ByteBuffer data) {
+		var mapped = chunks;
+		if (mapped == null || pos < 0 || pos + data.remaining() > size) {
+			return false;
+		}
+		while (data.hasRemaining()) {
+			var chunk = mapped[(int) (pos / CHUNKSIZE)].duplicate();
+			int off = (int) (pos % CHUNKSIZE);
+			int len = (int) Math.min(data.remaining(), CHUNKSIZE - off);
+			chunk.position(off);
+			chunk.limit(off + len);
+			data.put(chunk);
+			pos += len;
+		}
+		return true;
+	}
+
+	/**
+	 * Releases the mapping. Reads and slices are not available afterwards,
+	 * the chunks are unmapped once slices handed out are no longer used.
+	 */
+	@Override
+	public void close() {
+		chunks = null;
+	}
+}
@@ -17,51 +17,294 @@ package org.eclipse.mdm.mdfsorter;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.DataFormatException;
 
+/**
+ * Cache for small reads from a data provider. The returned ByteBuffer is the
+ * cache itself, so a ReadDataCache belongs to a single provider and must only
+ * be used by the thread, which uses this provider.
+ *
+ * The window of the cache adapts to the reads: It grows while the section is
+ * read forward, and falls back to its minimum size if reads jump around. Reads
+ * of up to MAXWINDOW bytes are served from the cache. While the section is read
+ * forward, the next window is read ahead on a background thread into a second
+ * buffer, while the current one is consumed. The cache has to be closed, before
+ * its provider is used elsewhere.
+ */
 public class ReadDataCache {
+
+	/**
+	 * Minimum and maximum size of the window.
+	 */
+	public static final int MINWINDOW = 64 * 1024; // 64k
+	public static final int MAXWINDOW = 4 * 1024 * 1024; // 4MB
+
+	/**
+	 * Threads reading ahead, shared by all caches. Each cache has at most one
+	 * pending read.
+	 */
+	private static final ExecutorService readahead = Executors.newCachedThreadPool(r -> {
+		var t = new Thread(r, "Read-ahead");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final AbstractDataProvider prov;
+	private final long maxreadlen;
+
+	/**
+	 * Size of the next window that is read.
+	 */
+	private int windowsize = MINWINDOW;
+
+	/**
+	 * The current window, and the next one, which may still be read by the
+	 * pending read.
+	 */
 	private ByteBuffer cache;
 	private long cachestart = -1;
-	private long cacheend;
-	private final int CACHESIZE = 65536; // 64k
-	private AbstractDataProvider prov;
-	private long maxreadlen;
+	private long cacheend = -1;
+	private ByteBuffer next;
+	private long nextstart = -1;
+	private long nextend = -1;
+	private Future<?> pending;
+
+	/**
+	 * End of the last read, to detect forward reads.
+	 */
+	private long lastend = 0;
+
+	/**
+	 * Statistics.
+	 */
+	private long hits;
+	private long misses;
+	private long readaheadhits;
+	private long bytesread;
 
 	public ReadDataCache(AbstractDataProvider prov) {
-		cache = ByteBuffer.allocate(CACHESIZE);
 		this.prov = prov;
 		maxreadlen = prov.getLength();
 	}
 
+	/**
+	 * Returns a ByteBuffer with position at startoffset, where at least
+	 * <code>length</code> bytes can be read from. All bytes up to the limit
+	 * are valid data of the section. The buffer is only valid until the next
+	 * read.
+	 *
+	 * @param startoffset
+	 *            The place in the data section, where the read should start.
+	 * @param length
+	 *            The length to read.
+	 * @return The ByteBuffer to read from.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
 	public ByteBuffer read(long startoffset, int length) throws IOException, DataFormatException {
-		if (length < CACHESIZE) {
-			if (startoffset >= cachestart && startoffset + length < cacheend) {
-				// cache hit!
-				cache.position((int) (startoffset - cachestart));
-				return cache;
-			} else {
-				// cache miss.
-				cache.rewind();
-				cachestart = startoffset;
-				cacheend = startoffset + CACHESIZE;
-				if (cacheend > maxreadlen) {
-					// maximum reached.
-					cacheend = maxreadlen;
-					cache = ByteBuffer.allocate((int) (maxreadlen - startoffset));
-					if (maxreadlen - startoffset < length) {
-						throw new RuntimeException(new StringBuilder().append("Length ").append(length).append(" Bytes are not available from ").append(startoffset).toString());
-					}
-				} else if (cache.capacity() < CACHESIZE) {
-					cache = ByteBuffer.allocate(CACHESIZE);
-				}
-				prov.read(cachestart, cache);
-				return cache;
-			}
-		} else {
+		if (startoffset + length > maxreadlen) {
+			throw new RuntimeException(new StringBuilder().append("Length ").append(length).append(" Bytes are not available from ").append(startoffset).toString());
+		}
+		boolean forward = startoffset >= lastend && startoffset - lastend < windowsize;
+		lastend = startoffset + length;
+
+		if (startoffset >= cachestart && startoffset + length <= cacheend) {
+			// cache hit!
+			hits++;
+			return position(startoffset);
+		}
+		awaitReadAhead();
+		if (length > MAXWINDOW) {
 			// cache is useless anyway...
+			misses++;
+			bytesread += length;
 			ByteBuffer data = ByteBuffer.allocate(length);
 			prov.read(startoffset, data);
 			return data;
 		}
+
+		if (startoffset >= nextstart && startoffset + length <= nextend) {
+			// the next window was read ahead.
+			readaheadhits++;
+			swap();
+			return position(startoffset);
+		}
+		if (startoffset >= cachestart && startoffset < cacheend && nextstart == cacheend
+				&& startoffset + length <= nextend) {
+			// the read spans both windows.
+			readaheadhits++;
+			int first = (int) (cacheend - startoffset);
+			ByteBuffer data = ByteBuffer.allocate(length);
+			data.put(cache.array(), (int) (startoffset - cachestart), first);
+			data.put(next.array(), 0, length - first);
+			data.flip();
+			swap();
+			return data;
+		}
+
+		// cache miss.
+		misses++;
+		if (forward) {
+			windowsize = Math.min(2 * windowsize, MAXWINDOW);
+		} else {
+			windowsize = MINWINDOW;
+		}
+		while (windowsize < length) {
+			windowsize *= 2;
+		}
+		if (cache == null || cache.capacity() < windowsize) {
+			cache = ByteBuffer.allocate(windowsize);
+		}
+		cachestart = startoffset;
+		cacheend = Math.min(startoffset + windowsize, maxreadlen);
+		nextstart = -1;
+		nextend = -1;
+		bytesread += cacheend - cachestart;
+		load(cache, cachestart, cacheend);
+		if (forward) {
+			startReadAhead();
+		}
+		return position(startoffset);
+	}
+
+	/**
+	 * @return Number of reads served from the current window.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return Number of reads, which had to wait for a new window.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return Number of reads served from a window, which was read ahead.
+	 */
+	public long getReadAheadHits() {
+		return readaheadhits;
+	}
+
+	/**
+	 * @return Number of bytes read from the provider.
+	 */
+	public long getBytesRead() {
+		return bytesread;
+	}
+
+	/**
+	 * @return Current size of the window.
+	 */
+	public int getWindowSize() {
+		return windowsize;
+	}
+
+	private ByteBuffer position(long startoffset) {
+		cache.limit((int) (cacheend - cachestart));
+		cache.position((int) (startoffset - cachestart));
+		return cache;
+	}
+
+	/**
+	 * Makes the next window the current one, and reads the window after it.
+	 */
+	private void swap() {
+		var tmp = cache;
+		cache = next;
+		next = tmp;
+		cachestart = nextstart;
+		cacheend = nextend;
+		nextstart = -1;
+		nextend = -1;
+		windowsize = Math.min(2 * windowsize, MAXWINDOW);
+		startReadAhead();
+	}
+
+	private void startReadAhead() {
+		if (cacheend >= maxreadlen) {
+			return;
+		}
+		if (next == null || next.capacity() < windowsize) {
+			next = ByteBuffer.allocate(windowsize);
+		}
+		long start = cacheend;
+		long end = Math.min(start + windowsize, maxreadlen);
+		ByteBuffer target = next;
+		nextstart = start;
+		nextend = end;
+		bytesread += end - start;
+		pending = readahead.submit(() -> {
+			load(target, start, end);
+			return null;
+		});
+	}
+
+	/**
+	 * Waits for the pending read. If it failed, the next window is dropped,
+	 * and the error occurs again if its data is read.
+	 */
+	private void awaitReadAhead() {
+		if (pending == null) {
+			return;
+		}
+		try {
+			pending.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!");
+		} catch (ExecutionException e) {
+			nextstart = -1;
+			nextend = -1;
+		}
+		pending = null;
+	}
+
+	/**
+	 * Waits for the pending read, so the provider is no longer used by the
+	 * read-ahead thread. The pending read is not interrupted, since this would
+	 * close the FileChannel of the provider. Must be called before the
+	 * provider is used by another thread, or by another cache.
+	 */
+	public void close() {
+		if (pending == null) {
+			return;
+		}
+		boolean interrupted = false;
+		while (true) {
+			try {
+				pending.get();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) {
+				// the window is not used anymore.
+				break;
+			}
+		}
+		pending = null;
+		nextstart = -1;
+		nextend = -1;
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the data from start to end into the start of buf.
+	 */
+	private void load(ByteBuffer buf, long start, long end) throws IOException, DataFormatException {
+		int length = (int) (end - start);
+		ByteBuffer part = buf.duplicate();
+		part.clear().limit(length);
+		// the provider fills the whole capacity of a buffer.
+		prov.read(start, part.slice());
 	}
 }
@@ -0,0 +1,220 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A thread to read sections of the input file into a DataBlockBuffer, ahead of
+ * the process thread. This is the counterpart of the WriteWorker: disk reads,
+ * processing and disk writes overlap in time.
+ *
+ * The sections are planned in advance, e.g. the data blocks of a list in list
+ * order. The process thread reads them as one stream through the
+ * ReadableByteChannel interface, in the same order. Sections are read in chunks
+ * of CHUNKSIZE bytes, so the capacity of the buffer limits, how far the worker
+ * reads ahead.
+ *
+ * @see WriteWorker
+ */
+public class ReadWorker implements Runnable, ReadableByteChannel {
+
+	/**
+	 * Size of the chunks passed through the buffer.
+	 */
+	public static final int CHUNKSIZE = 256 * 1024; // 256k
+
+	private final FileChannel reader;
+	private final MappedInput mapped;
+
+	/**
+	 * Positions in the input file and lengths of the sections.
+	 */
+	private final long[] positions;
+	private final long[] lengths;
+
+	private final DataBlockBuffer buf;
+	private final BufferPool pool;
+
+	/**
+	 * Set by the process thread, if no more data is needed.
+	 */
+	private volatile boolean stopped = false;
+
+	/**
+	 * Error of the worker, rethrown to the process thread.
+	 */
+	private volatile Exception error;
+
+	/**
+	 * The chunk the process thread currently reads from.
+	 */
+	private DataSection current;
+	private ByteBuffer chunk;
+
+	private Thread thread;
+
+	/**
+	 * Constructor. Set parameters.
+	 *
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param positions
+	 *            Start of each section in the input file.
+	 * @param lengths
+	 *            Length of each section.
+	 */
+	public ReadWorker(FileChannel reader, long[] positions, long[] lengths) {
+		this(reader, null, positions, lengths);
+	}
+
+	/**
+	 * Constructor. Set parameters.
+	 *
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param mapped
+	 *            The mapped input file, or null.
+	 * @param positions
+	 *            Start of each section in the input file.
+	 * @param lengths
+	 *            Length of each section.
+	 */
+	public ReadWorker(FileChannel reader, MappedInput mapped, long[] positions, long[] lengths) {
+		this.reader = reader;
+		this.mapped = mapped;
+		this.positions = positions;
+		this.lengths = lengths;
+		buf = new DataBlockBuffer();
+		pool = new BufferPool(CHUNKSIZE, (int) (buf.getCapacity() / CHUNKSIZE) + 2);
+	}
+
+	/**
+	 * Starts the thread of this worker.
+	 *
+	 * @return This worker.
+	 */
+	public ReadWorker start() {
+		thread = new Thread(this, "Read worker");
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	/*
+	 * Reads all sections, chunk by chunk, until all are read or the process
+	 * thread stops reading.
+	 *
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+		try {
+			for (int i = 0; i < positions.length && !stopped; i++) {
+				long pos = positions[i];
+				long left = lengths[i];
+				while (left > 0 && !stopped) {
+					int len = (int) Math.min(left, CHUNKSIZE);
+					byte[] data = pool.take();
+					ByteBuffer target = ByteBuffer.wrap(data, 0, len);
+					if (mapped == null || !mapped.read(pos, target)) {
+						while (target.hasRemaining()) {
+							if (reader.read(target, pos + target.position()) < 0) {
+								throw new IOException(new StringBuilder().append("Unexpected end of input file at position ").append(pos + target.position()).toString());
+							}
+						}
+					}
+					buf.putData(new DataSection(data, len, pool));
+					pos += len;
+					left -= len;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			error = e;
+		} finally {
+			buf.close();
+		}
+	}
+
+	/*
+	 * Reads the next bytes of the sections. Blocks until the worker has read
+	 * them.
+	 *
+	 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		int ret = 0;
+		while (dst.hasRemaining()) {
+			if (chunk == null || !chunk.hasRemaining()) {
+				if (current != null) {
+					current.release();
+					current = null;
+				}
+				current = buf.getData();
+				if (current == null) {
+					if (error != null) {
+						throw new IOException("Reading ahead failed.", error);
+					}
+					return ret == 0 ? -1 : ret;
+				}
+				chunk = current.getBuffers()[0];
+			}
+			int n = Math.min(dst.remaining(), chunk.remaining());
+			dst.put(chunk.array(), chunk.arrayOffset() + chunk.position(), n);
+			chunk.position(chunk.position() + n);
+			ret += n;
+		}
+		return ret;
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !stopped;
+	}
+
+	/*
+	 * Stops the worker, and discards all chunks it has read ahead.
+	 *
+	 * @see java.nio.channels.Channel#close()
+	 */
+	@Override
+	public void close() {
+		stopped = true;
+		if (current != null) {
+			current.release();
+			current = null;
+		}
+		chunk = null;
+		if (thread == null) {
+			return;
+		}
+		DataSection section;
+		while ((section = buf.getData()) != null) {
+			section.release();
+		}
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!");
+		}
+		MDFSorter.log.finest(new StringBuilder().append("Read worker stalled ").append(buf.getProducerStalls()).append(" times on a full buffer, process thread waited ")
+				.append(buf.getConsumerStallNanos() / 1_000_000L).append(" ms.").toString());
+	}
+}
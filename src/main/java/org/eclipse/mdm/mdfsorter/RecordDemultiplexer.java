@@ -0,0 +1,817 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+
+/**
+ * Splits the records of an unsorted data section by their record id, in one
+ * sequential pass over the section. The section is read through a
+ * ReadDataCache, which reads ahead while records are split. The records of each group are appended to
+ * a stream of their own, without their record ids. Therefore each stream
+ * contains the data section of its group, once the data group is sorted.
+ *
+ * Streams are kept in memory, until all streams together exceed the memory
+ * budget. The largest stream is then spilled to a temporary file, so a few
+ * large streams (e.g. of VLSD groups) are spilled, while small groups stay in
+ * memory. Records of groups with variable length (VLSD) keep their leading 4
+ * Byte length, so each VLSD stream is the content of the SD block of its
+ * channel.
+ *
+ * Apart from the streams, only a counter is kept for each group, no index of
+ * the records. Memory use does not depend on the number of records, and groups
+ * may have more than 2^31 records. Record ids are decoded directly from the
+ * window and looked up in primitive tables, nothing is allocated per record.
+ *
+ * If no directory for temporary files is given, records are only counted.
+ *
+ * Records, which are at least as large as the transfer threshold (e.g. VLSD
+ * records of camera frames), are not copied to the streams, if they are stored
+ * unzipped in one block of the input file. Their streams only keep their
+ * position in the input file, and pass them on as transfers (see
+ * GroupChannel.transfer), so they are never read to the heap.
+ */
+public class RecordDemultiplexer implements AutoCloseable {
+
+	/**
+	 * Default memory budget for all streams.
+	 */
+	public static final long DEFAULT_BUDGET = 64L * 1024L * 1024L; // 64MB
+
+	/**
+	 * Size of the write buffer of a spilled stream.
+	 */
+	private static final int SPILLBUFFERSIZE = 64 * 1024; // 64k
+
+	/**
+	 * Largest stream kept in memory, limited by the maximum array size.
+	 */
+	private static final long MAX_MEMORYSTREAM = Integer.MAX_VALUE - 8;
+
+	/**
+	 * Record ids below this limit are looked up in a dense table.
+	 */
+	private static final long DENSE_LIMIT = 65536;
+
+	/**
+	 * Size of the record ids in bytes.
+	 */
+	private final int idSize;
+
+	/**
+	 * Index of each group by its record id, -1 for unknown ids. Null, if a
+	 * record id is too large for a dense table (e.g. 8 Byte ids).
+	 */
+	private final int[] dense;
+
+	/**
+	 * Open addressing hash table of record ids, and the index of their group
+	 * (-1 for free slots), if there is no dense table.
+	 */
+	private final long[] sparseids;
+	private final int[] sparseindices;
+	private final int sparseshift;
+
+	/**
+	 * Length of the records of each group, without record id. -1 for VLSD
+	 * groups.
+	 */
+	private final long[] sizes;
+
+	/**
+	 * Number of records found of each group.
+	 */
+	private final long[] counts;
+
+	/**
+	 * Stream of each group, null if records are only counted.
+	 */
+	private final GroupStream[] streams;
+
+	/**
+	 * Directory of the temporary files.
+	 */
+	private final Path directory;
+
+	/**
+	 * Number of bytes all streams may keep in memory, and the number of bytes
+	 * they keep.
+	 */
+	private final long budget;
+	private long memory = 0;
+
+	/**
+	 * True, if the record id is repeated after each record (MDF3).
+	 */
+	private boolean redundantids = false;
+
+	/**
+	 * True, if a record id of 0 marks the end of the recorded data (MDF3).
+	 */
+	private boolean trimmissing = false;
+
+	/**
+	 * The window of the read cache records are read from. windowbase is the
+	 * offset in the section of the start of the window.
+	 */
+	private ByteBuffer window;
+	private long windowbase;
+
+	private AbstractDataProvider prov;
+	private ReadDataCache cache;
+
+	/**
+	 * The input file large records are referenced in, or null if all records
+	 * are copied.
+	 */
+	private FileChannel input;
+
+	/**
+	 * Records of at least this length are referenced in the input file.
+	 */
+	private long transferthreshold = Long.MAX_VALUE;
+
+	/**
+	 * Number of bytes referenced in the input file.
+	 */
+	private long referenced = 0;
+
+	/**
+	 * Create a new demultiplexer.
+	 *
+	 * @param idSize
+	 *            Size of the record ids in bytes.
+	 * @param recordids
+	 *            The record id of each group.
+	 * @param recordsizes
+	 *            The length of the records of each group, without record id.
+	 *            -1 for VLSD groups.
+	 * @param directory
+	 *            Directory for temporary files. If null, records are only
+	 *            counted.
+	 * @param budget
+	 *            Memory budget for all streams.
+	 */
+	public RecordDemultiplexer(int idSize, long[] recordids, long[] recordsizes, Path directory, long budget) {
+		this.idSize = idSize;
+		long maxid = 0;
+		for (long id : recordids) {
+			if (id < 0 || id >= DENSE_LIMIT) {
+				// unsigned 8 Byte id, or too large
+				maxid = DENSE_LIMIT;
+				break;
+			}
+			maxid = Math.max(maxid, id);
+		}
+		if (maxid < DENSE_LIMIT) {
+			dense = new int[(int) maxid + 1];
+			Arrays.fill(dense, -1);
+			for (int i = 0; i < recordids.length; i++) {
+				dense[(int) recordids[i]] = i;
+			}
+			sparseids = null;
+			sparseindices = null;
+			sparseshift = 0;
+		} else {
+			dense = null;
+			// at most half of the slots are used.
+			int bits = 64 - Long.numberOfLeadingZeros(2L * recordids.length);
+			sparseshift = 64 - bits;
+			sparseids = new long[1 << bits];
+			sparseindices = new int[1 << bits];
+			Arrays.fill(sparseindices, -1);
+			for (int i = 0; i < recordids.length; i++) {
+				int slot = slot(recordids[i]);
+				while (sparseindices[slot] >= 0 && sparseids[slot] != recordids[i]) {
+					slot = (slot + 1) & (sparseids.length - 1);
+				}
+				sparseids[slot] = recordids[i];
+				sparseindices[slot] = i;
+			}
+		}
+		sizes = recordsizes;
+		counts = new long[recordids.length];
+		this.directory = directory;
+		this.budget = budget;
+		if (directory != null) {
+			streams = new GroupStream[recordids.length];
+			for (int i = 0; i < streams.length; i++) {
+				streams[i] = new GroupStream();
+			}
+		} else {
+			streams = null;
+		}
+	}
+
+	/**
+	 * Sets if the record id is repeated after each record, as in MDF3 files
+	 * with two record ids.
+	 *
+	 * @param redundantids
+	 *            True, if records end with their id.
+	 */
+	public void setRedundantIds(boolean redundantids) {
+		this.redundantids = redundantids;
+	}
+
+	/**
+	 * Sets if a record id of 0 ends the data section. Missing records are
+	 * then cut off, and the counts are lower than expected. A record, which
+	 * exceeds the end of the section, is cut off as well.
+	 *
+	 * @param trimmissing
+	 *            True, if an id of 0 ends the section.
+	 */
+	public void setTrimMissing(boolean trimmissing) {
+		this.trimmissing = trimmissing;
+	}
+
+	/**
+	 * Sets the input file, in which large records are referenced, instead of
+	 * copying them to the streams.
+	 *
+	 * @param input
+	 *            FileChannel to the input file.
+	 * @param threshold
+	 *            Records (or the data of VLSD records) of at least this length
+	 *            are referenced.
+	 */
+	public void setTransfers(FileChannel input, long threshold) {
+		this.input = input;
+		transferthreshold = threshold;
+	}
+
+	/**
+	 * Reads the records of a data section, and appends them to the streams
+	 * of their groups.
+	 *
+	 * @param prov
+	 *            Provider of the data section.
+	 * @param totalrecords
+	 *            The number of records to read.
+	 * @return The number of records found.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	public long demux(AbstractDataProvider prov, long totalrecords) throws IOException, DataFormatException {
+		this.prov = prov;
+		cache = new ReadDataCache(prov);
+		window = ByteBuffer.allocate(0);
+		windowbase = 0;
+		long found = 0;
+		try {
+			while (found < totalrecords) {
+				if (!fill(idSize)) {
+					MDFSorter.log.warning(new StringBuilder().append("Data section ended after ").append(found).append(" of ").append(totalrecords).append(" records.").toString());
+					break;
+				}
+				long id = readId();
+				int idx = indexOf(id);
+				if (idx < 0) {
+					if (id == 0 && trimmissing) {
+						MDFSorter.log.info("Record ID '0' found => cutting off missing records," + " since those are not recoverable.");
+						break;
+					}
+					throw new RuntimeException(new StringBuilder().append("Record ID '").append(id).append("' does not exist, file may be corrupt.").toString());
+				}
+				GroupStream out = streams == null ? null : streams[idx];
+				long length = sizes[idx];
+				if (trimmissing && !isComplete(length)) {
+					// the section is cut off within the last record.
+					MDFSorter.log.warning(new StringBuilder().append("Data section ended within record ").append(found + 1).append(" of ").append(totalrecords).append(", cutting it off.").toString());
+					break;
+				}
+				if (length < 0) {
+					// VLSD record, the length is kept in the stream.
+					if (!fill(4)) {
+						throw new IOException("Unexpected end of data section.");
+					}
+					length = readLength();
+					copy(4, out);
+				}
+				append(length, out);
+				if (redundantids) {
+					if (!fill(idSize)) {
+						throw new IOException("Unexpected end of data section.");
+					}
+					long endid = readId();
+					if (endid != id) {
+						MDFSorter.log.warning(new StringBuilder().append("Found ID ").append(id).append(" at start of records, but ID ").append(endid).append(" at its end.").toString());
+					}
+				}
+				counts[idx]++;
+				found++;
+			}
+		} finally {
+			// the read-ahead must not use the provider after it is returned.
+			cache.close();
+		}
+		MDFSorter.log.fine(new StringBuilder().append("Found ").append(found).append(" Records.").toString());
+		MDFSorter.log.log(Level.FINE, new StringBuilder().append("Read cache: ").append(cache.getHits()).append(" hits, ").append(cache.getReadAheadHits()).append(" read ahead, ")
+				.append(cache.getMisses()).append(" misses, ").append(cache.getBytesRead() / 1024L).append(" kB read, window ").append(cache.getWindowSize() / 1024).append(" kB, ").append(referenced / 1024L).append(" kB referenced in the input file.").toString());
+		this.prov = null;
+		cache = null;
+		window = null;
+		return found;
+	}
+
+	/**
+	 * @param idx
+	 *            Index of the group.
+	 * @return The number of records found.
+	 */
+	public long getCount(int idx) {
+		return counts[idx];
+	}
+
+	/**
+	 * @param idx
+	 *            Index of the group.
+	 * @return The length of the stream of a group.
+	 */
+	public long getLength(int idx) {
+		return streams[idx].length;
+	}
+
+	/**
+	 * @return Number of bytes in temporary files.
+	 */
+	public long getSpilledBytes() {
+		long ret = 0;
+		if (streams != null) {
+			for (GroupStream s : streams) {
+				if (s.file != null) {
+					ret += s.stored;
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Moves all streams, which are kept in memory, to temporary files. Frees
+	 * the memory of a demultiplexer, whose streams are read later.
+	 *
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	public void spill() throws IOException {
+		if (streams != null) {
+			for (GroupStream s : streams) {
+				if (s.file == null && s.stored > 0) {
+					s.spill();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Opens the stream of a group, to read it from the start. The channel has
+	 * to be closed by the caller.
+	 *
+	 * @param idx
+	 *            Index of the group.
+	 * @return A channel to read the stream.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	public GroupChannel open(int idx) throws IOException {
+		return new GroupChannel(streams[idx]);
+	}
+
+	/*
+	 * Deletes all temporary files.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (streams != null) {
+			for (GroupStream s : streams) {
+				s.delete();
+			}
+		}
+	}
+
+	/**
+	 * Makes at least <code>n</code> bytes available in the window, moving it
+	 * to the next part of the section if needed.
+	 *
+	 * @return False, if the section ends before.
+	 */
+	private boolean fill(int n) throws IOException, DataFormatException {
+		if (window.remaining() >= n) {
+			return true;
+		}
+		long start = windowbase + window.position();
+		if (start + n > prov.getLength()) {
+			return false;
+		}
+		window = cache.read(start, n);
+		windowbase = start - window.position();
+		return true;
+	}
+
+	/**
+	 * Checks if the record at the current position, whose id has been read,
+	 * is completely contained in the data section.
+	 *
+	 * @param length
+	 *            Length of the record, or a negative value for a VLSD record.
+	 */
+	private boolean isComplete(long length) throws IOException, DataFormatException {
+		long needed = redundantids ? idSize : 0;
+		if (length < 0) {
+			if (!fill(4)) {
+				return false;
+			}
+			needed += 4 + readLength();
+		} else {
+			needed += length;
+		}
+		return needed <= prov.getLength() - windowbase - window.position();
+	}
+
+	/**
+	 * Reads a little endian record id from the window.
+	 */
+	private long readId() {
+		byte[] arr = window.array();
+		int pos = window.arrayOffset() + window.position();
+		window.position(window.position() + idSize);
+		switch (idSize) {
+		case 1:
+			return arr[pos] & 0xFFL;
+		case 2:
+			return arr[pos] & 0xFFL | (arr[pos + 1] & 0xFFL) << 8;
+		default:
+			long ret = 0;
+			for (int i = 0; i < idSize; i++) {
+				ret |= (arr[pos + i] & 0xFFL) << (8 * i);
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Reads the little endian length of a VLSD record from the window,
+	 * without moving the window.
+	 */
+	private long readLength() {
+		byte[] arr = window.array();
+		int pos = window.arrayOffset() + window.position();
+		return (arr[pos] & 0xFFL) | (arr[pos + 1] & 0xFFL) << 8 | (arr[pos + 2] & 0xFFL) << 16 | (arr[pos + 3] & 0xFFL) << 24;
+	}
+
+	/**
+	 * @return The index of the group of a record id, or -1 if it is unknown.
+	 */
+	private int indexOf(long id) {
+		if (dense != null) {
+			return id >= 0 && id < dense.length ? dense[(int) id] : -1;
+		}
+		int slot = slot(id);
+		while (sparseindices[slot] >= 0) {
+			if (sparseids[slot] == id) {
+				return sparseindices[slot];
+			}
+			slot = (slot + 1) & (sparseids.length - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The first slot of a record id in the hash table.
+	 */
+	private int slot(long id) {
+		return (int) ((id * 0x9E3779B97F4A7C15L) >>> sparseshift);
+	}
+
+	/**
+	 * Appends the next <code>length</code> bytes of the section to a stream.
+	 * Large records are only referenced, if they are stored in the input file
+	 * as they are.
+	 */
+	private void append(long length, GroupStream out) throws IOException, DataFormatException {
+		if (out != null && input != null && length >= transferthreshold) {
+			long offset = windowbase + window.position();
+			long pos = prov.getFilePosition(offset, length);
+			if (pos >= 0) {
+				out.reference(pos, length);
+				referenced += length;
+				// move on without reading the record.
+				if (offset + length <= windowbase + window.limit()) {
+					window.position((int) (offset + length - windowbase));
+				} else {
+					window = ByteBuffer.allocate(0);
+					windowbase = offset + length;
+				}
+				return;
+			}
+		}
+		copy(length, out);
+	}
+
+	/**
+	 * Appends the next <code>length</code> bytes of the section to a stream,
+	 * or skips them if the stream is null.
+	 */
+	private void copy(long length, GroupStream out) throws IOException, DataFormatException {
+		while (length > 0) {
+			if (!fill(1)) {
+				throw new IOException("Unexpected end of data section.");
+			}
+			int n = (int) Math.min(length, window.remaining());
+			if (out != null) {
+				out.write(window.array(), window.arrayOffset() + window.position(), n);
+			}
+			window.position(window.position() + n);
+			length -= n;
+		}
+	}
+
+	/**
+	 * Records of one group, in memory or in a temporary file.
+	 */
+	private class GroupStream {
+		/**
+		 * Length of the stream, and the number of bytes stored in memory or
+		 * in the file, without referenced records.
+		 */
+		long length = 0;
+		long stored = 0;
+
+		/**
+		 * Referenced records, three values each: Offset in the stream,
+		 * position in the input file and length. Null, if there are none.
+		 */
+		long[] refs;
+		int refcount = 0;
+
+		/**
+		 * Data, while the stream is kept in memory.
+		 */
+		byte[] data = new byte[0];
+
+		/**
+		 * Temporary file and its write buffer, once the stream is spilled.
+		 */
+		Path file;
+		FileChannel channel;
+		ByteBuffer buffer;
+
+		/**
+		 * Appends <code>n</code> bytes of <code>src</code>, starting at
+		 * <code>off</code>.
+		 */
+		void write(byte[] src, int off, int n) throws IOException {
+			if (file == null) {
+				reserve(n);
+			}
+			if (file == null) {
+				if (stored + n > data.length) {
+					// grow within the budget.
+					long size = Math.max(stored + n, Math.min(Math.max(2L * data.length, 4096L), stored + budget - memory));
+					byte[] grown = new byte[(int) Math.min(size, MAX_MEMORYSTREAM)];
+					System.arraycopy(data, 0, grown, 0, (int) stored);
+					data = grown;
+				}
+				System.arraycopy(src, off, data, (int) stored, n);
+				memory += n;
+			} else {
+				int left = n;
+				while (left > 0) {
+					int part = Math.min(left, buffer.remaining());
+					buffer.put(src, off, part);
+					off += part;
+					left -= part;
+					if (!buffer.hasRemaining()) {
+						flush();
+					}
+				}
+			}
+			length += n;
+			stored += n;
+		}
+
+		/**
+		 * Appends <code>n</code> bytes, which are read from the input file at
+		 * <code>pos</code>, when the stream is read.
+		 */
+		void reference(long pos, long n) {
+			if (refs == null) {
+				refs = new long[3 * 16];
+			} else if (3 * refcount == refs.length) {
+				refs = Arrays.copyOf(refs, 2 * refs.length);
+			}
+			refs[3 * refcount] = length;
+			refs[3 * refcount + 1] = pos;
+			refs[3 * refcount + 2] = n;
+			refcount++;
+			length += n;
+		}
+
+		/**
+		 * Makes room for <code>n</code> more bytes in memory, by spilling the
+		 * largest streams, until all streams fit in the budget. This stream
+		 * may be spilled as well.
+		 */
+		void reserve(int n) throws IOException {
+			if (stored + n > MAX_MEMORYSTREAM) {
+				spill();
+				return;
+			}
+			while (memory + n > budget) {
+				GroupStream largest = this;
+				for (GroupStream s : streams) {
+					if (s.file == null && s.stored > largest.stored) {
+						largest = s;
+					}
+				}
+				largest.spill();
+				if (largest == this) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Moves the data to a temporary file.
+		 */
+		void spill() throws IOException {
+			file = Files.createTempFile(directory, "mdfsorter", ".records");
+			channel = FileChannel.open(file, StandardOpenOption.WRITE);
+			buffer = ByteBuffer.allocate(SPILLBUFFERSIZE);
+			ByteBuffer old = ByteBuffer.wrap(data, 0, (int) stored);
+			while (old.hasRemaining()) {
+				channel.write(old);
+			}
+			memory -= stored;
+			data = null;
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		ReadableByteChannel open() throws IOException {
+			if (file == null) {
+				return Channels.newChannel(new ByteArrayInputStream(data, 0, (int) stored));
+			}
+			flush();
+			return FileChannel.open(file, StandardOpenOption.READ);
+		}
+
+		void delete() throws IOException {
+			data = null;
+			if (file != null) {
+				channel.close();
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	/**
+	 * Channel to read the stream of a group from the start. Referenced records
+	 * are read from the input file, or passed on as transfers.
+	 */
+	public class GroupChannel implements ReadableByteChannel {
+		private final GroupStream stream;
+
+		/**
+		 * Channel of the stored data.
+		 */
+		private final ReadableByteChannel data;
+
+		/**
+		 * Position in the stream, and index of the next referenced record.
+		 */
+		private long pos = 0;
+		private int ref = 0;
+
+		GroupChannel(GroupStream stream) throws IOException {
+			this.stream = stream;
+			data = stream.open();
+		}
+
+		/**
+		 * @return Number of bytes, which can be read from the stored data,
+		 *         before the next referenced record.
+		 */
+		public long getInlineLength() {
+			return (ref < stream.refcount ? stream.refs[3 * ref] : stream.length) - pos;
+		}
+
+		/**
+		 * @return Number of bytes of a referenced record at the current
+		 *         position, 0 if stored data follows.
+		 */
+		public long getTransferLength() {
+			if (ref < stream.refcount && pos >= stream.refs[3 * ref]) {
+				return stream.refs[3 * ref] + stream.refs[3 * ref + 2] - pos;
+			}
+			return 0;
+		}
+
+		/**
+		 * Passes the bytes of a referenced record at the current position on
+		 * to the output as transfer, without reading them.
+		 *
+		 * @param ps
+		 *            The ProcessWriter to write to.
+		 * @param max
+		 *            Maximum number of bytes to pass on.
+		 * @return Number of bytes passed on, 0 if stored data follows.
+		 */
+		public long transfer(MDFAbstractProcessWriter<?> ps, long max) {
+			long n = Math.min(max, getTransferLength());
+			if (n > 0) {
+				ps.performTransfer(input, stream.refs[3 * ref + 1] + pos - stream.refs[3 * ref], n);
+				skip(n);
+			}
+			return n;
+		}
+
+		private void skip(long n) {
+			pos += n;
+			if (pos == stream.refs[3 * ref] + stream.refs[3 * ref + 2]) {
+				ref++;
+			}
+		}
+
+		/*
+		 * Reads the next bytes of the stream, referenced records are read from
+		 * the input file.
+		 *
+		 * @see java.nio.channels.ReadableByteChannel#read(java.nio.ByteBuffer)
+		 */
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			int ret = 0;
+			while (dst.hasRemaining() && pos < stream.length) {
+				long transfer = getTransferLength();
+				int n = (int) Math.min(dst.remaining(), transfer > 0 ? transfer : getInlineLength());
+				ByteBuffer part = dst.duplicate();
+				part.limit(part.position() + n);
+				if (transfer > 0) {
+					long filepos = stream.refs[3 * ref + 1] + pos - stream.refs[3 * ref];
+					while (part.hasRemaining()) {
+						if (input.read(part, filepos + part.position() - dst.position()) < 0) {
+							throw new IOException("Unexpected end of input file.");
+						}
+					}
+					skip(n);
+				} else {
+					n = data.read(part);
+					if (n < 0) {
+						throw new IOException("Unexpected end of stream.");
+					}
+					pos += n;
+				}
+				dst.position(dst.position() + n);
+				ret += n;
+			}
+			return ret == 0 && dst.hasRemaining() ? -1 : ret;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return data.isOpen();
+		}
+
+		@Override
+		public void close() throws IOException {
+			data.close();
+		}
+	}
+}
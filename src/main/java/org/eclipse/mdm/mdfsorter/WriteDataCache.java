@@ -16,7 +16,7 @@
 package org.eclipse.mdm.mdfsorter;
 
 import java.nio.ByteBuffer;
-import java.util.AbstractMap;
+import java.nio.channels.FileChannel;
 
 import org.eclipse.mdm.mdfsorter.mdf4.MDF4ProcessWriter;
 
@@ -27,10 +27,28 @@ import org.eclipse.mdm.mdfsorter.mdf4.MDF4ProcessWriter;
  * Cache size should be at least as large as the process
  * writers<code>MAX_OUTPUTBLOCKSIZE</code> value, because otherwise large blocks
  * will be splitted into smaller pieces, slowing down the write operation.
+ *
+ * The cache arrays are taken from a BufferPool, the WriteWorker returns them
+ * once they are written. Large arrays and buffers, which are not reused by
+ * the caller, are passed on without copying.
+ *
+ * Sections of the input file, which are copied unchanged, are not read at all.
+ * They are collected with <code>transfer</code>, consecutive sections are
+ * merged and passed on to the WriteWorker as one transfer.
+ *
+ * If the layout of the output has been planned, the planned links are laid
+ * over all data passing through this cache (see LayoutPlan).
  */
 public class WriteDataCache {
 	private static final int WRITE_CACHE_SIZE = MDF4ProcessWriter.MAX_OUTPUTBLOCKSIZE / 2;
 
+	/**
+	 * Data sections of at least this size, which are not reused by the
+	 * caller, are passed on to the WriteWorker directly instead of being
+	 * copied to the cache.
+	 */
+	private static final int MIN_HANDOFF_SIZE = WRITE_CACHE_SIZE / 4;
+
 	/**
 	 * The buffer the data is send to, once the cache is full
 	 */
@@ -39,8 +57,52 @@ public class WriteDataCache {
 	byte[] cache;
 	int cachewriteposition = 0;
 
+	/**
+	 * Pool the cache arrays are taken from. It keeps as many arrays as can be
+	 * queued in the buffer.
+	 */
+	private final BufferPool pool;
+
+	/**
+	 * Pending transfer from an input file, which may still be extended by the
+	 * next call of <code>transfer</code>. transfersource is null, if no
+	 * transfer is pending.
+	 */
+	FileChannel transfersource;
+	long transferpos;
+	long transferlength;
+
+	/**
+	 * The planned layout, whose links are laid over the output, or null.
+	 */
+	private final LayoutPlan plan;
+
+	/**
+	 * Position in the output of the next byte put into this cache.
+	 */
+	private long outputpos = 0;
+
 	public WriteDataCache(DataBlockBuffer buf) {
+		this(buf, null);
+	}
+
+	/**
+	 * Create a cache, that lays the links of <code>plan</code> over the
+	 * output.
+	 *
+	 * @param buf
+	 *            The buffer the data is send to.
+	 * @param plan
+	 *            The planned layout of the output, may be null.
+	 */
+	public WriteDataCache(DataBlockBuffer buf, LayoutPlan plan) {
 		this.buf = buf;
+		this.plan = plan;
+		pool = new BufferPool(WRITE_CACHE_SIZE, (int) Math.min(buf.getCapacity() / WRITE_CACHE_SIZE, 1024L) + 2);
+	}
+
+	public BufferPool getPool() {
+		return pool;
 	}
 
 	/**
@@ -55,100 +117,156 @@ public class WriteDataCache {
 	 *            True, if the current buffer contains other data, that will be
 	 *            overwritten or its position can be changed until output.
 	 *            Therefore its content needs to be copied. False if the
-	 *            Buffer.array() method can be used, for faster access to the
-	 *            data bytes. Therefore the size of the ByteBuffer and length
-	 *            must be equal.
+	 *            Buffer is not used by the caller anymore. Data is then taken
+	 *            from the start of Buffer.array(), and large sections are
+	 *            written without copying.
 	 */
 	public void put(ByteBuffer data, int length, boolean reused) {
-		if (reused) {
-			if (length > WRITE_CACHE_SIZE) {
-				byte[] dt = new byte[length];
-				data.get(dt, 0, length);
-				put(dt);
-			} else {
-				// copy to cache immediately
-				// use the cache
-				// first write part that still fits into cache.
-				if (cache == null) {
-					cache = new byte[WRITE_CACHE_SIZE];
-				}
-				int spaceremaining = WRITE_CACHE_SIZE - cachewriteposition;
-
-				int bytesfirstsection = spaceremaining < length ? spaceremaining : length;
-				// maybe data needs to be split up
-				data.get(cache, cachewriteposition, bytesfirstsection);
-				cachewriteposition += bytesfirstsection;
-				CheckAndWriteout();
-
-				// write second part if needed
-				if (bytesfirstsection < length) {
-					int bytessecond = length - bytesfirstsection;
-					data.get(cache, cachewriteposition, bytessecond);
-					cachewriteposition += bytessecond;
-				}
+		flushTransfer();
+		boolean linked = plan != null && plan.intersects(outputpos, length);
+		if (!reused) {
+			data = ByteBuffer.wrap(data.array(), data.arrayOffset(), length);
+			if (length >= MIN_HANDOFF_SIZE && !linked) {
+				// Cache is useless, pass the buffer on.
+				flush(); // flush data from the cache
+				buf.putData(new DataSection(data));
+				outputpos += length;
+				return;
 			}
-		} else {
-			put(data.array());
+		}
+		// use the cache, data may need to be split up.
+		while (length > 0) {
+			if (cache == null) {
+				cache = pool.take();
+			}
+			int spaceremaining = WRITE_CACHE_SIZE - cachewriteposition;
+			int bytessection = spaceremaining < length ? spaceremaining : length;
+			data.get(cache, cachewriteposition, bytessection);
+			if (linked) {
+				plan.overlay(outputpos, cache, cachewriteposition, bytessection);
+			}
+			cachewriteposition += bytessection;
+			outputpos += bytessection;
+			length -= bytessection;
+			CheckAndWriteout();
 		}
 	}
 
 	/**
-	 * Puts the array data in the WriteCache.
+	 * Puts the array data in the WriteCache. The array must not be changed by
+	 * the caller afterwards.
 	 *
 	 * @param data
 	 *            The data, which should be put in the Cache.
 	 */
 	public void put(byte[] data) {
-		// Cache is useless;
-		int length = data.length;
-		if (length > WRITE_CACHE_SIZE) {
-			flush(); // flush data from the cache
-			buf.putData(new AbstractMap.SimpleEntry<>(data, -1));
+		put(ByteBuffer.wrap(data), data.length, false);
+	}
+
+	/**
+	 * Puts the remaining bytes of all given buffers in the WriteCache, in the
+	 * given order. If the parts are large enough, they are passed on together
+	 * without copying, and written with a single gathering write. The buffers
+	 * must not be changed by the caller afterwards.
+	 *
+	 * @param parts
+	 *            The buffers to be written.
+	 */
+	public void put(ByteBuffer... parts) {
+		long length = 0;
+		for (ByteBuffer part : parts) {
+			length += part.remaining();
+		}
+		if (length >= MIN_HANDOFF_SIZE && !(plan != null && plan.intersects(outputpos, length))) {
+			flush();
+			buf.putData(new DataSection(parts));
+			outputpos += length;
 		} else {
-			// use the cache
-			// first write part that still fits into cache.
-			if (cache == null) {
-				cache = new byte[WRITE_CACHE_SIZE];
+			for (ByteBuffer part : parts) {
+				put(part, part.remaining(), true);
 			}
-			int spaceremaining = WRITE_CACHE_SIZE - cachewriteposition;
-
-			int bytesfirstsection = spaceremaining < length ? spaceremaining : length;
-			// maybe data needs to be split up
-
-			System.arraycopy(data, 0, cache, cachewriteposition, bytesfirstsection);
-			cachewriteposition += bytesfirstsection;
+		}
+	}
 
-			CheckAndWriteout();
+	/**
+	 * Copies <code>length</code> bytes starting at <code>pos</code> from the
+	 * input file <code>src</code> to the output. If this section directly
+	 * follows the pending transfer, both are merged. Planned link sections
+	 * within the section are not copied, but put into the cache.
+	 *
+	 * @param src
+	 *            The input file.
+	 * @param pos
+	 *            Start position of the section in the input file.
+	 * @param length
+	 *            The number of bytes to copy.
+	 */
+	public void transfer(FileChannel src, long pos, long length) {
+		while (plan != null && length > 0 && plan.intersects(outputpos, length)) {
+			// copy up to the next link section, and take the links from the
+			// plan.
+			long unlinked = Math.max(plan.getSectionStart(outputpos) - outputpos, 0L);
+			appendTransfer(src, pos, unlinked);
+			int linked = (int) Math.min(plan.getSectionEnd(outputpos) - outputpos, length - unlinked);
+			put(ByteBuffer.wrap(new byte[linked]), linked, true);
+			pos += unlinked + linked;
+			length -= unlinked + linked;
+		}
+		appendTransfer(src, pos, length);
+	}
 
-			// write second part if needed
-			if (bytesfirstsection < length) {
-				int bytessecond = length - bytesfirstsection;
-				System.arraycopy(data, bytesfirstsection, cache, cachewriteposition, bytessecond);
-				cachewriteposition += bytessecond;
-			}
+	/**
+	 * Appends a section of the input file to the pending transfer, or starts
+	 * a new one.
+	 */
+	private void appendTransfer(FileChannel src, long pos, long length) {
+		if (length == 0) {
+			return;
 		}
+		outputpos += length;
+		if (transfersource == src && transferpos + transferlength == pos) {
+			// extend pending transfer
+			transferlength += length;
+			return;
+		}
+		flush();
+		transfersource = src;
+		transferpos = pos;
+		transferlength = length;
 	}
 
 	/**
 	 * Force data in the Cache to be written out.
 	 */
 	public void flush() {
+		flushTransfer();
 		// Cache has been flushed?
 		if (cache == null) {
 			return;
 		}
-		buf.putData(new AbstractMap.SimpleEntry<>(cache, cachewriteposition));
+		buf.putData(new DataSection(cache, cachewriteposition, pool));
 		cachewriteposition = 0;
 		cache = null;
 	}
 
+	/**
+	 * Passes the pending transfer on to the buffer, if there is one.
+	 */
+	private void flushTransfer() {
+		if (transfersource == null) {
+			return;
+		}
+		buf.putData(new DataSection(transfersource, transferpos, transferlength));
+		transfersource = null;
+	}
+
 	public void CheckAndWriteout() {
 		if (cachewriteposition != WRITE_CACHE_SIZE) {
 			return;
 		}
 		// write all data out.
-		buf.putData(new AbstractMap.SimpleEntry<>(cache, -1));
-		cache = new byte[WRITE_CACHE_SIZE];
+		buf.putData(new DataSection(cache, WRITE_CACHE_SIZE, pool));
+		cache = null;
 		cachewriteposition = 0;
 	}
 }
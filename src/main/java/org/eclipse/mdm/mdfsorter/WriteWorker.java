@@ -17,12 +17,16 @@ package org.eclipse.mdm.mdfsorter;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.Map.Entry;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * A thread to take byte data from a DataBlockBuffer, for writing to the
  * FileOutputStream fs until the buffer signals that no more data is going to
- * come. This is used to increase IO Throughput.
+ * come. This is used to increase IO Throughput. Sections of the input file,
+ * that are passed on unchanged, are copied with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}
+ * and never pass through the Java heap.
  *
  * @author Tobias Leemann
  *
@@ -52,17 +56,60 @@ public class WriteWorker implements Runnable {
 	 */
 	@Override
 	public void run() {
-		Entry<byte[], Integer> towrite;
+		DataSection towrite;
 		while ((towrite = buf.getData()) != null) {
 			try {
-				if (towrite.getValue() == -1) {
-					fs.write(towrite.getKey());
+				if (towrite.isTransfer()) {
+					transfer(towrite);
 				} else {
-					fs.write(towrite.getKey(), 0, towrite.getValue());
+					write(towrite);
 				}
 			} catch (IOException e) {
 				throw new RuntimeException("IOException");
 			}
 		}
 	}
+
+	/**
+	 * Writes all buffers of a section with a gathering write, and returns
+	 * pooled arrays afterwards.
+	 *
+	 * @param section
+	 *            The section to write.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	private void write(DataSection section) throws IOException {
+		FileChannel target = fs.getChannel();
+		ByteBuffer[] buffers = section.getBuffers();
+		long left = section.getLength();
+		while (left > 0) {
+			left -= target.write(buffers);
+		}
+		section.release();
+	}
+
+	/**
+	 * Copies a section of the input file to the current position of the
+	 * output file.
+	 *
+	 * @param section
+	 *            The section to copy.
+	 * @throws IOException
+	 *             If an I/O error occurs, or the input file ends before the
+	 *             section.
+	 */
+	private void transfer(DataSection section) throws IOException {
+		FileChannel target = fs.getChannel();
+		long pos = section.getSourcepos();
+		long left = section.getLength();
+		while (left > 0) {
+			long transferred = section.getSource().transferTo(pos, left, target);
+			if (transferred <= 0) {
+				throw new IOException(new StringBuilder().append("Unexpected end of input file at position ").append(pos).toString());
+			}
+			pos += transferred;
+			left -= transferred;
+		}
+	}
 }
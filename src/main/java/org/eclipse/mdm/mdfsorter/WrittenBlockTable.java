@@ -0,0 +1,120 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import java.util.Arrays;
+
+/**
+ * The link slots of all blocks written to the output, which are resolved once
+ * all blocks are written (or planned). Links may still change after a block
+ * has been written, therefore each slot keeps the output position of the link
+ * field, and the links array of its block with the index of the link. The
+ * written block itself is not kept.
+ */
+public class WrittenBlockTable {
+
+	/**
+	 * Output position of the link field, links array and index in the array
+	 * of each slot.
+	 */
+	private long[] positions = new long[256];
+	private MDFGenBlock[][] links = new MDFGenBlock[256][];
+	private int[] indices = new int[256];
+
+	/**
+	 * Number of slots.
+	 */
+	private int count = 0;
+
+	/**
+	 * Adds the link slots of a block, which is written at its output position.
+	 *
+	 * @param blk
+	 *            The written block.
+	 */
+	public void add(MDFGenBlock blk) {
+		int linkcount = blk.getLinkCount();
+		ensureCapacity(count + linkcount);
+		MDFGenBlock[] blklinks = blk.getLinks();
+		for (int i = 0; i < linkcount; i++) {
+			positions[count] = blk.getOutputpos() + blk.getLinkOffset(i);
+			links[count] = blklinks;
+			indices[count] = i;
+			count++;
+		}
+	}
+
+	/**
+	 * Adds all slots of another table, whose positions are relative to
+	 * <code>base</code>.
+	 *
+	 * @param other
+	 *            The other table.
+	 * @param base
+	 *            Output position of the start of the other table's output.
+	 */
+	public void addAll(WrittenBlockTable other, long base) {
+		ensureCapacity(count + other.count);
+		for (int i = 0; i < other.count; i++) {
+			positions[count + i] = other.positions[i] + base;
+		}
+		System.arraycopy(other.links, 0, links, count, other.count);
+		System.arraycopy(other.indices, 0, indices, count, other.count);
+		count += other.count;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > positions.length) {
+			int newlength = Math.max(positions.length * 2, capacity);
+			positions = Arrays.copyOf(positions, newlength);
+			links = Arrays.copyOf(links, newlength);
+			indices = Arrays.copyOf(indices, newlength);
+		}
+	}
+
+	/**
+	 * @return The number of link slots.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @param i
+	 *            Index of the slot.
+	 * @return Output position of the link field.
+	 */
+	public long getPosition(int i) {
+		return positions[i];
+	}
+
+	/**
+	 * @param i
+	 *            Index of the slot.
+	 * @return The block the link currently points to, or null.
+	 */
+	public MDFGenBlock getTarget(int i) {
+		return links[i][indices[i]];
+	}
+
+	/**
+	 * Removes all slots.
+	 */
+	public void clear() {
+		Arrays.fill(links, 0, count, null);
+		count = 0;
+	}
+}
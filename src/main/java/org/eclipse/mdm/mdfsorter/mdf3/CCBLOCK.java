@@ -16,9 +16,7 @@
 package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
-import org.eclipse.mdm.mdfsorter.MDFParser;
 import org.eclipse.mdm.mdfsorter.mdf4.MDF4Util;
 
 /**
@@ -212,16 +210,16 @@ public class CCBLOCK extends MDF3GenBlock {
 	@Override
 	public void parse(byte[] content) throws IOException {
 		// BOOL 1 Value range – known physical value
-		setKnownPhysValue(MDF3Util.readBool(MDFParser.getDataBuffer(content, 0, 2), isBigEndian()));
+		setKnownPhysValue(MDF3Util.readBool(content, 0, isBigEndian()));
 
 		// REAL 1 Value range – minimum physical value
-		setMinPhysValue(MDF4Util.readReal(MDFParser.getDataBuffer(content, 2, 10)));
+		setMinPhysValue(MDF4Util.readReal(content, 2));
 
 		// REAL 1 Value range – maximum physical value
-		setMaxPhysValue(MDF4Util.readReal(MDFParser.getDataBuffer(content, 10, 18)));
+		setMaxPhysValue(MDF4Util.readReal(content, 10));
 
 		// CHAR 20 Physical unit
-		setPhysUnit(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 18, 38), 20));
+		setPhysUnit(MDF3Util.readCharsISO8859(content, 18, 20));
 
 		// UINT16 1 Conversion formula identifier
 		// 0 = parametric, linear
@@ -237,12 +235,12 @@ public class CCBLOCK extends MDF3GenBlock {
 		// 132 = Date (Based on 7 Byte Date data structure)
 		// 133 = time (Based on 6 Byte Time data structure)
 		// 65535 = 1:1 conversion formula (Int = Phys)
-		setFormulaIdent(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 38, 40), isBigEndian()));
+		setFormulaIdent(MDF3Util.readUInt16(content, 38, isBigEndian()));
 
 		if (content.length > 40) {
 			// UINT16 1 Number of value pairs for conversion formulas 1, 2, 11
 			// and 12 or number of parameters
-			setNoOfValuePairsForFormula(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 40, 42), isBigEndian()));
+			setNoOfValuePairsForFormula(MDF3Util.readUInt16(content, 40, isBigEndian()));
 		}
 
 		if (content.length <= 42) {
@@ -253,24 +251,11 @@ public class CCBLOCK extends MDF3GenBlock {
 	}
 
 	@Override
-	public void updateLinks(RandomAccessFile r) throws IOException {
-		if (getLinkCount() == 0) {
-			return;
-		}
-
+	public long getLinkOffset(int i) {
 		if (formulaIdent != 12) {
 			throw new RuntimeException("Only a CC block with formula type 12 can have links.");
 		}
-
-		MDF3GenBlock linkedblock;
-		for (int i = 0; i < getLinkCount(); i++) {
-			r.seek(getOutputpos() + 4L + 42L + 20L * i + 16L);
-			// position of links, see specification.
-			if ((linkedblock = getLink(i)) != null) {
-				r.write(MDF3Util.getBytesLink(linkedblock.getOutputpos(), isBigEndian()));
-			} else {
-				r.write(MDF3Util.getBytesLink(0, isBigEndian()));
-			}
-		}
+		// position of links, see specification.
+		return 4L + 42L + 20L * i + 16L;
 	}
 }
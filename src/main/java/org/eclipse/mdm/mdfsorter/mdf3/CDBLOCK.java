@@ -16,9 +16,7 @@
 package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * @author Tobias Leemann The Channel Dependency Block
@@ -86,10 +84,10 @@ public class CDBLOCK extends MDF3GenBlock {
 		// 1 = linear
 		// 2 = matrix dependency
 		// 256 + N: N-dimensional
-		setDependancyType(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 0, 2), isBigEndian()));
+		setDependancyType(MDF3Util.readUInt16(content, 0, isBigEndian()));
 
 		// UINT16 number of dependencies
-		setNoDependencies(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 2, 4), isBigEndian()));
+		setNoDependencies(MDF3Util.readUInt16(content, 2, isBigEndian()));
 
 		if (dependancyType > 256) { // if dependency type is n-dimensional, the
 									// sizes of each dimesions are stored after
@@ -99,7 +97,7 @@ public class CDBLOCK extends MDF3GenBlock {
 				int[] sizes = new int[numvalues];
 				int readptr = 4 + getNoDependencies() * 4;
 				for (int i = 0; i < numvalues; i++) {
-					sizes[i] = MDF3Util.readUInt16(MDFParser.getDataBuffer(content, readptr, readptr + 2), bigendian);
+					sizes[i] = MDF3Util.readUInt16(content, readptr, bigendian);
 					readptr += 2;
 				}
 			}
@@ -107,16 +105,8 @@ public class CDBLOCK extends MDF3GenBlock {
 	}
 
 	@Override
-	public void updateLinks(RandomAccessFile r) throws IOException {
-		r.seek(getOutputpos() + 4L + 4L);
-		MDF3GenBlock linkedblock;
-		for (int i = 0; i < getLinkCount(); i++) {
-			// position of links, see specification.
-			if ((linkedblock = getLink(i)) != null) {
-				r.write(MDF3Util.getBytesLink(linkedblock.getOutputpos(), isBigEndian()));
-			} else {
-				r.write(MDF3Util.getBytesLink(0, isBigEndian()));
-			}
-		}
+	public long getLinkOffset(int i) {
+		// position of links, see specification.
+		return 4L + 4L + 4L * i;
 	}
 }
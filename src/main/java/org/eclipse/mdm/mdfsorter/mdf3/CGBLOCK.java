@@ -16,9 +16,7 @@
 package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Channel Group Block
@@ -130,17 +128,17 @@ public class CGBLOCK extends MDF3GenBlock {
 	@Override
 	public void parse(byte[] content) throws IOException {
 		// UINT16: Record ID
-		setRecordId(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 0, 2), isBigEndian()));
+		setRecordId(MDF3Util.readUInt16(content, 0, isBigEndian()));
 
 		// UINT16: Number of Channel
-		setNumChannels(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 2, 4), isBigEndian()));
+		setNumChannels(MDF3Util.readUInt16(content, 2, isBigEndian()));
 
 		// UINT16: Number of data Bytes (after record ID) used for signal values
 		// in record.
-		setDataBytes(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 4, 6), isBigEndian()));
+		setDataBytes(MDF3Util.readUInt16(content, 4, isBigEndian()));
 
 		// UINT32: Number of cycles
-		setCycleCount(MDF3Util.readUInt32(MDFParser.getDataBuffer(content, 6, 10), isBigEndian()));
+		setCycleCount(MDF3Util.readUInt32(content, 6, isBigEndian()));
 	}
 
 	@Override
@@ -191,24 +189,12 @@ public class CGBLOCK extends MDF3GenBlock {
 	}
 
 	@Override
-	public void updateLinks(RandomAccessFile r) throws IOException {
-		// set position to start of Block link section
-		r.seek(getOutputpos() + 4L);
-		MDF3GenBlock linkedblock;
-		// Update first three blocks normally
-		for (int i = 0; i < 3; i++) {
-			if ((linkedblock = getLink(i)) != null) {
-				r.write(MDF3Util.getBytesLink((int) linkedblock.getOutputpos(), isBigEndian()));
-			} else {
-				r.write(MDF3Util.getBytesLink(0, isBigEndian()));
-			}
+	public long getLinkOffset(int i) {
+		// the fourth link follows the other fields.
+		if (i == 3) {
+			return 4L + 3L * 4L + 10L;
 		}
-		// update fourth link manually
-		if (getLinkCount() != 4) {
-			return;
-		}
-		r.seek(getOutputpos() + 4L + 3L * 4L + 10L);
-		r.write(MDF3Util.getBytesLink(getLink(4).getOutputpos(), isBigEndian()));
+		return 4L + 4L * i;
 	}
 
 }
@@ -16,8 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Data Group Block
@@ -105,10 +103,10 @@ public class DGBLOCK extends MDF3GenBlock {
 	@Override
 	public void parse(byte[] content) throws IOException {
 		// UNINT16 Number of Channel Groups
-		setChannelGroups(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 0, 2), isBigEndian()));
+		setChannelGroups(MDF3Util.readUInt16(content, 0, isBigEndian()));
 
 		// UINT16 RecordIDLayout
-		setNumOfRecId(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 2, 4), isBigEndian()));
+		setNumOfRecId(MDF3Util.readUInt16(content, 2, isBigEndian()));
 
 	}
 
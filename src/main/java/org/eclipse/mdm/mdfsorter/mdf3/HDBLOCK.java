@@ -17,8 +17,6 @@ package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Data Group Block
@@ -201,36 +199,36 @@ public class HDBLOCK extends MDF3GenBlock {
 	@Override
 	public void parse(byte[] content) throws IOException {
 		// UNINT16 Number of Data Groups
-		setNumberOfDataGroups(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 0, 2), isBigEndian()));
+		setNumberOfDataGroups(MDF3Util.readUInt16(content, 0, isBigEndian()));
 
 		// CHAR 10 Date when the recording was started
-		setDateStarted(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 2, 12), 10));
+		setDateStarted(MDF3Util.readCharsISO8859(content, 2, 10));
 
 		// CHAR 8 Signal name, i.e. the first 32 characters of the ASAM-MCD
 		// unique name
-		setTimeStarted(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 12, 20), 8));
+		setTimeStarted(MDF3Util.readCharsISO8859(content, 12, 8));
 
-		setAuthor(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 20, 52), 32));
-		setDepartment(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 52, 84), 32));
-		setProjectName(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 84, 116), 32));
-		setMeaObject(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 116, 148), 32));
+		setAuthor(MDF3Util.readCharsISO8859(content, 20, 32));
+		setDepartment(MDF3Util.readCharsISO8859(content, 52, 32));
+		setProjectName(MDF3Util.readCharsISO8859(content, 84, 32));
+		setMeaObject(MDF3Util.readCharsISO8859(content, 116, 32));
 
 		if (content.length > 148) {
 			// UNINT 64 Timestamp
-			setTimestamp(MDF3Util.readUInt64(MDFParser.getDataBuffer(content, 148, 156), isBigEndian()));
+			setTimestamp(MDF3Util.readUInt64(content, 148, isBigEndian()));
 		}
 		if (content.length > 156) {
 			// INT16, Time zone offset in hours
-			setUtcTimeOffsetHours(MDF3Util.readInt16(MDFParser.getDataBuffer(content, 156, 158), isBigEndian()));
+			setUtcTimeOffsetHours(MDF3Util.readInt16(content, 156, isBigEndian()));
 		}
 
 		if (content.length > 158) {
 			// UINT16, Time Quality
-			setTimeQualityClass(MDF3Util.readUInt16(MDFParser.getDataBuffer(content, 158, 160), isBigEndian()));
+			setTimeQualityClass(MDF3Util.readUInt16(content, 158, isBigEndian()));
 		}
 
 		if (content.length > 160) {
-			setTimerIdent(MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(content, 160, 192), 32));
+			setTimerIdent(MDF3Util.readCharsISO8859(content, 160, 32));
 		}
 
 	}
@@ -17,9 +17,11 @@ package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.zip.DataFormatException;
 
 import org.eclipse.mdm.mdfsorter.MDFAbstractProcessWriter;
+import org.eclipse.mdm.mdfsorter.RecordDemultiplexer;
 
 public class MDF3BlocksSplittMerger {
 
@@ -57,6 +59,12 @@ public class MDF3BlocksSplittMerger {
 	 */
 	private long globalReadPtr = 0;
 
+	/**
+	 * Stream that is read from, only used while a stream is appended. (see
+	 * splitmerge(ReadableByteChannel, long))
+	 */
+	private ReadableByteChannel source;
+
 	/**
 	 * Data Provider for reading blocks. This Object manages unzipping of
 	 * blocks.
@@ -109,6 +117,33 @@ public class MDF3BlocksSplittMerger {
 		appendDataFromPos(length);
 	}
 
+	/**
+	 * Append the next <code>length</code> bytes of a stream to the output,
+	 * e.g. the records of a channel group, split by a RecordDemultiplexer.
+	 * Nothing is written, if length is 0.
+	 *
+	 * @param source
+	 *            The stream to read from. May be null, while the layout is
+	 *            planned.
+	 * @param length
+	 *            Number of bytes to append.
+	 * @throws IOException
+	 *             If an I/O-Error occurs, or the stream ends before.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	public void splitmerge(ReadableByteChannel source, long length) throws IOException, DataFormatException {
+		if (length == 0) {
+			return;
+		}
+		this.source = source;
+		try {
+			appendDataFromPos(length);
+		} finally {
+			this.source = null;
+		}
+	}
+
 	/**
 	 * Reads leftbytes from the current position and appends them to the output
 	 * section.
@@ -147,11 +182,22 @@ public class MDF3BlocksSplittMerger {
 	 *             If zipped data is in an invalid format.
 	 */
 	public ByteBuffer abstractread(int length) throws IOException, DataFormatException {
+		if (source != null) {
+			ByteBuffer ret = ByteBuffer.allocate(length);
+			while (ret.hasRemaining()) {
+				if (source.read(ret) < 0) {
+					throw new IOException("Unexpected end of stream.");
+				}
+			}
+			ret.flip();
+			return ret;
+		}
 		return prov.cachedRead(globalReadPtr, length);
 	}
 
 	public void abstractput(ByteBuffer buf, int length) {
-		ps.performPut(buf, length, true);
+		// the read cache is reused, buffers read from a stream are not.
+		ps.performPut(buf, length, source == null);
 	}
 
 	/**
@@ -181,6 +227,28 @@ public class MDF3BlocksSplittMerger {
 	 *             If zipped data is in an invalid format.
 	 */
 	public void abstractcopy(long length) throws IOException, DataFormatException {
+		if (ps.isPlanning()) {
+			// Only the layout is planned, data is not needed.
+			ps.performSkip(length);
+			return;
+		}
+		if (source instanceof RecordDemultiplexer.GroupChannel) {
+			// large records are passed through, the rest is read in chunks.
+			var in = (RecordDemultiplexer.GroupChannel) source;
+			long written = 0L;
+			while (written < length) {
+				long n = in.transfer(ps, length - written);
+				if (n == 0) {
+					n = Math.min(Math.min(length - written, in.getInlineLength()), MDFAbstractProcessWriter.MAX_OUTPUTBLOCKSIZE);
+					if (n == 0) {
+						throw new IOException("Unexpected end of stream.");
+					}
+					abstractput(abstractread((int) n), (int) n);
+				}
+				written += n;
+			}
+			return;
+		}
 		long written = 0L;
 		do {
 			int bytesread = 0;
@@ -15,12 +15,14 @@
 
 package org.eclipse.mdm.mdfsorter.mdf3;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.zip.DataFormatException;
 
 import org.eclipse.mdm.mdfsorter.AbstractDataProvider;
+import org.eclipse.mdm.mdfsorter.MappedInput;
 import org.eclipse.mdm.mdfsorter.ReadDataCache;
 
 /**
@@ -45,6 +47,11 @@ public class MDF3DataProvider implements AbstractDataProvider {
 	 */
 	private ReadDataCache readCache;
 
+	/**
+	 * The mapped input file, or null if reads go to the channel.
+	 */
+	private MappedInput mapped;
+
 	/**
 	 * Length of this data section.
 	 */
@@ -59,11 +66,31 @@ public class MDF3DataProvider implements AbstractDataProvider {
 	 *            The header of the data section.
 	 * @param reader
 	 *            FileChannel to the input file.
+	 * @throws IOException
+	 *             If the size of the input file cannot be read.
+	 */
+	public MDF3DataProvider(MDF3GenBlock datasectionhead, FileChannel reader) throws IOException {
+		this(datasectionhead, reader, null);
+	}
+
+	/**
+	 * This constructer creates a new DataProvider with the given head, which
+	 * reads from the mapped input file.
+	 *
+	 * @param datasectionhead
+	 *            The header of the data section.
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param mapped
+	 *            The mapped input file, or null.
+	 * @throws IOException
+	 *             If the size of the input file cannot be read.
 	 */
-	public MDF3DataProvider(MDF3GenBlock datasectionhead, FileChannel reader) {
+	public MDF3DataProvider(MDF3GenBlock datasectionhead, FileChannel reader, MappedInput mapped) throws IOException {
 		this.datasectionhead = datasectionhead;
 		this.reader = reader;
 		sectionlength = calculateLength();
+		this.mapped = mapped;
 
 		readCache = new ReadDataCache(this);
 
@@ -104,8 +131,17 @@ public class MDF3DataProvider implements AbstractDataProvider {
 			data.rewind();
 			return;
 		}
-		reader.position(datasectionhead.getPos() + globaloffset);
-		reader.read(data);
+		long pos = datasectionhead.getPos() + globaloffset;
+		if (mapped == null || !mapped.read(pos, data)) {
+			while (data.hasRemaining()) {
+				int read = reader.read(data, pos);
+				if (read < 0) {
+					throw new EOFException(new StringBuilder().append("Unexpected end of input file at position ").append(pos).append(", ").append(data.remaining())
+							.append(" bytes are missing.").toString());
+				}
+				pos += read;
+			}
+		}
 		data.rewind();
 	}
 
@@ -135,6 +171,14 @@ public class MDF3DataProvider implements AbstractDataProvider {
 		}
 
 		if (dataarr == null) {
+			// The data block is contiguous, records can be sliced from the
+			// mapped file.
+			if (mapped != null) {
+				var slice = mapped.slice(datasectionhead.getPos() + globaloffset, length);
+				if (slice != null) {
+					return slice;
+				}
+			}
 			return readCache.read(globaloffset, length);
 		}
 		var data = ByteBuffer.allocate(length);
@@ -149,14 +193,34 @@ public class MDF3DataProvider implements AbstractDataProvider {
 		return sectionlength;
 	}
 
+	/*
+	 * The data block is contiguous, all parts are stored as they are.
+	 *
+	 * @see org.eclipse.mdm.mdfsorter.AbstractDataProvider#getFilePosition(long,
+	 * long)
+	 */
+	@Override
+	public long getFilePosition(long globaloffset, long length) {
+		if (dataarr != null || datasectionhead == null || globaloffset + length > sectionlength) {
+			return -1;
+		}
+		return datasectionhead.getPos() + globaloffset;
+	}
+
 	/**
-	 * Calculate the length of this data section.
+	 * Calculate the length of this data section. The length is calculated from
+	 * the cycle counts, if the input file has been cut off (e.g. a recording
+	 * was interrupted), the section ends with the file, and the missing
+	 * records are cut off.
 	 *
 	 * @return The length.
+	 * @throws IOException
+	 *             If the size of the input file cannot be read.
 	 */
-	private long calculateLength() {
+	private long calculateLength() throws IOException {
 		if (datasectionhead != null) {
-			return datasectionhead.getLength();
+			long available = Math.max(reader.size() - datasectionhead.getPos(), 0L);
+			return Math.min(datasectionhead.getLength(), available);
 		}
 		return 0;
 
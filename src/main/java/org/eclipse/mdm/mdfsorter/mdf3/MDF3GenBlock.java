@@ -16,9 +16,9 @@
 package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 import org.eclipse.mdm.mdfsorter.ArgumentStruct;
+import org.eclipse.mdm.mdfsorter.LayoutPlan;
 import org.eclipse.mdm.mdfsorter.MDFCompatibilityProblem;
 import org.eclipse.mdm.mdfsorter.MDFGenBlock;
 import org.eclipse.mdm.mdfsorter.MDFProblemType;
@@ -349,25 +349,17 @@ public class MDF3GenBlock extends MDFGenBlock implements Comparable<MDF3GenBlock
 	}
 
 	/**
-	 * Default implementation for the links update. In an MDF3 File, each block
-	 * updates the links itself, because the default block structure (header,
-	 * links, data) may not be accurate for each block
+	 * Default implementation for the position of the links. In an MDF3 File,
+	 * each block defines the position of its links itself, because the
+	 * default block structure (header, links, data) may not be accurate for
+	 * each block
 	 *
-	 * @param r
-	 *            The opened output file as RandomAccessFile.
-	 * @throws IOException
-	 *             If an output error occurs.
+	 * @param i
+	 *            Index of the link.
+	 * @return The offset of the link in the block.
 	 */
-	public void updateLinks(RandomAccessFile r) throws IOException {
-		// set position to start of Block link section
-		r.seek(getOutputpos() + 4L);
-		MDF3GenBlock linkedblock;
-		for (int i = 0; i < getLinkCount(); i++) {
-			if ((linkedblock = getLink(i)) != null) {
-				r.write(MDF3Util.getBytesLink(linkedblock.getOutputpos(), isBigEndian()));
-			} else {
-				r.write(MDF3Util.getBytesLink(0, isBigEndian()));
-			}
-		}
+	@Override
+	public long getLinkOffset(int i) {
+		return 4L + 4L * i;
 	}
 }
@@ -16,14 +16,12 @@
 package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.LinkedList;
 import java.util.logging.Level;
 
 import org.eclipse.mdm.mdfsorter.MDFAbstractParser;
 import org.eclipse.mdm.mdfsorter.MDFFileContent;
-import org.eclipse.mdm.mdfsorter.MDFParser;
 import org.eclipse.mdm.mdfsorter.MDFSorter;
 import org.eclipse.mdm.mdfsorter.mdf4.MDF4Util;
 
@@ -36,27 +34,6 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 
 	public boolean isBigEndian = false;
 
-	/**
-	 * Helper Method to read to an array from a FileChannel.
-	 *
-	 * @param bytes
-	 *            The number of bytes to read.
-	 * @param in
-	 *            The FileChannel to read from.
-	 * @return A byte-Array with <code>length=bytes</code> filled with the next
-	 *         bytes from the Channel.
-	 * @throws IOException
-	 *             If an input error occurs.
-	 */
-	private static byte[] readBytes(int bytes, FileChannel in) throws IOException {
-		ByteBuffer chunk = ByteBuffer.allocate(bytes);
-		int bytesread = 0;
-		if ((bytesread = in.read(chunk)) != bytes) {
-			System.err.println(new StringBuilder().append("Read only ").append(bytesread).append(" Bytes instead of ").append(bytes).toString());
-		}
-		return chunk.array();
-	}
-
 	/**
 	 * Parses the file and returns the root of the tree structure.
 	 *
@@ -68,43 +45,43 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 		MDF3GenBlock g = new MDF3GenBlock(64, isBigEndian);
 		queue.add(g);
 		var ret = g;
-		do {
-			skipped.clear();
-			while (!queue.isEmpty()) {
-				MDF3GenBlock next = queue.poll();
+		while (!queue.isEmpty()) {
+			MDF3GenBlock next = queue.poll();
 
-				if (blocklist.containsKey(next.getPos())) {
-					throw new RuntimeException("Duplicate Block in list.");
-				}
+			if (blocklist.containsKey(next.getPos())) {
+				throw new RuntimeException("Duplicate Block in list.");
+			}
 
-				if (next.getPos() < lasthandled) {
-					skipped.add(next);
-					continue;
-				}
+			if (next.getPos() < lasthandled) {
+				// linked from a block behind it, read it right away.
+				backwardblocks++;
+			}
 
-				// parse.
-				getBlockHeader(next);
-				forceparse(next);
+			// parse.
+			getBlockHeader(next);
+			decode(next);
 
-				// Add (if possible the more precise) block to the blocklist
-				unfinished.remove(next.getPos());
-				if (next.getPrec() != null) {
-					blocklist.put(next.getPos(), next.getPrec());
-				} else {
-					blocklist.put(next.getPos(), next);
-				}
+			// Add (if possible the more precise) block to the blocklist
+			unfinished.remove(next.getPos());
+			if (next.getPrec() != null) {
+				blocklist.put(next.getPos(), next.getPrec());
+			} else {
+				blocklist.put(next.getPos(), next);
+			}
 
-				lasthandled = next.getPos();
+			lasthandled = next.getPos();
 
-				foundblocks++;
-			}
-			in.position(0L);
-			queue.addAll(skipped);
-			lasthandled = 0;
-			fileruns++;
-		} while (!skipped.isEmpty()); // another run is needed
+			foundblocks++;
+		}
+		// decode the remaining blocks, and replace them by their more special
+		// blocks.
+		for (var blk : decodeAll()) {
+			blocklist.put(blk.getPos(), blk.getPrec() != null ? blk.getPrec() : blk);
+		}
+		fileruns++;
 
-		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Needed ").append(fileruns).append(" runs.").toString());
+		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Needed ").append(fileruns).append(" runs, ").append(backwardblocks).append(" blocks were read backwards.").toString());
+		MDFSorter.log.log(Level.FINE, new StringBuilder().append("Read the blocks with ").append(filereads).append(" reads from the file.").toString());
 		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Found ").append(blocklist.size()).append(" blocks.").toString());
 		MDFSorter.log.log(Level.FINE, "ValidatorListSize: " + (foundblocks + 1)); // Expected
 																					// number
@@ -124,12 +101,12 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 	 *             If a reading error occurs.
 	 */
 	private void getBlockHeader(MDF3GenBlock start) throws IOException {
-		in.position(start.getPos());
-		byte[] head = readBytes(4, in);
+		position = start.getPos();
+		byte[] head = readBytes(4);
 		// Read header of this block
-		String blktyp = MDF3Util.readCharsISO8859(MDFParser.getDataBuffer(head, 0, 2), 2);
+		String blktyp = MDF3Util.readCharsISO8859(head, 0, 2);
 		start.setId(blktyp);
-		int blklength = MDF4Util.readUInt16(MDFParser.getDataBuffer(head, 2, 4));
+		int blklength = MDF4Util.readUInt16(head, 2);
 		start.setLength(blklength);
 
 		// set standard link-count
@@ -137,10 +114,10 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 		start.setLinkCount(blklinkcount);
 
 		// Read links and create new blocks
-		head = readBytes(blklinkcount * 4, in);
-		long position = in.position();
+		head = readBytes(blklinkcount * 4);
+		long sectionstart = position;
 		for (int i = 0; i < blklinkcount; i++) {
-			long nextlink = MDF3Util.readLink(MDFParser.getDataBuffer(head, i * 4, (i + 1) * 4), isBigEndian);
+			long nextlink = MDF3Util.readLink(head, i * 4, isBigEndian);
 			if (nextlink != 0) {
 				if ("DG".equals(blktyp) && i == 3) {
 					// special case: pointer to data section (4th link of a DG-BLock)
@@ -152,9 +129,9 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 					 * DGBLOCK has at least one CGBLOCK with at least one measured value!
 					 */
 					var dgBlock = new DGBLOCK(start);
-					in.position(dgBlock.getPos() + 20);
-					byte[] bb = readBytes(2, in);
-					int cgCount = MDF3Util.readUInt16(MDFParser.getDataBuffer(bb, 0, 2), isBigEndian);
+					position = dgBlock.getPos() + 20;
+					byte[] bb = readBytes(2);
+					int cgCount = MDF3Util.readUInt16(bb, 0, isBigEndian);
 					if (cgCount < 1) {
 						// ignore link, since DGBLOCK does not have any CGBLOCKs
 						continue;
@@ -163,9 +140,9 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 					// iterate over all CGBLOCKS. link is valid if at least one of them has measured values
 					var cgBlock = new CGBLOCK(dgBlock.getLnkCgFirst());
 					while (cgBlock != null) {
-						in.position(cgBlock.getPos() + 22);
-						bb = readBytes(4, in);
-						long cycleCount = MDF3Util.readUInt32(MDFParser.getDataBuffer(bb, 0, 4), isBigEndian);
+						position = cgBlock.getPos() + 22;
+						bb = readBytes(4);
+						long cycleCount = MDF3Util.readUInt32(bb, 0, isBigEndian);
 						if (cycleCount > 0) {
 							checkFoundDataBlockLink(start, nextlink, i);
 							break;
@@ -179,28 +156,28 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 		}
 
 		// set to begin of data section.
-		in.position(position);
+		position = sectionstart;
 
 		// read possible extra links in CGBLOCK
 		if ("CG".equals(blktyp) && blklength == 30) {
-			head = readBytes(14, in);
-			long nextlink = MDF3Util.readLink(MDFParser.getDataBuffer(head, 10, 14), isBigEndian);
+			head = readBytes(14);
+			long nextlink = MDF3Util.readLink(head, 10, isBigEndian);
 			start.moreLinks(4);
 			checkFoundLink(start, nextlink, 3);
 		}
 
 		// read possible extra links CNBLOCK
 		if ("CN".equals(blktyp) && blklength > 218) {
-			head = readBytes(198, in);
-			long nextlink = MDF3Util.readLink(MDFParser.getDataBuffer(head, 194, 198), isBigEndian);
+			head = readBytes(198);
+			long nextlink = MDF3Util.readLink(head, 194, isBigEndian);
 			start.moreLinks(6);
 			if (nextlink != 0) {
 				checkFoundLink(start, nextlink, 5);
 			}
 
 			if (blklength > 222) {
-				head = readBytes(4, in);
-				nextlink = MDF3Util.readLink(MDFParser.getDataBuffer(head, 0, 4), isBigEndian);
+				head = readBytes(4);
+				nextlink = MDF3Util.readLink(head, 0, isBigEndian);
 				start.moreLinks(7);
 				if (nextlink != 0) {
 					checkFoundLink(start, nextlink, 6);
@@ -210,17 +187,16 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 
 		// read possible extra links CCBLOCK
 		if ("CC".equals(blktyp)) {
-			head = readBytes(40, in);
-			int convtype = MDF3Util.readUInt16(MDFParser.getDataBuffer(head, 38, 40), isBigEndian);
+			head = readBytes(40);
+			int convtype = MDF3Util.readUInt16(head, 38, isBigEndian);
 			if (convtype == 12) {
 				// TextTable has links to textblocks, get number
-				head = readBytes(2, in);
-				int numberOfValues = MDF3Util.readUInt16(MDFParser.getDataBuffer(head, 0, 2), isBigEndian);
+				head = readBytes(2);
+				int numberOfValues = MDF3Util.readUInt16(head, 0, isBigEndian);
 				start.moreLinks(numberOfValues);
-				head = readBytes((8 + 8 + 4) * numberOfValues, in);
+				head = readBytes((8 + 8 + 4) * numberOfValues);
 				for (int i = 0; i < numberOfValues; i++) {
-					long nextlink = MDF3Util.readLink(MDFParser.getDataBuffer(head, i * 20 + 16, (i + 1) * 20),
-							isBigEndian);
+					long nextlink = MDF3Util.readLink(head, i * 20 + 16, isBigEndian);
 					if (nextlink != 0) {
 						checkFoundLink(start, nextlink, i);
 					}
@@ -230,12 +206,12 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 
 		// read possible extra links CDBLOCK
 		if ("CD".equals(blktyp)) {
-			head = readBytes(4, in);
-			int numdep = MDF3Util.readUInt16(MDFParser.getDataBuffer(head, 2, 4), isBigEndian);
+			head = readBytes(4);
+			int numdep = MDF3Util.readUInt16(head, 2, isBigEndian);
 			start.moreLinks(2 * numdep);
-			head = readBytes(8 * numdep, in);
+			head = readBytes(8 * numdep);
 			for (int i = 0; i < 2 * numdep; i++) {
-				long nextlink = MDF3Util.readLink(MDFParser.getDataBuffer(head, 4 * i, 4 * (i + 1)), isBigEndian);
+				long nextlink = MDF3Util.readLink(head, 4 * i, isBigEndian);
 				if (nextlink != 0) {
 					checkFoundLink(start, nextlink, i);
 				}
@@ -243,7 +219,7 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 		}
 
 		// set stream back to start of data section.
-		in.position(position);
+		position = sectionstart;
 	}
 
 	/**
@@ -309,14 +285,16 @@ public class MDF3Parser extends MDFAbstractParser<MDF3GenBlock> {
 	 * @param blk
 	 * @throws IOException
 	 */
-	private void forceparse(MDF3GenBlock blk) throws IOException {
+	@Override
+	protected void forceparse(MDF3GenBlock blk) throws IOException {
 
+		long bodypos = blk.getPos() + 4L + 4L * MDF3Util.getLinkcount(blk.getId());
 		long sectionsize = blk.getLength() - 4 - 4 * MDF3Util.getLinkcount(blk.getId());
 
 		byte[] content = null;
 
 		// parse special blocktypes more precisely.
-		content = readBytes((int) sectionsize, in);
+		content = readBytes(bodypos, (int) sectionsize);
 
 		MDF3GenBlock sp = null;
 
@@ -17,7 +17,6 @@ package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Arrays;
@@ -31,11 +30,14 @@ import java.util.zip.DataFormatException;
 import org.eclipse.mdm.mdfsorter.AbstractDataProvider;
 import org.eclipse.mdm.mdfsorter.ArgumentStruct;
 import org.eclipse.mdm.mdfsorter.DataBlockBuffer;
+import org.eclipse.mdm.mdfsorter.LayoutPlan;
 import org.eclipse.mdm.mdfsorter.MDFAbstractProcessWriter;
 import org.eclipse.mdm.mdfsorter.MDFCompatibilityProblem;
 import org.eclipse.mdm.mdfsorter.MDFFileContent;
+import org.eclipse.mdm.mdfsorter.MDFParser;
 import org.eclipse.mdm.mdfsorter.MDFProblemType;
 import org.eclipse.mdm.mdfsorter.MDFSorter;
+import org.eclipse.mdm.mdfsorter.RecordDemultiplexer;
 import org.eclipse.mdm.mdfsorter.WriteDataCache;
 import org.eclipse.mdm.mdfsorter.WriteWorker;
 import org.eclipse.mdm.mdfsorter.mdf4.MDF4Util;
@@ -50,6 +52,19 @@ public class MDF3ProcessWriter extends MDFAbstractProcessWriter<MDF3GenBlock> {
 
 	private MDF3GenBlock lastDGBlockParent;
 
+	/**
+	 * Record ids of all channel groups, and the block the first new data
+	 * group is linked to, saved while the layout is planned.
+	 */
+	private Map<CGBLOCK, Integer> savedrecordids;
+	private MDF3GenBlock savedDGBlockParent;
+
+	/**
+	 * Records of each unsorted data section, split while the layout is
+	 * planned, and kept until the section is written.
+	 */
+	private Map<MDF3GenBlock, RecordDemultiplexer> demultiplexed = new HashMap<>();
+
 	/**
 	 * Main Constructor.
 	 *
@@ -61,7 +76,6 @@ public class MDF3ProcessWriter extends MDFAbstractProcessWriter<MDF3GenBlock> {
 	public MDF3ProcessWriter(MDFFileContent<MDF3GenBlock> filestructure, ArgumentStruct args) {
 		this.filestructure = filestructure;
 		this.args = args;
-		writtenblocks = new LinkedList<>();
 	}
 
 	private int numberOfDatagroups = 0;
@@ -93,80 +107,120 @@ public class MDF3ProcessWriter extends MDFAbstractProcessWriter<MDF3GenBlock> {
 			throw new IllegalArgumentException("MDF3.x Files mustn't be zipped!");
 		}
 
-		// Open outputfile
-		var out = new FileOutputStream(args.outputname);
+		FileChannel reader = filestructure.getInput();
 
-		long start;
-		Thread t; // Start time will be stored here later.
+		mapInput();
+		try {
+			// Plan the layout of the output, so it can be written in one pass.
+			LayoutPlan plan = planLayout(reader);
 
-		try (var buf = new DataBlockBuffer()) {
-			// automatically stop writer thread if exeptions occur (Writer
-			// Thread is stopped vie the DataBlock Buffer.
+			// Open outputfile
+			var out = new FileOutputStream(args.outputname);
+			preallocate(out, plan);
 
-			myCache = new WriteDataCache(buf);
+			long start;
+			Thread t; // Start time will be stored here later.
 
-			// Start writer Thread
-			start = System.currentTimeMillis();
-			t = new Thread(new WriteWorker(out, buf));
-			t.start();
+			var buf = new DataBlockBuffer(args.writebuffersize);
+			try (buf) {
+				// automatically stop writer thread if exeptions occur (Writer
+				// Thread is stopped vie the DataBlock Buffer.
 
-			// write out blocks
-			FileChannel reader = filestructure.getInput();
-			reader.position(0L);
-			// reader = filestructure.getIn();
+				myCache = new WriteDataCache(buf, plan);
 
-			// write header block first
-			ByteBuffer headerbuf = ByteBuffer.allocate(MDF4Util.headersize);
-			reader.read(headerbuf);
+				// Start writer Thread
+				start = System.currentTimeMillis();
+				t = new Thread(new WriteWorker(out, buf));
+				t.start();
 
-			// If Data has to be zipped, the file version has be set to at least
+				// write out blocks
+				writeOutput(reader);
 
-			performPut(headerbuf, headerbuf.capacity(), false);
+				// Flush Cache
+				myCache.flush();
+			}
+			// Wait for completion of write operation.
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			// Close output stream.
+			out.close();
+
+			MDFSorter.log.log(Level.INFO, new StringBuilder().append("Wrote ").append(writeptr / 1000).append(" kB.").toString());
+			MDFSorter.log.log(Level.INFO, new StringBuilder().append("Writing took ").append(System.currentTimeMillis() - start).append(" ms").toString());
+			MDFSorter.log.log(Level.FINE, new StringBuilder().append("Allocated ").append(myCache.getPool().getAllocated()).append(" write buffers.").toString());
+			MDFSorter.log.log(Level.FINE, new StringBuilder().append("Write buffer stalls: producer ").append(buf.getProducerStalls()).append(" (").append(buf.getProducerStallNanos() / 1_000_000L)
+					.append(" ms), consumer ").append(buf.getConsumerStalls()).append(" (").append(buf.getConsumerStallNanos() / 1_000_000L).append(" ms)").toString());
+
+			if (writeptr != plan.getLength()) {
+				throw new IOException(new StringBuilder().append("Wrote ").append(writeptr).append(" Bytes, but ").append(plan.getLength()).append(" Bytes were planned.").toString());
+			}
+		} finally {
+			// delete temporary files of sections, which were not written.
+			for (var demux : demultiplexed.values()) {
+				demux.close();
+			}
+			demultiplexed.clear();
+			unmapInput();
+		}
+	}
 
-			for (MDF3GenBlock blk : filestructure.getList()) {
-				// copy block if untouched and no problem block
-				if (!blk.gettouched() && blk.getProblems() == null) {
-					if (blk instanceof HDBLOCK) {
-						((HDBLOCK) blk).setNumberOfDataGroups(numberOfDatagroups);
-						writeBlock(blk, null);
-					} else {
-						copyBlock(blk, reader);
-					}
+	@Override
+	protected void writeOutput(FileChannel reader) throws IOException, DataFormatException {
+		// write header block first
+		ByteBuffer headerbuf = ByteBuffer.wrap(MDFParser.readBytes(reader, 0L, MDF4Util.headersize));
+
+		performPut(headerbuf, headerbuf.capacity(), false);
+
+		for (MDF3GenBlock blk : filestructure.getList()) {
+			// copy block if untouched and no problem block
+			if (!blk.gettouched() && blk.getProblems() == null) {
+				if (blk instanceof HDBLOCK) {
+					((HDBLOCK) blk).setNumberOfDataGroups(numberOfDatagroups);
+					writeBlock(blk, null);
+				} else {
+					copyBlock(blk, reader);
+				}
 
+			} else {
+				if (blk.getProblems() != null) {
+					blk.getProblems().forEach(p -> MDFSorter.log.log(Level.FINE, "Problem of Type: " + p.getType()));
+					solveProblem(blk.getProblems());
 				} else {
-					if (blk.getProblems() != null) {
-						blk.getProblems().forEach(p -> MDFSorter.log.log(Level.FINE, "Problem of Type: " + p.getType()));
-						solveProblem(blk.getProblems());
-					} else {
-						// Do nothing if block is part of a bigger Problem.
-						// The Block will be written if the "head block" of the
-						// Problem is processed.
-					}
+					// Do nothing if block is part of a bigger Problem.
+					// The Block will be written if the "head block" of the
+					// Problem is processed.
 				}
 			}
-
-			// Flush Cache
-			myCache.flush();
 		}
-		// Wait for completion of write operation.
-		try {
-			t.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
-		}
-		// Close output stream.
-		out.close();
+	}
 
-		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Wrote ").append(writeptr / 1000).append(" kB.").toString());
-		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Writing took ").append(System.currentTimeMillis() - start).append(" ms").toString());
+	@Override
+	protected byte[] getBytesLink(long outputpos) {
+		return MDF3Util.getBytesLink(outputpos, filestructure.isBigEndian());
+	}
 
-		// Update links with RandomAccessFile
-		RandomAccessFile r = new RandomAccessFile(args.outputname, "rw");
-		for (MDF3GenBlock blk : writtenblocks) {
-			blk.updateLinks(r);
+	@Override
+	protected void saveInputState() {
+		super.saveInputState();
+		// Record ids are reset, if a data group is sorted.
+		savedrecordids = new HashMap<>();
+		for (MDF3GenBlock blk : filestructure.getList()) {
+			if (blk instanceof CGBLOCK) {
+				savedrecordids.put((CGBLOCK) blk, ((CGBLOCK) blk).getRecordId());
+			}
 		}
-		r.close();
-		MDFSorter.log.log(Level.INFO, "Links updated successfully.");
+		savedDGBlockParent = lastDGBlockParent;
+	}
+
+	@Override
+	protected void restoreInputState() {
+		super.restoreInputState();
+		savedrecordids.forEach(CGBLOCK::setRecordId);
+		savedrecordids = null;
+		lastDGBlockParent = savedDGBlockParent;
 	}
 
 	/**
@@ -220,7 +274,7 @@ public class MDF3ProcessWriter extends MDFAbstractProcessWriter<MDF3GenBlock> {
 
 		var datagroup = (DGBLOCK) prob.getStartnode();
 		// sort records.
-		MDF3DataProvider prov = new MDF3DataProvider(datasection, filestructure.getInput());
+		MDF3DataProvider prov = new MDF3DataProvider(datasection, filestructure.getInput(), mapped);
 
 		int idSize = 1;
 
@@ -232,126 +286,73 @@ public class MDF3ProcessWriter extends MDFAbstractProcessWriter<MDF3GenBlock> {
 
 		int i = 0;
 		Map<Integer, Integer> recNumtoArrIdx = new HashMap<>();
-		Map<Integer, Integer> recNumtoSize = new HashMap<>();
-
-		long[] recCounters = new long[groups.size()];
+		long[] recordids = new long[groups.size()];
+		long[] recordsizes = new long[groups.size()];
+		long totalrecords = 0;
 
 		for (CGBLOCK cgroup : groups) {
 
 			// Loop through records, and initialize variables
-			recCounters[i] = cgroup.getCycleCount();
-			int recID = cgroup.getRecordId();
-			recNumtoArrIdx.put(recID, i++);
-			recNumtoSize.put(recID, cgroup.getDataBytes());
+			recordids[i] = cgroup.getRecordId();
+			recordsizes[i] = cgroup.getDataBytes();
+			totalrecords += cgroup.getCycleCount();
+			recNumtoArrIdx.put(cgroup.getRecordId(), i++);
 		}
 
-		long[][] startaddresses = fillRecordArray(recCounters, recNumtoArrIdx, recNumtoSize, prov, redundantids);
-
-		// write new blocks
-		for (CGBLOCK cgroup : groups) {
-			int arridx = recNumtoArrIdx.get(cgroup.getRecordId());
-			MDFSorter.log.fine(new StringBuilder().append("Writing data for Block ").append(arridx).append(".").toString());
-			long newlength;
-
-			long newCycleCount = newCycleCount(startaddresses[arridx]);
-			if (newCycleCount > -1) {
-				// missing records exist, update cycle count
-				// to match number of existing records
-				cgroup.setCycleCount(newCycleCount);
-			}
-
-			// create new datagroup
-			lastDGBlockParent = copyChannelInfrastructure(lastDGBlockParent, cgroup);
-			long reclen = cgroup.getDataBytes();
-			newlength = cgroup.getCycleCount() * cgroup.getDataBytes();
-			var splitmerger = new MDF3BlocksSplittMerger(this, lastDGBlockParent, newlength, prov);
-
-			// write data sections.
-			for (long l : startaddresses[arridx]) {
-				if (l == -1L) {
-					// remaining records are missing => trim
-					break;
+		// Split the records by groups in one pass over the section. Missing
+		// records change the cycle counts, so the section is split while the
+		// layout is planned, and the streams are kept for the write pass.
+		var demux = demultiplexed.get(datasection);
+		if (demux == null) {
+			demux = new RecordDemultiplexer(idSize, recordids, recordsizes, getSpillDirectory(),
+					RecordDemultiplexer.DEFAULT_BUDGET);
+			demultiplexed.put(datasection, demux);
+			demux.setRedundantIds(redundantids);
+			demux.setTrimMissing(true);
+			// MDF3 data is never zipped, large records can always be transferred.
+			demux.setTransfers(filestructure.getInput(), args.transferthreshold);
+			MDFSorter.log.info("Searching Records.");
+			demux.demux(prov, totalrecords);
+			// Only the streams of the last split section stay in memory.
+			for (var kept : demultiplexed.values()) {
+				if (kept != demux) {
+					kept.spill();
 				}
-				splitmerger.splitmerge(l + idSize, reclen);
 			}
-			splitmerger.setLinks();
 		}
-	}
-
-	private long newCycleCount(long[] addrs) {
-		for (int i = 0; i < addrs.length; i++) {
-			if (addrs[i] == -1L) {
-				return i;
-			}
+		if (!planning) {
+			demultiplexed.remove(datasection);
 		}
-		return -1L;
-	}
-
-	public long[][] fillRecordArray(long[] recordCounters, Map<Integer, Integer> recNumtoArrIdx,
-			Map<Integer, Integer> recNumtoSize, AbstractDataProvider prov, boolean redundantids)
-			throws IOException, DataFormatException {
-
-		MDFSorter.log.info("Searching Records.");
-
-		long[][] startaddresses = new long[recordCounters.length][];
-		int idSize = 1;
+		try {
+			// write new blocks
+			for (CGBLOCK cgroup : groups) {
+				int arridx = recNumtoArrIdx.get(cgroup.getRecordId());
+				MDFSorter.log.fine(new StringBuilder().append("Writing data for Block ").append(arridx).append(".").toString());
+				long newlength;
+
+				if (demux.getCount(arridx) < cgroup.getCycleCount()) {
+					// missing records exist, update cycle count
+					// to match number of existing records
+					cgroup.setCycleCount(demux.getCount(arridx));
+				}
 
-		// initilize array.
-		int counter = 0;
-		long totalRecords = 0; // total number of records
-		for (long i : recordCounters) {
-			totalRecords += i;
-			startaddresses[counter++] = new long[(int) i];
-			Arrays.fill(startaddresses[counter - 1], -1L);
-		}
+				// create new datagroup
+				lastDGBlockParent = copyChannelInfrastructure(lastDGBlockParent, cgroup);
+				newlength = cgroup.getCycleCount() * cgroup.getDataBytes();
+				var splitmerger = new MDF3BlocksSplittMerger(this, lastDGBlockParent, newlength, prov);
 
-		int[] foundrecCounters = new int[recordCounters.length];
-
-		long sectionoffset = 0; // our position in the data section
-		long foundrecords = 0; // number of records we found
-
-		ByteBuffer databuf;
-		while (foundrecords < totalRecords) {
-			// Read Group number
-			databuf = prov.cachedRead(sectionoffset, idSize);
-			int foundID = MDF3Util.readUInt8(databuf);
-			var foundsize = recNumtoSize.get(foundID);
-			if (foundsize == null) { // Check if a size was found.
-				if (foundID == 0) {
-					MDFSorter.log.info("Record ID '0' found => cutting off missing records,"
-							+ " since those are not recoverable.");
-					return startaddresses;
+				// write data sections.
+				try (var in = planning ? null : demux.open(arridx)) {
+					splitmerger.splitmerge(in, newlength);
 				}
-				throw new RuntimeException(new StringBuilder().append("Record ID '").append(foundID).append("' does not exist, file may be corrupt.").toString());
-			}
-			if (redundantids) {
-				// do a sanity check with the second id
-				databuf = prov.cachedRead(sectionoffset, idSize + foundsize);
-				int endID = MDF3Util.readUInt8(databuf);
-				if (endID != foundID) {
-					MDFSorter.log
-							.warning(new StringBuilder().append("Found ID ").append(foundID).append(" at start of records, but ID ").append(endID).append(" at its end.")
-									.toString());
-				}
-			}
-			var arridx = recNumtoArrIdx.get(foundID);
-			if (arridx == null) { // Check if an entry was found.
-				throw new RuntimeException(new StringBuilder().append("Record ID ").append(foundID).append(" is not known.").toString());
+				splitmerger.setLinks();
 			}
-			startaddresses[arridx][foundrecCounters[arridx]++] = sectionoffset; // remember
-			// start
-			// of records
-			// Normal-Channel
-			sectionoffset = sectionoffset + foundsize + idSize;
-
-			// Skip id after record
-			if (redundantids) {
-				sectionoffset += 1;
+		} finally {
+			// the streams are not needed after the write pass.
+			if (!planning) {
+				demux.close();
 			}
-			foundrecords++;
 		}
-		MDFSorter.log.fine(new StringBuilder().append("Found ").append(foundrecords).append(" Records.").toString());
-		return startaddresses;
 	}
 
 	public DGBLOCK copyChannelInfrastructure(MDF3GenBlock last, CGBLOCK towrite) throws IOException {
@@ -385,8 +386,9 @@ public class MDF3ProcessWriter extends MDFAbstractProcessWriter<MDF3GenBlock> {
 		ret = new DTBLOCK(filestructure.isBigEndian());
 		ret.setLength(size);
 		ret.setLinkCount(0);
+		beforeBlock();
 		ret.setOutputpos(writeptr);
-		writtenblocks.add(ret);
+		addWrittenBlock(ret);
 		return ret;
 	}
 
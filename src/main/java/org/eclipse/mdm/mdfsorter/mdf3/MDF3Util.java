@@ -16,6 +16,8 @@
 package org.eclipse.mdm.mdfsorter.mdf3;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -25,6 +27,15 @@ import java.nio.ByteOrder;
  */
 public abstract class MDF3Util {
 
+	// Little and big endian views of byte arrays. Numbers are read and written
+	// at an offset of the array, without copying or wrapping it.
+	private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+	private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
 	/**
 	 * Returns the expected number of links for a specific MDF3 Blocktype.
 	 *
@@ -78,6 +89,19 @@ public abstract class MDF3Util {
 		return bb.get() & 0xff;
 	}
 
+	/**
+	 * Read an 8-bit unsigned integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static int readUInt8(byte[] data, int offset) {
+		return data[offset] & 0xff;
+	}
+
 	/**
 	 * Read an 16-bit unsigned integer from the byte buffer.
 	 *
@@ -93,6 +117,22 @@ public abstract class MDF3Util {
 		return bb.getShort() & 0xffff;
 	}
 
+	/**
+	 * Read an 16-bit unsigned integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @param bigendian
+	 *            True, if this number is in BigEndian order, false if
+	 *            LittleEndian.
+	 * @return The value.
+	 */
+	public static int readUInt16(byte[] data, int offset, boolean bigendian) {
+		return readInt16(data, offset, bigendian) & 0xffff;
+	}
+
 	/**
 	 * Get a byte array from an 16-bit unsigned integer. (Little Endian)
 	 *
@@ -104,10 +144,7 @@ public abstract class MDF3Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesUInt16(int val, boolean bigendian) {
-		ByteBuffer b = ByteBuffer.allocate(2);
-		setByteOrder(b, bigendian);
-		b.putShort((short) val);
-		return b.array();
+		return getBytesInt16((short) val, bigendian);
 	}
 
 	/**
@@ -125,6 +162,22 @@ public abstract class MDF3Util {
 		return bb.getShort();
 	}
 
+	/**
+	 * Read an 16-bit signed integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @param bigendian
+	 *            True, if this number is in BigEndian order, false if
+	 *            LittleEndian.
+	 * @return The value.
+	 */
+	public static short readInt16(byte[] data, int offset, boolean bigendian) {
+		return (short) (bigendian ? SHORT_BE : SHORT_LE).get(data, offset);
+	}
+
 	/**
 	 * Get a byte array from an 16-bit signed integer. (Little Endian)
 	 *
@@ -136,10 +189,9 @@ public abstract class MDF3Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesInt16(short val, boolean bigendian) {
-		ByteBuffer b = ByteBuffer.allocate(2);
-		setByteOrder(b, bigendian);
-		b.putShort(val);
-		return b.array();
+		byte[] b = new byte[2];
+		(bigendian ? SHORT_BE : SHORT_LE).set(b, 0, val);
+		return b;
 	}
 
 	/**
@@ -157,6 +209,22 @@ public abstract class MDF3Util {
 		return bb.getInt() & 0xffffffffL;
 	}
 
+	/**
+	 * Read an 32-bit unsigned integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @param bigendian
+	 *            True, if this number is in BigEndian order, false if
+	 *            LittleEndian.
+	 * @return The value.
+	 */
+	public static long readUInt32(byte[] data, int offset, boolean bigendian) {
+		return (int) (bigendian ? INT_BE : INT_LE).get(data, offset) & 0xffffffffL;
+	}
+
 	/**
 	 * Get a byte array form an 32-bit unsigned integer. (Little Endian)
 	 *
@@ -168,10 +236,9 @@ public abstract class MDF3Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesUInt32(long val, boolean bigendian) {
-		ByteBuffer b = ByteBuffer.allocate(4);
-		setByteOrder(b, bigendian);
-		b.putInt((int) val);
-		return b.array();
+		byte[] b = new byte[4];
+		(bigendian ? INT_BE : INT_LE).set(b, 0, (int) val);
+		return b;
 	}
 
 	public static long readUInt64(ByteBuffer bb, boolean bigendian) {
@@ -179,17 +246,24 @@ public abstract class MDF3Util {
 		return bb.getLong();
 	}
 
+	public static long readUInt64(byte[] data, int offset, boolean bigendian) {
+		return (long) (bigendian ? LONG_BE : LONG_LE).get(data, offset);
+	}
+
 	public static byte[] getBytesUInt64(long val, boolean bigendian) {
-		ByteBuffer b = ByteBuffer.allocate(8);
-		setByteOrder(b, bigendian);
-		b.putLong(val);
-		return b.array();
+		byte[] b = new byte[8];
+		(bigendian ? LONG_BE : LONG_LE).set(b, 0, val);
+		return b;
 	}
 
 	public static boolean readBool(ByteBuffer bb, boolean bigendian) {
 		return readUInt16(bb, bigendian) != 0;
 	}
 
+	public static boolean readBool(byte[] data, int offset, boolean bigendian) {
+		return readUInt16(data, offset, bigendian) != 0;
+	}
+
 	public static byte[] getBytesBool(boolean val, boolean bigendian) {
 		if (val) {
 			return getBytesInt16((short) 1, bigendian);
@@ -220,6 +294,22 @@ public abstract class MDF3Util {
 		return readUInt32(bb, bigendian);
 	}
 
+	/**
+	 * Read a LINK from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @param bigendian
+	 *            True, if this number is in BigEndian order, false if
+	 *            LittleEndian.
+	 * @return The value of this link.
+	 */
+	public static long readLink(byte[] data, int offset, boolean bigendian) {
+		return readUInt32(data, offset, bigendian);
+	}
+
 	/**
 	 * Get bytes from a link address.
 	 *
@@ -251,6 +341,23 @@ public abstract class MDF3Util {
 		return new String(b, 0, length, "ISO-8859-1");
 	}
 
+	/**
+	 * Read a String from ISO8859 encoded bytes of a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the first char in the array.
+	 * @param length
+	 *            Number of chars to read.
+	 * @return The result as String.
+	 * @throws IOException
+	 *             If an reading error occurs.
+	 */
+	public static String readCharsISO8859(byte[] data, int offset, int length) throws IOException {
+		return new String(data, offset, length, "ISO-8859-1");
+	}
+
 	public static byte[] getBytesCharsISO8859(String s) throws IOException {
 		return s.getBytes("ISO-8859-1");
 	}
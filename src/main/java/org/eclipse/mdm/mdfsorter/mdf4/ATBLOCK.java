@@ -16,7 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 /**
  * <p>
@@ -97,7 +96,7 @@ public class ATBLOCK extends MDF4GenBlock {
 	@Override
 	public void parse(byte[] content) throws IOException {
 		// Read text String
-		setTxData(MDF4Util.readCharsUTF8(ByteBuffer.wrap(content), content.length));
+		setTxData(MDF4Util.readCharsUTF8(content, 0, content.length));
 		// TODO: Bytes after zero termination?
 	}
 
@@ -17,8 +17,6 @@ package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
 import java.math.BigInteger;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Channel Array Block
@@ -336,23 +334,23 @@ public class CABLOCK extends MDF4GenBlock {
 		setStorageType(content[1]);
 
 		// UINT16: Number of dimensions
-		setChannelDimensions(MDF4Util.readUInt16(MDFParser.getDataBuffer(content, 2, 4)));
+		setChannelDimensions(MDF4Util.readUInt16(content, 2));
 
 		// UINT32: Flags
-		setFlags(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 4, 8)));
+		setFlags(MDF4Util.readUInt32(content, 4));
 
 		// INT32 ByteOffsetBase
-		setByteOffsetBase(MDF4Util.readInt32(MDFParser.getDataBuffer(content, 8, 12)));
+		setByteOffsetBase(MDF4Util.readInt32(content, 8));
 
 		// UINT32 InvalBitPosBase
-		setInvalBitPosBase(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 12, 16)));
+		setInvalBitPosBase(MDF4Util.readUInt32(content, 12));
 
 		// UINT64 * D: Size of each dimension
 		long[] dimSizes = new long[getChannelDimensions()];
 		volume = 1;
 		sumd = 0;
 		for (int d = 0; d < getChannelDimensions(); d++) {
-			dimSizes[d] = MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 16 + 8 * d, 16 + 8 * d + 8));
+			dimSizes[d] = MDF4Util.readUInt64(content, 16 + 8 * d);
 			volume *= dimSizes[d];
 			sumd += dimSizes[d];
 		}
@@ -364,7 +362,7 @@ public class CABLOCK extends MDF4GenBlock {
 			// REAL * SUM(D)
 			double[] axesval = new double[sumd];
 			for (int d = 0; d < sumd; d++) {
-				axesval[d] = MDF4Util.readReal(MDFParser.getDataBuffer(content, currpos, currpos + 8));
+				axesval[d] = MDF4Util.readReal(content, currpos);
 				currpos += 8;
 			}
 
@@ -376,7 +374,7 @@ public class CABLOCK extends MDF4GenBlock {
 		// UINT64* PROD(D)
 		long[] cycCounters = new long[(int) volume];
 		for (int d = 0; d < sumd; d++) {
-			cycCounters[d] = MDF4Util.readUInt64(MDFParser.getDataBuffer(content, currpos, currpos + 8));
+			cycCounters[d] = MDF4Util.readUInt64(content, currpos);
 			currpos += 8;
 		}
 	}
@@ -16,7 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -219,32 +218,31 @@ public class CCBLOCK extends MDF4GenBlock {
 	 */
 	@Override
 	public void parse(byte[] content) throws IOException {
-		ByteBuffer bb = ByteBuffer.wrap(content);
 		// UINT8: Conversion type (formula identifier)
-		setType(MDF4Util.readUInt8(bb));
+		setType(MDF4Util.readUInt8(content, 0));
 
 		// UINT8: Precision for display of floating point values.
-		setPrecision(MDF4Util.readUInt8(bb));
+		setPrecision(MDF4Util.readUInt8(content, 1));
 
 		// UINT16: Flags.
-		setFlags(MDF4Util.readUInt16(bb));
+		setFlags(MDF4Util.readUInt16(content, 2));
 
 		// UINT16: Length M of cc_ref list with additional links.
-		setRefCount(MDF4Util.readUInt16(bb));
+		setRefCount(MDF4Util.readUInt16(content, 4));
 
 		// UINT16: Length N of cc_val list with additional.
-		setValCount(MDF4Util.readUInt16(bb));
+		setValCount(MDF4Util.readUInt16(content, 6));
 
 		// REAL: Minimum physical signal value that occurred for this signal.
-		setPhyRangeMin(MDF4Util.readReal(bb));
+		setPhyRangeMin(MDF4Util.readReal(content, 8));
 
 		// REAL: Maximum physical signal value that occurred for this signal.
-		setPhyRangeMax(MDF4Util.readReal(bb));
+		setPhyRangeMax(MDF4Util.readReal(content, 16));
 
 		// REAL N: List of additional conversion parameters.
 		double[] val = new double[getValCount()];
 		for (int i = 0; i < val.length; i++) {
-			val[i] = MDF4Util.readReal(bb);
+			val[i] = MDF4Util.readReal(content, 24 + 8 * i);
 		}
 		setVal(val);
 	}
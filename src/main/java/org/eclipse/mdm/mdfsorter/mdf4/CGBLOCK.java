@@ -19,8 +19,6 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.util.LinkedList;
 import java.util.List;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Channel Group Block
@@ -223,25 +221,25 @@ public class CGBLOCK extends MDF4GenBlock {
 	public void parse(byte[] content) throws IOException {
 
 		// UINT64: Record ID
-		setRecordId(MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 0, 8)));
+		setRecordId(MDF4Util.readUInt64(content, 0));
 
 		// UINT64: Number of cycles
-		setCycleCount(MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 8, 16)));
+		setCycleCount(MDF4Util.readUInt64(content, 8));
 
 		// UINT16: Flags
-		setFlags(MDF4Util.readUInt16(MDFParser.getDataBuffer(content, 16, 18)));
+		setFlags(MDF4Util.readUInt16(content, 16));
 
 		// UINT16: Value of character to be used as path separator, 0 if no path
 		// separator specified.
-		setPathSeparator(MDF4Util.readUInt16(MDFParser.getDataBuffer(content, 18, 20)));
+		setPathSeparator(MDF4Util.readUInt16(content, 18));
 
 		// UINT32: Number of data Bytes (after record ID) used for signal values
 		// in record.
-		setDataBytes(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 24, 28)));
+		setDataBytes(MDF4Util.readUInt32(content, 24));
 
 		// UINT32: Number of additional Bytes for record used for invalidation
 		// bits.
-		setInvalBytes(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 28, 32)));
+		setInvalBytes(MDF4Util.readUInt32(content, 28));
 	}
 
 	@Override
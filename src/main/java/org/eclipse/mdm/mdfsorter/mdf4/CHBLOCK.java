@@ -16,7 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 /**
  * <p>
@@ -119,12 +118,11 @@ public class CHBLOCK extends MDF4GenBlock {
 	 */
 	@Override
 	public void parse(byte[] content) throws IOException {
-		ByteBuffer bb = ByteBuffer.wrap(content);
 		// UINT32: Number of Channels Referenced.
-		setElementCount(MDF4Util.readUInt32(bb));
+		setElementCount(MDF4Util.readUInt32(content, 0));
 
 		// UINT8: Hierarchy type
-		setHirarchyType(MDF4Util.readUInt8(bb));
+		setHirarchyType(MDF4Util.readUInt8(content, 4));
 	}
 
 }
@@ -17,8 +17,6 @@ package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
 import java.math.BigInteger;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Channel Block.
@@ -399,16 +397,16 @@ public class CNBLOCK extends MDF4GenBlock {
 
 		// UINT32: Offset to first Byte in the data record that contains bits of
 		// the signal value.
-		setByteOffset(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 4, 8)));
+		setByteOffset(MDF4Util.readUInt32(content, 4));
 
 		// UINT32: Number of bits for signal value in record.
-		setBitCount(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 8, 12)));
+		setBitCount(MDF4Util.readUInt32(content, 8));
 
 		// UINT32: Flags
-		setFlags(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 12, 16)));
+		setFlags(MDF4Util.readUInt32(content, 12));
 
 		// UINT32: Position of invalidation bit.
-		setInvalBitPos(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 16, 20)));
+		setInvalBitPos(MDF4Util.readUInt32(content, 16));
 
 		// UINT8: Precision for display of floating point values.
 		setPrecision(content[20]);
@@ -417,29 +415,29 @@ public class CNBLOCK extends MDF4GenBlock {
 
 		// UINT16: Length N of cn_at_reference list, i.e. number of attachments
 		// for this channel. Can be zero.
-		setAttachmentCount(MDF4Util.readUInt16(MDFParser.getDataBuffer(content, 22, 24)));
+		setAttachmentCount(MDF4Util.readUInt16(content, 22));
 
 		// REAL: Minimum signal value that occurred for this signal (raw value)
-		setValRangeMin(MDF4Util.readReal(MDFParser.getDataBuffer(content, 24, 32)));
+		setValRangeMin(MDF4Util.readReal(content, 24));
 
 		// REAL: Maximum signal value that occurred for this signal (raw value)
-		setValRangeMax(MDF4Util.readReal(MDFParser.getDataBuffer(content, 32, 40)));
+		setValRangeMax(MDF4Util.readReal(content, 32));
 
 		// REAL: Lower limit for this signal (physical value for numeric
 		// conversion rule, otherwise raw value)
-		setLimitMin(MDF4Util.readReal(MDFParser.getDataBuffer(content, 40, 48)));
+		setLimitMin(MDF4Util.readReal(content, 40));
 
 		// REAL: Upper limit for this signal (physical value for numeric
 		// conversion rule, otherwise raw value)
-		setLimitMax(MDF4Util.readReal(MDFParser.getDataBuffer(content, 48, 56)));
+		setLimitMax(MDF4Util.readReal(content, 48));
 
 		// REAL: Lower extended limit for this signal (physical value for
 		// numeric conversion rule, otherwise raw value)
-		setLimitExtMin(MDF4Util.readReal(MDFParser.getDataBuffer(content, 56, 64)));
+		setLimitExtMin(MDF4Util.readReal(content, 56));
 
 		// REAL: Upper extended limit for this signal (physical value for
 		// numeric conversion rule, otherwise raw value)
-		setLimitExtMax(MDF4Util.readReal(MDFParser.getDataBuffer(content, 64, 72)));
+		setLimitExtMax(MDF4Util.readReal(content, 64));
 
 	}
 
@@ -16,8 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Data Group Block
@@ -102,7 +100,7 @@ public class DGBLOCK extends MDF4GenBlock {
 	public void parse(byte[] content) throws IOException {
 
 		// UINT8: Number of Bytes used for record IDs in the data block.
-		setRecIdSize(MDF4Util.readUInt8(MDFParser.getDataBuffer(content, 0, 1)));
+		setRecIdSize(MDF4Util.readUInt8(content, 0));
 
 	}
 
@@ -20,7 +20,6 @@ import java.math.BigInteger;
 import java.util.Arrays;
 
 import org.eclipse.mdm.mdfsorter.ArgumentStruct;
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Data List Block The DLBLOCK references a list of data blocks (DTBLOCK) or
@@ -138,14 +137,14 @@ public class DLBLOCK extends MDF4GenBlock {
 
 	@Override
 	public void parse(byte[] content) throws IOException {
-		setFlags(MDF4Util.readUInt8(MDFParser.getDataBuffer(content, 0, 1)));
-		setCount(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 4, 8)));
+		setFlags(MDF4Util.readUInt8(content, 0));
+		setCount(MDF4Util.readUInt32(content, 4));
 		if (isEqualLengthFlag()) {
-			setEqualLength(MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 8, 16)));
+			setEqualLength(MDF4Util.readUInt64(content, 8));
 		} else {
 			long[] offset = new long[(int) getCount()];
 			for (int i = 0; i < offset.length; i++) {
-				offset[i] = MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 8 + 8 * i, 16 + 8 * i));
+				offset[i] = MDF4Util.readUInt64(content, 8 + 8 * i);
 			}
 			setOffset(offset);
 		}
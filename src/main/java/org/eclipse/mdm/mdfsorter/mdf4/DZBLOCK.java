@@ -16,8 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Data Zipped Block. A DZBLOCK stores zipped Data of a DT, SD or DR block
@@ -125,15 +123,15 @@ public class DZBLOCK extends MDF4GenBlock {
 	 */
 	@Override
 	public void parse(byte[] content) throws IOException {
-		setBlock_type(MDF4Util.readCharsUTF8(MDFParser.getDataBuffer(content, 0, 2), 2));
+		setBlock_type(MDF4Util.readCharsUTF8(content, 0, 2));
 
-		setZip_type(MDF4Util.readUInt8(MDFParser.getDataBuffer(content, 2, 3)));
+		setZip_type(MDF4Util.readUInt8(content, 2));
 
-		setZip_parameters(MDF4Util.readUInt32(MDFParser.getDataBuffer(content, 4, 8)));
+		setZip_parameters(MDF4Util.readUInt32(content, 4));
 
-		setOrg_data_length(MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 8, 16)));
+		setOrg_data_length(MDF4Util.readUInt64(content, 8));
 
-		setData_length(MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 16, 24)));
+		setData_length(MDF4Util.readUInt64(content, 16));
 
 	}
 
@@ -146,7 +144,7 @@ public class DZBLOCK extends MDF4GenBlock {
 		byte[] type = MDF4Util.getBytesCharsUTF8(getBlock_type());
 		System.arraycopy(type, 0, ret, 0, 2);
 
-		ret[3] = zip_type;
+		ret[2] = zip_type;
 
 		byte[] zipparam = MDF4Util.getBytesUInt32(zip_parameters);
 		System.arraycopy(zipparam, 0, ret, 4, 4);
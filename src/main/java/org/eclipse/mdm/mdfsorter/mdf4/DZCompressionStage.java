@@ -0,0 +1,370 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter.mdf4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+import org.eclipse.mdm.mdfsorter.ArgumentStruct.ZipMode;
+
+/**
+ * Compresses the data of DZ blocks on a pool of worker threads. Compressed
+ * blocks are written by the process thread, in the order they were submitted,
+ * so the write pointer and all output positions stay correct. Before any other
+ * block is written, all pending blocks are written (see
+ * MDF4ProcessWriter.beforeBlock()).
+ *
+ * The amount of uncompressed data in flight is limited. If it is exceeded, the
+ * process thread waits for the oldest block to be compressed and writes it.
+ *
+ * @see MDF4BlocksSplittMerger
+ */
+public class DZCompressionStage implements AutoCloseable {
+
+	/**
+	 * The ProcessWriter, the compressed blocks are written with.
+	 */
+	private final MDF4ProcessWriter ps;
+
+	/**
+	 * The worker threads, null if blocks are compressed by the process thread.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Maximum number of uncompressed bytes of the blocks in flight.
+	 */
+	private final long maxinflight;
+
+	/**
+	 * Blocks submitted but not written yet, in the order of submission.
+	 */
+	private final ArrayDeque<PendingBlock> pending = new ArrayDeque<>();
+
+	/**
+	 * Uncompressed bytes of all pending blocks.
+	 */
+	private long inflight = 0;
+
+	/**
+	 * Time spent waiting for the workers in ns.
+	 */
+	private long waitnanos = 0;
+
+	/**
+	 * True, if transposition is only used for blocks, where it compresses a
+	 * sample better.
+	 */
+	private final boolean auto;
+
+	/**
+	 * Deflate level and strategy.
+	 */
+	private final int level;
+	private final int strategy;
+
+	/**
+	 * Blocks, whose sample compresses to more than this percentage of its
+	 * size, are not zipped.
+	 */
+	private final int threshold;
+
+	/**
+	 * Statistics, updated by the workers.
+	 */
+	private final LongAdder zippedblocks = new LongAdder();
+	private final LongAdder storedblocks = new LongAdder();
+	private final LongAdder savednanos = new LongAdder();
+
+	/**
+	 * Number of bytes of a block, that are compressed to choose the zip type.
+	 */
+	private static final int SAMPLESIZE = 64 * 1024;
+
+	/**
+	 * A block, whose compression has been started.
+	 */
+	private static class PendingBlock {
+		final DZBLOCK blk;
+		final int length;
+		final Future<ByteBuffer[]> result;
+
+		PendingBlock(DZBLOCK blk, int length, Future<ByteBuffer[]> result) {
+			this.blk = blk;
+			this.length = length;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Create a new compression stage.
+	 *
+	 * @param ps
+	 *            The ProcessWriter, the blocks are written with.
+	 * @param threads
+	 *            Number of worker threads. If 0, blocks are compressed by the
+	 *            calling thread.
+	 * @param maxinflight
+	 *            Maximum number of uncompressed bytes in flight.
+	 */
+	public DZCompressionStage(MDF4ProcessWriter ps, int threads, long maxinflight) {
+		this.ps = ps;
+		this.maxinflight = maxinflight;
+		auto = ps.getArgs().zipmode == ZipMode.AUTO;
+		level = ps.getArgs().ziplevel;
+		strategy = ps.getArgs().zipstrategy;
+		threshold = ps.getArgs().zipthreshold;
+		if (threads > 0) {
+			executor = Executors.newFixedThreadPool(threads, r -> {
+				var t = new Thread(r, "DZ compression");
+				t.setDaemon(true);
+				return t;
+			});
+		} else {
+			executor = null;
+		}
+	}
+
+	/**
+	 * Compresses the data of a DZ block and writes it. The block is written
+	 * after all blocks submitted before, possibly after this method returns.
+	 *
+	 * @param blk
+	 *            The block, with all fields set except the lengths.
+	 * @param data
+	 *            The uncompressed data of this block. It must not be changed
+	 *            afterwards.
+	 */
+	public void submit(DZBLOCK blk, byte[] data) {
+		if (executor == null) {
+			write(blk, compress(blk, data));
+			return;
+		}
+		pending.addLast(new PendingBlock(blk, data.length, executor.submit(() -> compress(blk, data))));
+		inflight += data.length;
+		// write finished blocks, and wait for the oldest block, if too much
+		// data is in flight.
+		while (!pending.isEmpty() && (inflight > maxinflight || pending.peekFirst().result.isDone())) {
+			writeFirst();
+		}
+	}
+
+	/**
+	 * Waits for all pending blocks, and writes them.
+	 */
+	public void drain() {
+		while (!pending.isEmpty()) {
+			writeFirst();
+		}
+	}
+
+	/**
+	 * @return Time the process thread waited for compressed blocks in ns.
+	 */
+	public long getWaitNanos() {
+		return waitnanos;
+	}
+
+	private void writeFirst() {
+		var first = pending.pollFirst();
+		ByteBuffer[] parts;
+		long waitstart = System.nanoTime();
+		try {
+			parts = first.result.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!");
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Compression of DZ block failed.", e.getCause());
+		}
+		waitnanos += System.nanoTime() - waitstart;
+		inflight -= first.length;
+		write(first.blk, parts);
+	}
+
+	/**
+	 * Writes a compressed or plain block at the current write position.
+	 */
+	private void write(DZBLOCK blk, ByteBuffer[] parts) {
+		ps.place(blk);
+		ps.performGatheringPut(parts);
+		ps.writeSpacer(blk.getLength());
+	}
+
+	/**
+	 * Compresses the data of a block, and sets its length fields. If the block
+	 * is marked for transposition, its data is transposed first. If a sample
+	 * of the data does not compress well enough, the block is turned into a
+	 * plain data block (DT or SD) instead.
+	 *
+	 * @param blk
+	 *            The block.
+	 * @param data
+	 *            The uncompressed data.
+	 * @return Header, body and compressed data of the block, or header and
+	 *         data of the plain block.
+	 */
+	ByteBuffer[] compress(DZBLOCK blk, byte[] data) {
+		long start = System.nanoTime();
+		int columnsize = (int) blk.getZip_parameters();
+		boolean transpose = blk.transposeNeeded();
+		ByteBuffer compressed = null;
+
+		if (threshold <= 100 || transpose && auto) {
+			// compress a sample, to choose the zip type.
+			int samplelen = data.length;
+			if (samplelen > SAMPLESIZE) {
+				samplelen = transpose && columnsize <= SAMPLESIZE / 2 ? SAMPLESIZE / columnsize * columnsize
+						: SAMPLESIZE;
+			}
+			byte[] sample = samplelen == data.length ? data : Arrays.copyOf(data, samplelen);
+			ByteBuffer best = null;
+			int passes = 1;
+			if (!transpose || auto) {
+				best = deflate(sample);
+			}
+			if (transpose) {
+				passes = best == null ? 1 : 2;
+				ByteBuffer transposed = deflate(MDF4Util.transposeArray(sample, columnsize, true));
+				if (best == null || transposed.remaining() < best.remaining()) {
+					best = transposed;
+				} else {
+					transpose = false;
+				}
+			}
+
+			if ((long) best.remaining() * 100L > (long) samplelen * threshold) {
+				// Compression does not pay off, store a plain block.
+				// The saved time is estimated from the time one pass over
+				// the sample took.
+				long samplenanos = System.nanoTime() - start;
+				storedblocks.increment();
+				savednanos.add(Math.max(0L,
+						(long) (samplenanos / passes * ((double) data.length / samplelen)) - samplenanos));
+				blk.setId("##" + blk.getBlock_type());
+				blk.setLength(24L + data.length);
+				return new ByteBuffer[] { ByteBuffer.wrap(blk.getHeaderBytes()), ByteBuffer.wrap(data) };
+			}
+			if (samplelen == data.length) {
+				// the sample is the whole block.
+				compressed = best;
+			}
+		}
+
+		if (!transpose && blk.transposeNeeded()) {
+			blk.setZip_type((byte) 0);
+			blk.setZip_parameters(0);
+		}
+		if (compressed == null) {
+			compressed = deflate(transpose ? MDF4Util.transposeArray(data, columnsize, true) : data);
+		}
+		zippedblocks.increment();
+		int compressedDataLength = compressed.remaining();
+
+		blk.setLength(24L + 24L + compressedDataLength);
+		blk.setData_length(compressedDataLength);
+		try {
+			return new ByteBuffer[] { ByteBuffer.wrap(blk.getHeaderBytes()), ByteBuffer.wrap(blk.getBodyBytes()),
+					compressed };
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Deflates data with the configured level and strategy.
+	 *
+	 * @return A ByteBuffer, whose remaining bytes are the compressed data.
+	 */
+	private ByteBuffer deflate(byte[] data) {
+		// large enough for incompressible data (see zlib's compressBound)
+		byte[] output = new byte[data.length + (data.length >> 12) + (data.length >> 14) + (data.length >> 25) + 13];
+		int compressedDataLength = 0;
+		var compresser = new Deflater(level);
+		try {
+			compresser.setStrategy(strategy);
+			compresser.setInput(data);
+			compresser.finish();
+			while (!compresser.finished()) {
+				if (compressedDataLength == output.length) {
+					output = Arrays.copyOf(output, output.length * 2);
+				}
+				compressedDataLength += compresser.deflate(output, compressedDataLength,
+						output.length - compressedDataLength);
+			}
+		} finally {
+			// free the native memory, even if deflating failed.
+			compresser.end();
+		}
+		return ByteBuffer.wrap(output, 0, compressedDataLength);
+	}
+
+	/**
+	 * @return Number of blocks written as DZ blocks.
+	 */
+	public long getZippedBlocks() {
+		return zippedblocks.sum();
+	}
+
+	/**
+	 * @return Number of blocks written as plain blocks, because they did not
+	 *         compress well enough.
+	 */
+	public long getStoredBlocks() {
+		return storedblocks.sum();
+	}
+
+	/**
+	 * @return Estimated CPU time in ns, which was saved by not compressing
+	 *         the plain blocks.
+	 */
+	public long getSavedNanos() {
+		return savednanos.sum();
+	}
+
+	/**
+	 * Adds the statistics of another stage, which wrote a section of the same
+	 * output.
+	 *
+	 * @param other
+	 *            The other stage.
+	 */
+	void addStatistics(DZCompressionStage other) {
+		zippedblocks.add(other.getZippedBlocks());
+		storedblocks.add(other.getStoredBlocks());
+		savednanos.add(other.getSavedNanos());
+	}
+
+	/*
+	 * Stops the worker threads. Pending blocks are discarded, drain() has to
+	 * be called before, to write them.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,277 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter.mdf4;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.mdm.mdfsorter.MDFSorter;
+
+/**
+ * Reads and inflates the DZ blocks of a data list ahead of time, on a pool of
+ * worker threads. A walk over a DL or HL chain is started with
+ * <code>walk()</code>. Each time a block of this list is needed, the following
+ * blocks are scheduled, so that at most <code>depth</code> blocks are
+ * inflated or waiting ahead of the consumer.
+ *
+ * Workers only use positional reads on the input, the position of the input
+ * channel is not changed. Workers are never interrupted: interrupting a read
+ * of the FileChannel would close it for all readers. Blocks, which are not
+ * needed anymore, are inflated to the end and thrown away.
+ *
+ * @see ZippedDataCache
+ */
+public class DZReadAhead implements AutoCloseable {
+
+	/**
+	 * The input file.
+	 */
+	private final FileChannel reader;
+
+	/**
+	 * The worker threads.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Maximum number of blocks scheduled ahead.
+	 */
+	private final int depth;
+
+	/**
+	 * DZ blocks of the current walk, in list order, and their indices.
+	 */
+	private List<DZBLOCK> order = new ArrayList<>();
+	private Map<DZBLOCK, Integer> indices = new HashMap<>();
+
+	/**
+	 * Index of the next block to schedule.
+	 */
+	private int next = 0;
+
+	/**
+	 * Scheduled blocks, ordered by their index.
+	 */
+	private final ArrayDeque<PendingBlock> pending = new ArrayDeque<>();
+
+	/**
+	 * Number of blocks taken from the workers, and inflated by the caller.
+	 */
+	private long hits = 0;
+	private long misses = 0;
+
+	/**
+	 * A block, whose inflation has been started.
+	 */
+	private static class PendingBlock {
+		final int index;
+		final Future<byte[]> result;
+
+		PendingBlock(int index, Future<byte[]> result) {
+			this.index = index;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Create a new read-ahead.
+	 *
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param threads
+	 *            Number of worker threads, also the number of blocks read
+	 *            ahead.
+	 */
+	public DZReadAhead(FileChannel reader, int threads) {
+		this.reader = reader;
+		depth = threads;
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			var t = new Thread(r, "DZ inflation");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Starts a new walk over a data list. Blocks of a previous walk, which
+	 * were not taken yet, are discarded.
+	 *
+	 * @param head
+	 *            The first DL or HL block of the list.
+	 */
+	public void walk(MDF4GenBlock head) {
+		discard();
+		order = new ArrayList<>();
+		indices = new HashMap<>();
+		next = 0;
+		MDF4GenBlock dlnode = head instanceof HLBLOCK ? head.getLink(0) : head;
+		while (dlnode != null) {
+			for (int i = 1; i < dlnode.getLinkCount(); i++) {
+				MDF4GenBlock blk = dlnode.getLink(i);
+				if (blk instanceof DZBLOCK) {
+					indices.put((DZBLOCK) blk, order.size());
+					order.add((DZBLOCK) blk);
+				}
+			}
+			dlnode = dlnode.getLink(0);
+		}
+	}
+
+	/**
+	 * Returns the uncompressed data of a block of the current walk, and
+	 * schedules the following blocks. Blocks before this one are discarded.
+	 *
+	 * @param dzblk
+	 *            The block.
+	 * @return The uncompressed and transposed data, or null if the block is
+	 *         not part of the current walk.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	public byte[] take(DZBLOCK dzblk) throws DataFormatException, IOException {
+		Integer index = indices.get(dzblk);
+		if (index == null) {
+			return null;
+		}
+		while (!pending.isEmpty() && pending.peekFirst().index < index) {
+			pending.pollFirst().result.cancel(false);
+		}
+		PendingBlock own = null;
+		if (!pending.isEmpty() && pending.peekFirst().index == index) {
+			own = pending.pollFirst();
+		}
+
+		// keep the workers busy, while this block is inflated or waited for.
+		next = Math.max(next, index + 1);
+		while (pending.size() < depth && next < order.size()) {
+			var blk = order.get(next);
+			pending.addLast(new PendingBlock(next, executor.submit(() -> inflate(reader, blk))));
+			next++;
+		}
+
+		if (own == null) {
+			misses++;
+			return inflate(reader, dzblk);
+		}
+		hits++;
+		try {
+			return own.result.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof DataFormatException) {
+				throw (DataFormatException) e.getCause();
+			} else if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	/**
+	 * @return Number of blocks, which were inflated ahead of time.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return Number of blocks, which were inflated when they were needed.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Reads and inflates a DZ block, and transposes its data if needed.
+	 *
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param dzblk
+	 *            The block.
+	 * @return The uncompressed data.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	static byte[] inflate(FileChannel reader, DZBLOCK dzblk) throws DataFormatException, IOException {
+		byte[] uncompressedData = new byte[(int) dzblk.getOrg_data_length()];
+		ByteBuffer compressedData = ByteBuffer.allocate((int) dzblk.getData_length());
+		// Skip header section of DZ Block
+		long pos = dzblk.getPos() + 48L;
+		while (compressedData.hasRemaining()) {
+			int read = reader.read(compressedData, pos);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file in DZ block.");
+			}
+			pos += read;
+		}
+		var decompresser = new Inflater();
+		int resultLength;
+		try {
+			decompresser.setInput(compressedData.array(), 0, (int) dzblk.getData_length());
+			resultLength = decompresser.inflate(uncompressedData);
+		} finally {
+			// free the native memory, even if the data is invalid.
+			decompresser.end();
+		}
+
+		if (dzblk.transposeNeeded()) {
+			int columnsize = (int) dzblk.getZip_parameters();
+			uncompressedData = MDF4Util.transposeArray(uncompressedData, columnsize, false);
+			MDFSorter.log.log(Level.FINER, new StringBuilder().append("Transposing data with columnsize ").append(columnsize).append(".").toString());
+		}
+
+		if (resultLength != dzblk.getOrg_data_length()) {
+			throw new RuntimeException(new StringBuilder().append("Data gain or loss detected while unziping. Expected ").append(dzblk.getOrg_data_length()).append(" bytes, got ").append(resultLength).toString());
+		}
+		MDFSorter.log.log(Level.FINER, new StringBuilder().append("Unzipped block of size ").append(resultLength).append(".").toString());
+		return uncompressedData;
+	}
+
+	private void discard() {
+		while (!pending.isEmpty()) {
+			pending.pollFirst().result.cancel(false);
+		}
+	}
+
+	/*
+	 * Stops the worker threads, after they have finished their current blocks.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() {
+		discard();
+		executor.shutdown();
+	}
+}
@@ -16,8 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The File History Block.
@@ -103,10 +101,10 @@ public class FHBLOCK extends MDF4GenBlock {
 
 	@Override
 	public void parse(byte[] content) throws IOException {
-		setTime_ns(MDF4Util.readUInt64(MDFParser.getDataBuffer(content, 0, 8)));
-		setTz_offset_min(MDF4Util.readInt16(MDFParser.getDataBuffer(content, 8, 10)));
-		setDst_offset_min(MDF4Util.readInt16(MDFParser.getDataBuffer(content, 10, 12)));
-		setTime_flags(MDF4Util.readUInt8(MDFParser.getDataBuffer(content, 12, 13)));
+		setTime_ns(MDF4Util.readUInt64(content, 0));
+		setTz_offset_min(MDF4Util.readInt16(content, 8));
+		setDst_offset_min(MDF4Util.readInt16(content, 10));
+		setTime_flags(MDF4Util.readUInt8(content, 12));
 	}
 
 	@Override
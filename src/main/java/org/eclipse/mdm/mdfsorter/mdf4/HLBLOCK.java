@@ -16,8 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-
-import org.eclipse.mdm.mdfsorter.MDFParser;
 
 /**
  * The Header List Block HLBLOCK, list header for a datalist (DLBLOCK),
@@ -88,8 +86,8 @@ public class HLBLOCK extends MDF4GenBlock {
 
 	@Override
 	public void parse(byte[] content) throws IOException {
-		setFlags(MDF4Util.readUInt16(MDFParser.getDataBuffer(content, 0, 2)));
-		setZiptype(MDF4Util.readUInt8(MDFParser.getDataBuffer(content, 2, 3)));
+		setFlags(MDF4Util.readUInt16(content, 0));
+		setZiptype(MDF4Util.readUInt8(content, 2));
 	}
 
 	@Override
@@ -16,7 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 /**
  * <p>
@@ -77,7 +76,7 @@ public class MDBLOCK extends MDF4GenBlock {
 	@Override
 	public void parse(byte[] content) throws IOException {
 		// ReadXML String
-		setMdData(MDF4Util.readCharsUTF8(ByteBuffer.wrap(content), content.length));
+		setMdData(MDF4Util.readCharsUTF8(content, 0, content.length));
 		// TODO: Bytes after zero termination?
 	}
 
@@ -18,8 +18,11 @@ package org.eclipse.mdm.mdfsorter.mdf4;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.zip.DataFormatException;
-import java.util.zip.Deflater;
+
+import org.eclipse.mdm.mdfsorter.ArgumentStruct.ZipMode;
+import org.eclipse.mdm.mdfsorter.RecordDemultiplexer;
 
 /**
  * Main Processor for Block Merging. Data Blocks found in the DataList can just
@@ -83,6 +86,12 @@ public class MDF4BlocksSplittMerger {
 	 */
 	private final long totdatalength;
 
+	/**
+	 * Length of one record in the new Data section, used as column size for
+	 * transposed zip blocks. 0, if records have no fixed length.
+	 */
+	private long recordlength = 0;
+
 	/**
 	 * Amount of bytes of data written behind the output block
 	 */
@@ -120,7 +129,7 @@ public class MDF4BlocksSplittMerger {
 	 * An offset in the original Block, only used, if the block that is read
 	 * from is known (towrite != null)
 	 */
-	private int BlockReadPtr = 0;
+	private long BlockReadPtr = 0;
 
 	/**
 	 * An offset in the global data section, only used, if the block that is
@@ -128,6 +137,12 @@ public class MDF4BlocksSplittMerger {
 	 */
 	private long GlobalReadPtr = 0;
 
+	/**
+	 * Stream that is read from, only used while a stream is appended. (see
+	 * splitmerge(ReadableByteChannel, long))
+	 */
+	private ReadableByteChannel source;
+
 	/**
 	 * Data Provider for reading blocks. This Object manages unzipping of
 	 * blocks.
@@ -165,7 +180,7 @@ public class MDF4BlocksSplittMerger {
 		this.parentnode = parentnode;
 		reader = ps.getFilestructure().getInput();
 
-		prov = new MDF4DataProvider(oldsection, reader);
+		prov = new MDF4DataProvider(oldsection, reader, ps.getReadAhead(), ps.getMappedInput());
 		totdatalength = prov.getLength();
 		try {
 			createStructure();
@@ -208,6 +223,17 @@ public class MDF4BlocksSplittMerger {
 		}
 	}
 
+	/**
+	 * Sets the length of one record. If records have a fixed length, zip
+	 * blocks may be transposed by records before they are deflated.
+	 *
+	 * @param recordlength
+	 *            The length of one record in bytes.
+	 */
+	public void setRecordLength(long recordlength) {
+		this.recordlength = recordlength;
+	}
+
 	public MDF4GenBlock getStructuralRoot() {
 		return structuralroot;
 	}
@@ -216,7 +242,9 @@ public class MDF4BlocksSplittMerger {
 	 * Main method of this class. This method writes out the data section of the
 	 * Block <code>datablock</code> to the file, or buffers it for later output.
 	 * The data section is merged with data of other blocks or splitted if
-	 * needed in this step of processing.
+	 * needed in this step of processing. Large unzipped blocks are passed
+	 * through from the input file, if the output is not zipped (see
+	 * canTransfer).
 	 *
 	 * @param datablock
 	 *            The datablock to be processed.
@@ -226,7 +254,7 @@ public class MDF4BlocksSplittMerger {
 	 *             If zipped data is given an an invalid format.
 	 */
 	public void splitmerge(MDF4GenBlock datablock) throws IOException, DataFormatException {
-		prov = new MDF4DataProvider(datablock, reader);
+		prov = new MDF4DataProvider(datablock, reader, ps.getReadAhead(), ps.getMappedInput());
 		BlockReadPtr = 0;
 		long leftbytes;
 		if ("##DZ".equals(datablock.getId())) {
@@ -258,6 +286,30 @@ public class MDF4BlocksSplittMerger {
 		appendDataFromPos(length);
 	}
 
+	/**
+	 * Append the next <code>length</code> bytes of a stream to the output,
+	 * e.g. the records of a channel group, split by a RecordDemultiplexer.
+	 *
+	 * @param source
+	 *            The stream to read from. May be null, while the layout is
+	 *            planned.
+	 * @param length
+	 *            Number of bytes to append.
+	 * @throws IOException
+	 *             If an I/O error occurs, or the stream ends before.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	public void splitmerge(ReadableByteChannel source, long length) throws IOException, DataFormatException {
+		towrite = null;
+		this.source = source;
+		try {
+			appendDataFromPos(length);
+		} finally {
+			this.source = null;
+		}
+	}
+
 	/**
 	 * Reads leftbytes from the current position and appends them to the output
 	 * section
@@ -315,8 +367,8 @@ public class MDF4BlocksSplittMerger {
 	/**
 	 * Check if this block is entirely filled with data and writes a spacer for
 	 * 8-byte alignment if needed. If the current block is a zip block (in which
-	 * case Data is not buffered but stored internally) it is written in this
-	 * step.
+	 * case Data is not buffered but stored internally) it is passed on to be
+	 * compressed and written in this step.
 	 *
 	 * @throws IOException
 	 *             If an I/O error occurs.
@@ -324,23 +376,9 @@ public class MDF4BlocksSplittMerger {
 	public void checkfinalized() throws IOException {
 		if (datawritten == thisblockend) {
 			if ("##DZ".equals(curr.getId())) {
-				// Compress the bytes
-				var dzblk = (DZBLOCK) curr;
-				byte[] output = new byte[(int) dzblk.getOrg_data_length()];
-				var compresser = new Deflater();
-				compresser.setInput(uncompressedoutData);
-				compresser.finish();
-				int compressedDataLength = compresser.deflate(output);
-				compresser.end();
-
-				// write DZBlock
-				dzblk.setLength(24L + 24L + compressedDataLength);
-				dzblk.setData_length(compressedDataLength);
-
-				ps.performPut(dzblk.getHeaderBytes());
-				ps.performPut(dzblk.getBodyBytes());
-				ps.performPut(ByteBuffer.wrap(output), compressedDataLength, false);
-				ps.writeSpacer(compressedDataLength);
+				// Compress the bytes and write DZBlock
+				ps.writeDZBlock((DZBLOCK) curr, uncompressedoutData);
+				uncompressedoutData = null;
 			} else {
 				ps.writeSpacer(curr.getLength());
 			}
@@ -348,6 +386,20 @@ public class MDF4BlocksSplittMerger {
 		}
 	}
 
+	/**
+	 * Checks, if the data of a block is passed through from the input file to
+	 * the output, without reading it (see splitmerge(MDF4GenBlock)). This is
+	 * the case for unzipped blocks of at least transferthreshold bytes, if
+	 * the output is not zipped.
+	 *
+	 * @param datablock
+	 *            The block to check.
+	 * @return True, if the block's data is transferred.
+	 */
+	public boolean canTransfer(MDF4GenBlock datablock) {
+		return unzip && !"##DZ".equals(datablock.getId()) && datablock.getLength() - 24L >= ps.getArgs().transferthreshold;
+	}
+
 	/**
 	 * This method has the same effect as if data was read from the stream.
 	 * Except that if curr is a Zip-Block, the data is unzipped first.
@@ -364,7 +416,18 @@ public class MDF4BlocksSplittMerger {
 		// blockwise
 		// System.out.println(length);
 		// not blockwise
-		if (towrite == null) {
+		if (source != null) {
+			// read from a stream
+			ByteBuffer datasection = ByteBuffer.allocate(length);
+			while (datasection.hasRemaining()) {
+				if (source.read(datasection) < 0) {
+					throw new IOException("Unexpected end of stream.");
+				}
+			}
+			datasection.flip();
+			return datasection;
+		}
+		if (towrite == null) {
 			// not blockwise
 			return prov.cachedRead(GlobalReadPtr, length);
 		}
@@ -396,8 +459,8 @@ public class MDF4BlocksSplittMerger {
 			buf.get(uncompressedoutData, uncompressedWritePtr, length);
 			uncompressedWritePtr += length;
 		} else {
-			if (towrite != null) {
-				// blockwise mode, no read cache used.
+			if (towrite != null || source != null) {
+				// blockwise or stream mode, no read cache used.
 				ps.performPut(buf, length, false);
 			} else {
 				// not blockwise, read cache is used.
@@ -452,12 +515,18 @@ public class MDF4BlocksSplittMerger {
 			dzblock.setLinkCount(0);
 			dzblock.setOrg_data_length(newblocklength);
 			uncompressedoutData = new byte[(int) newblocklength];
-			dzblock.setOutputpos(ps.getWriteptr());
-			dzblock.setZip_type((byte) 0);
+			if (ps.getArgs().zipmode != ZipMode.DEFLATE && recordlength > 1 && newblocklength >= 2 * recordlength) {
+				// transposition + deflate, the compression stage may still
+				// fall back to deflate in auto mode.
+				dzblock.setZip_type((byte) 1);
+				dzblock.setZip_parameters(recordlength);
+			} else {
+				dzblock.setZip_type((byte) 0);
+			}
 			ret = dzblock;
 		}
 
-		ps.getWrittenblocks().add(ret);
+		ps.addWrittenBlock(ret);
 
 		if (parentlist != null) {
 			parentlist.addLink((int) (blockcounter % MAX_LIST_COUNT) + 1, ret);
@@ -516,6 +585,34 @@ public class MDF4BlocksSplittMerger {
 	 *             If zipped data is in an invalid format.
 	 */
 	public void abstractcopy(long length) throws IOException, DataFormatException {
+		if (ps.isPlanning()) {
+			// Only the layout is planned, data is not needed.
+			ps.performSkip(length);
+			return;
+		}
+		if (towrite != null && canTransfer(towrite)) {
+			// pass the data through without reading it.
+			ps.performTransfer(reader, towrite.getPos() + 24L + BlockReadPtr, length);
+			BlockReadPtr += length;
+			return;
+		}
+		if (source instanceof RecordDemultiplexer.GroupChannel && !"##DZ".equals(curr.getId())) {
+			// large records are passed through, the rest is read in chunks.
+			var in = (RecordDemultiplexer.GroupChannel) source;
+			long written = 0L;
+			while (written < length) {
+				long n = in.transfer(ps, length - written);
+				if (n == 0) {
+					n = Math.min(Math.min(length - written, in.getInlineLength()), MDF4ProcessWriter.MAX_OUTPUTBLOCKSIZE);
+					if (n == 0) {
+						throw new IOException("Unexpected end of stream.");
+					}
+					abstractput(abstractread((int) n), (int) n);
+				}
+				written += n;
+			}
+			return;
+		}
 		long written = 0L;
 		do {
 			int bytesread = 0;
@@ -15,12 +15,14 @@
 
 package org.eclipse.mdm.mdfsorter.mdf4;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.zip.DataFormatException;
 
 import org.eclipse.mdm.mdfsorter.AbstractDataProvider;
+import org.eclipse.mdm.mdfsorter.MappedInput;
 import org.eclipse.mdm.mdfsorter.ReadDataCache;
 
 /**
@@ -49,6 +51,20 @@ public class MDF4DataProvider implements AbstractDataProvider {
 	private ZippedDataCache cache;
 
 	private ReadDataCache ReadCache;
+
+	/**
+	 * The mapped input file, or null if reads go to the channel.
+	 */
+	private MappedInput mapped;
+
+	/**
+	 * Index of the data blocks of this section, in order of their data. starts
+	 * holds the offset of each block in the section, and the length of the
+	 * section as last entry. Built once, when the provider is created.
+	 */
+	private MDF4GenBlock[] blocks;
+	private long[] starts;
+
 	/**
 	 * LastProcessed block.
 	 */
@@ -60,7 +76,7 @@ public class MDF4DataProvider implements AbstractDataProvider {
 	private long lastprocessedstart;
 
 	/**
-	 * LastProcessed block's start in this data section
+	 * LastProcessed block's end in this data section
 	 */
 	private long lastprocessedend;
 
@@ -81,6 +97,38 @@ public class MDF4DataProvider implements AbstractDataProvider {
 	 *            FileChannel to the input file.
 	 */
 	public MDF4DataProvider(MDF4GenBlock datasectionhead, FileChannel reader) {
+		this(datasectionhead, reader, null);
+	}
+
+	/**
+	 * Creates a new DataProvider, which reads the DZ blocks of a data list
+	 * ahead of time.
+	 *
+	 * @param datasectionhead
+	 *            The header of the data section
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param readahead
+	 *            The read-ahead for DZ blocks, or null.
+	 */
+	public MDF4DataProvider(MDF4GenBlock datasectionhead, FileChannel reader, DZReadAhead readahead) {
+		this(datasectionhead, reader, readahead, null);
+	}
+
+	/**
+	 * Creates a new DataProvider, which reads the DZ blocks of a data list
+	 * ahead of time, and other data from the mapped input file.
+	 *
+	 * @param datasectionhead
+	 *            The header of the data section
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param readahead
+	 *            The read-ahead for DZ blocks, or null.
+	 * @param mapped
+	 *            The mapped input file, or null.
+	 */
+	public MDF4DataProvider(MDF4GenBlock datasectionhead, FileChannel reader, DZReadAhead readahead, MappedInput mapped) {
 		// empty data section
 		if (datasectionhead == null) {
 			sectype = '0';
@@ -88,7 +136,7 @@ public class MDF4DataProvider implements AbstractDataProvider {
 		}
 		this.datasectionhead = datasectionhead;
 		this.reader = reader;
-		cache = new ZippedDataCache(reader);
+		this.mapped = mapped;
 
 		switch (datasectionhead.getId()) {
 		case "##DT":
@@ -112,9 +160,15 @@ public class MDF4DataProvider implements AbstractDataProvider {
 			System.err.println("Unknown blocktype in DataProvider.");
 		}
 
+		buildIndex();
 		sectionlength = calculateLength();
 
-		cache = new ZippedDataCache(reader);
+		// this list is read in order, the following DZ blocks can be
+		// inflated ahead of time.
+		if (readahead != null && (sectype == 'l' || sectype == 'h')) {
+			readahead.walk(this.datasectionhead);
+		}
+		cache = new ZippedDataCache(reader, readahead);
 		ReadCache = new ReadDataCache(this);
 
 	}
@@ -145,7 +199,7 @@ public class MDF4DataProvider implements AbstractDataProvider {
 	 *             If zipped data is in an invalid format.
 	 */
 	@Override
-	public void read(long globaloffset, ByteBuffer data) throws IOException, DataFormatException {
+	public synchronized void read(long globaloffset, ByteBuffer data) throws IOException, DataFormatException {
 
 		if (globaloffset + data.capacity() > sectionlength) {
 			throw new IllegalArgumentException(
@@ -157,56 +211,75 @@ public class MDF4DataProvider implements AbstractDataProvider {
 			return;
 		}
 
-		MDF4GenBlock blk = null;
-		long blkoffset = 0;
-
-		// check if block was last processed block (performance optimization)
-		if (lastprocessed != null) {
-			if (lastprocessedstart <= globaloffset && lastprocessedend > globaloffset) {
-				blk = lastprocessed;
-				blkoffset = globaloffset - lastprocessedstart;
+		// read from one block after another, directly into data.
+		long offset = globaloffset;
+		while (data.position() < data.capacity()) {
+			locate(offset);
+			int n = (int) Math.min(data.capacity() - data.position(), lastprocessedend - offset);
+			ByteBuffer part = data.duplicate();
+			part.limit(part.position() + n);
+			if ("##DZ".equals(lastprocessed.getId())) {
+				cache.read((DZBLOCK) lastprocessed, offset - lastprocessedstart, part);
+			} else {
+				readPlain(lastprocessed.getPos() + 24L + offset - lastprocessedstart, part);
 			}
+			data.position(data.position() + n);
+			offset += n;
 		}
+		data.rewind();
+	}
 
-		// we need to search for the block to read from
-		if (blk == null) {
-			var bo = getBlockWithOffset(globaloffset);
-			blk = (MDF4GenBlock) bo[0];
-			blkoffset = (long) bo[1];
-			lastprocessedstart = (long) bo[2];
-			lastprocessed = blk;
-			long lpdatasize = lastprocessed instanceof DZBLOCK ? ((DZBLOCK) lastprocessed).getOrg_data_length()
-					: lastprocessed.getLength() - 24L;
-			lastprocessedend = lastprocessedstart + lpdatasize;
+	/**
+	 * Sets lastprocessed to the block, which contains the data starting at
+	 * globaloffset.
+	 *
+	 * @param globaloffset
+	 *            The offset that is looked for in this data section.
+	 */
+	private void locate(long globaloffset) {
+		// check if block was last processed block (performance optimization)
+		if (lastprocessed != null && lastprocessedstart <= globaloffset && lastprocessedend > globaloffset) {
+			return;
 		}
 
-		// length check
-		long datasize = blk instanceof DZBLOCK ? ((DZBLOCK) blk).getOrg_data_length() : blk.getLength() - 24L;
-		if (blkoffset + data.capacity() > datasize) {
-			int readablesize = (int) (datasize - blkoffset);
-			ByteBuffer readable = ByteBuffer.allocate(readablesize);
-
-			// divide and conquer: Read available section first
-			read(globaloffset, readable);
-
-			// read unavailable section
-			ByteBuffer unreadable = ByteBuffer.allocate(data.capacity() - readablesize);
-			read(globaloffset + readablesize, unreadable);
-
-			// merge sections
-			data.put(readable);
-			data.put(unreadable);
-			data.rewind();
-			return;
+		// the last block starting at or before globaloffset, empty blocks are
+		// skipped this way.
+		int lo = 0;
+		int hi = blocks.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (starts[mid] <= globaloffset) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
 		}
+		lastprocessed = blocks[lo];
+		lastprocessedstart = starts[lo];
+		lastprocessedend = starts[lo + 1];
+	}
 
-		if ("##DZ".equals(blk.getId())) {
-			cache.read((DZBLOCK) blk, blkoffset, data);
-		} else {
-			reader.position(blk.getPos() + 24L + blkoffset);
-			reader.read(data);
+	/**
+	 * Reads data of an unzipped block, from the mapped file if possible.
+	 *
+	 * @param pos
+	 *            Position in the file.
+	 * @param data
+	 *            The ByteBuffer to read in.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 */
+	private void readPlain(long pos, ByteBuffer data) throws IOException {
+		if (mapped == null || !mapped.read(pos, data)) {
+			while (data.hasRemaining()) {
+				int read = reader.read(data, pos);
+				if (read < 0) {
+					throw new EOFException(new StringBuilder().append("Unexpected end of input file at position ").append(pos).append(", ").append(data.remaining())
+							.append(" bytes are missing.").toString());
+				}
+				pos += read;
+			}
 		}
-		data.rewind();
 	}
 
 	/**
@@ -234,6 +307,19 @@ public class MDF4DataProvider implements AbstractDataProvider {
 		}
 
 		if (dataarr == null) {
+			// Records within an unzipped block are sliced from the mapped
+			// file. The read cache may read ahead on another thread.
+			if (mapped != null && sectype != 'z') {
+				synchronized (this) {
+					locate(globaloffset);
+					if (globaloffset + length <= lastprocessedend && !"##DZ".equals(lastprocessed.getId())) {
+						var slice = mapped.slice(lastprocessed.getPos() + 24L + globaloffset - lastprocessedstart, length);
+						if (slice != null) {
+							return slice;
+						}
+					}
+				}
+			}
 			return ReadCache.read(globaloffset, length);
 		}
 		var data = ByteBuffer.allocate(length);
@@ -243,6 +329,24 @@ public class MDF4DataProvider implements AbstractDataProvider {
 
 	}
 
+	/*
+	 * Parts within one unzipped block are stored as they are.
+	 *
+	 * @see org.eclipse.mdm.mdfsorter.AbstractDataProvider#getFilePosition(long,
+	 * long)
+	 */
+	@Override
+	public synchronized long getFilePosition(long globaloffset, long length) {
+		if (dataarr != null || blocks == null || sectype == 'z' || globaloffset + length > sectionlength) {
+			return -1;
+		}
+		locate(globaloffset);
+		if (globaloffset + length > lastprocessedend || "##DZ".equals(lastprocessed.getId())) {
+			return -1;
+		}
+		return lastprocessed.getPos() + 24L + globaloffset - lastprocessedstart;
+	}
+
 	/**
 	 * Reads data.limit() bytes from Block blk, starting at blockoffset, from
 	 * the start of blk's data. Using this Method is more efficent if the block,
@@ -260,7 +364,7 @@ public class MDF4DataProvider implements AbstractDataProvider {
 	 * @throws DataFormatException
 	 *             If zipped data is in an invalid format.
 	 */
-	public void read(long blockoffset, ByteBuffer data, MDF4GenBlock blk) throws IOException, DataFormatException {
+	public synchronized void read(long blockoffset, ByteBuffer data, MDF4GenBlock blk) throws IOException, DataFormatException {
 		// argument check
 		long datalength = blk instanceof DZBLOCK ? ((DZBLOCK) blk).getOrg_data_length() : blk.getLength() - 24L;
 		if (blockoffset + data.capacity() > datalength) {
@@ -271,75 +375,47 @@ public class MDF4DataProvider implements AbstractDataProvider {
 		if ("##DZ".equals(blk.getId())) {
 			cache.read((DZBLOCK) blk, blockoffset, data);
 		} else {
-			reader.position(blk.getPos() + 24L + blockoffset);
-			reader.read(data);
+			readPlain(blk.getPos() + 24L + blockoffset, data);
 			data.rewind();
 		}
 	}
 
 	/**
-	 * Returns the block which contains the data starting at globaloffset and
-	 * the internal offset, where to start reading in the block.
-	 *
-	 * @param globaloffset
-	 *            The offset that is looked for in this data section
-	 * @return An Array with length 2. The Block (Type MDF4GenBlock) is stored
-	 *         at index 0, the offset (long) at index 1.
+	 * Builds the index of all data blocks of this section, across all linked
+	 * lists.
 	 */
-	private Object[] getBlockWithOffset(long globaloffset) {
-		var ret = new Object[3];
-		// No list walking needed, only a single block
+	private void buildIndex() {
 		if (sectype == 'd' || sectype == 'z') {
-			ret[0] = datasectionhead;
-			ret[1] = globaloffset;
-			ret[2] = 0L;
-			return ret;
-		} else {
-			// list... Datasection head has to be a DL, because HLs are skipped
-			// in the constructor
-			var curr = (DLBLOCK) datasectionhead;
-			if (curr.isEqualLengthFlag()) {
-				long blknum = globaloffset / curr.getEqualLength(); // block
-				// we
-				// need
-				long pastblocks = 0;
-				DLBLOCK drag = null;
-
-				// skip to next list if needed.
-				while (pastblocks <= blknum) {
-					pastblocks += curr.getCount();
-					drag = curr;
-					curr = (DLBLOCK) curr.getLink(0);
-				}
-				ret[0] = drag.getLink((int) (blknum - (pastblocks - drag.getCount()) + 1));
-				ret[1] = globaloffset % drag.getEqualLength();
-				ret[2] = drag.getEqualLength() * blknum;
-			} else {
-				long curroff = -1;
-				int listblknum = 0; // Block number in active list
-				var actlist = curr; // active list.
-				MDF4GenBlock drag = null;
-				long draglength = 0; // length of drag block.
-				while (curroff <= globaloffset) {
-					drag = actlist.getLink(listblknum + 1);
-					draglength = "##DZ".equals(drag.getId()) ? ((DZBLOCK) drag).getOrg_data_length()
-							: drag.getLength() - 24L;
-
-					curroff = actlist.getOffset()[listblknum] + draglength;
-
-					listblknum++;
-					// switch to next list, if end is reached.
-					if (listblknum == actlist.getCount()) {
-						actlist = (DLBLOCK) actlist.getLnkDlNext();
-						listblknum = 0;
-					}
-				}
-				ret[0] = drag;
-				ret[1] = globaloffset - (curroff - draglength);
-				ret[2] = curroff - draglength;
+			blocks = new MDF4GenBlock[] { datasectionhead };
+			starts = new long[] { 0, getDataLength(datasectionhead) };
+			return;
+		}
+		if (sectype != 'l' && sectype != 'h') {
+			return;
+		}
+		int count = 0;
+		for (var list = (DLBLOCK) datasectionhead; list != null; list = (DLBLOCK) list.getLink(0)) {
+			count += (int) list.getCount();
+		}
+		blocks = new MDF4GenBlock[count];
+		starts = new long[count + 1];
+		int i = 0;
+		long offset = 0;
+		for (var list = (DLBLOCK) datasectionhead; list != null; list = (DLBLOCK) list.getLink(0)) {
+			for (int j = 1; j <= list.getCount(); j++) {
+				blocks[i] = list.getLink(j);
+				starts[i++] = offset;
+				offset += getDataLength(list.getLink(j));
 			}
 		}
-		return ret;
+		starts[count] = offset;
+	}
+
+	/**
+	 * @return The length of the (uncompressed) data of a block.
+	 */
+	private static long getDataLength(MDF4GenBlock blk) {
+		return "##DZ".equals(blk.getId()) ? ((DZBLOCK) blk).getOrg_data_length() : blk.getLength() - 24L;
 	}
 
 	@Override
@@ -347,47 +423,24 @@ public class MDF4DataProvider implements AbstractDataProvider {
 		return sectionlength;
 	}
 
+	/**
+	 * @return The cache for the uncompressed data of DZ blocks, or null if
+	 *         this provider reads from an array.
+	 */
+	public ZippedDataCache getZippedCache() {
+		return cache;
+	}
+
 	/**
 	 * Calculate the length of this data section.
 	 *
 	 * @return The length.
 	 */
 	private long calculateLength() {
-		if (datasectionhead == null) {
+		if (starts == null) {
 			return 0;
 		}
-		long newlength = 0;
-		if (sectype == 'd') {
-			return datasectionhead.getLength() - 24L;
-		} else if (sectype == 'z') {
-			return ((DZBLOCK) datasectionhead).getOrg_data_length();
-		} else {
-			DLBLOCK drag = null;
-			var blk = (DLBLOCK) datasectionhead;
-			MDF4GenBlock lastchld;
-			do {
-				lastchld = blk.getLink((int) blk.getCount());
-				newlength += (blk.getCount() - 1) * blk.getEqualLength();
-				if ("##DZ".equals(lastchld.getId())) {
-					newlength += ((DZBLOCK) lastchld).getOrg_data_length();
-				} else {
-					newlength += lastchld.getLength() - 24L;
-				}
-				drag = blk;
-			} while ((blk = (DLBLOCK) blk.links[0]) != null);
-
-			if (!drag.isEqualLengthFlag()) {
-				// We were wrong, calculate newlength otherwise (last offset +
-				// length of last datablock)
-				newlength = drag.getOffset()[(int) drag.getCount() - 1];
-				if ("##DZ".equals(lastchld.getId())) {
-					newlength += ((DZBLOCK) lastchld).getOrg_data_length();
-				} else {
-					newlength += lastchld.getLength() - 24L;
-				}
-			}
-		}
-		return newlength;
+		return starts[starts.length - 1];
 	}
 
 }
@@ -92,6 +92,16 @@ public class MDF4GenBlock extends MDFGenBlock implements Comparable<MDF4GenBlock
 		return links;
 	}
 
+	/*
+	 * The links follow the 24 Byte header.
+	 *
+	 * @see org.eclipse.mdm.mdfsorter.MDFGenBlock#getLinkOffset(int)
+	 */
+	@Override
+	public long getLinkOffset(int i) {
+		return 24L + 8L * i;
+	}
+
 	@Override
 	public MDF4GenBlock getLink(int i) {
 		if (i >= 0 && i < linkCount) {
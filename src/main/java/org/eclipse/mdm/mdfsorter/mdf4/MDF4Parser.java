@@ -39,27 +39,6 @@ public class MDF4Parser extends MDFAbstractParser<MDF4GenBlock> {
 		super(in);
 	}
 
-	/**
-	 * Helper Method to read to an array from a FileChannel.
-	 *
-	 * @param bytes
-	 *            The number of bytes to read.
-	 * @param in
-	 *            The FileChannel to read from.
-	 * @return A byte-Array with <code>length=bytes</code> filled with the next
-	 *         bytes from the Channel.
-	 * @throws IOException
-	 *             If an input error occurs.
-	 */
-	private static byte[] readBytes(int bytes, FileChannel in) throws IOException {
-		ByteBuffer chunk = ByteBuffer.allocate(bytes);
-		int bytesread = 0;
-		if ((bytesread = in.read(chunk)) != bytes) {
-			System.err.println(new StringBuilder().append("Read only ").append(bytesread).append(" Bytes instead of ").append(bytes).toString());
-		}
-		return chunk.array();
-	}
-
 	/**
 	 * Parses the file and returns the root of the tree structure.
 	 *
@@ -71,43 +50,43 @@ public class MDF4Parser extends MDFAbstractParser<MDF4GenBlock> {
 		MDF4GenBlock g = new MDF4GenBlock(64);
 		queue.add(g);
 		var ret = g;
-		do {
-			skipped.clear();
-			while (!queue.isEmpty()) {
-				MDF4GenBlock next = queue.poll();
+		while (!queue.isEmpty()) {
+			MDF4GenBlock next = queue.poll();
 
-				if (blocklist.containsKey(next.getPos())) {
-					throw new RuntimeException("Duplicate Block in list.");
-				}
+			if (blocklist.containsKey(next.getPos())) {
+				throw new RuntimeException("Duplicate Block in list.");
+			}
 
-				if (next.getPos() < lasthandled) {
-					skipped.add(next);
-					continue;
-				}
+			if (next.getPos() < lasthandled) {
+				// linked from a block behind it, read it right away.
+				backwardblocks++;
+			}
 
-				// parse.
-				getBlockHeader(next);
-				forceparse(next);
+			// parse.
+			getBlockHeader(next);
+			decode(next);
 
-				// Add (if possible the more precise) block to the blocklist
-				unfinished.remove(next.getPos());
-				if (next.getPrec() != null) {
-					blocklist.put(next.getPos(), next.getPrec());
-				} else {
-					blocklist.put(next.getPos(), next);
-				}
+			// Add (if possible the more precise) block to the blocklist
+			unfinished.remove(next.getPos());
+			if (next.getPrec() != null) {
+				blocklist.put(next.getPos(), next.getPrec());
+			} else {
+				blocklist.put(next.getPos(), next);
+			}
 
-				lasthandled = next.getPos();
+			lasthandled = next.getPos();
 
-				foundblocks++;
-			}
-			in.position(0L);
-			queue.addAll(skipped);
-			lasthandled = 0;
-			fileruns++;
-		} while (!skipped.isEmpty()); // another run is needed
+			foundblocks++;
+		}
+		// decode the remaining blocks, and replace them by their more special
+		// blocks.
+		for (var blk : decodeAll()) {
+			blocklist.put(blk.getPos(), blk.getPrec() != null ? blk.getPrec() : blk);
+		}
+		fileruns++;
 
-		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Needed ").append(fileruns).append(" runs.").toString());
+		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Needed ").append(fileruns).append(" runs, ").append(backwardblocks).append(" blocks were read backwards.").toString());
+		MDFSorter.log.log(Level.FINE, new StringBuilder().append("Read the blocks with ").append(filereads).append(" reads from the file.").toString());
 		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Found ").append(blocklist.size()).append(" blocks.").toString());
 		MDFSorter.log.log(Level.FINE, "ValidatorListSize: " + (foundblocks + 1)); // Expected
 																					// number
@@ -128,20 +107,20 @@ public class MDF4Parser extends MDFAbstractParser<MDF4GenBlock> {
 	 *             If a reading error occurs.
 	 */
 	private void getBlockHeader(MDF4GenBlock start) throws IOException {
-		in.position(start.getPos());
-		byte[] head = readBytes(24, in);
+		position = start.getPos();
+		byte[] head = readBytes(24);
 		// Read header of this block
 		// String blktyp = MDFTypesHelper.getSTRING(head, 0, 4);
-		String blktyp = MDF4Util.readCharsUTF8(getDataBuffer(head, 0, 4), 4);
+		String blktyp = MDF4Util.readCharsUTF8(head, 0, 4);
 		start.setId(blktyp);
-		long blklength = MDF4Util.readUInt64(getDataBuffer(head, 8, 16));
+		long blklength = MDF4Util.readUInt64(head, 8);
 		start.setLength(blklength);
-		long blklinkcount = MDF4Util.readUInt64(getDataBuffer(head, 16, 24));
+		long blklinkcount = MDF4Util.readUInt64(head, 16);
 		start.setLinkCount(blklinkcount);
 		// Read links and create new blocks
-		head = readBytes((int) (blklinkcount * 8), in);
+		head = readBytes((int) (blklinkcount * 8));
 		for (int i = 0; i < blklinkcount; i++) {
-			long nextlink = MDF4Util.readLink(getDataBuffer(head, i * 8, (i + 1) * 8));
+			long nextlink = MDF4Util.readLink(head, i * 8);
 			if (nextlink != 0) {
 				if (blocklist.containsKey(nextlink)) {
 					start.addLink(i, blocklist.get(nextlink));
@@ -189,7 +168,9 @@ public class MDF4Parser extends MDFAbstractParser<MDF4GenBlock> {
 	 * @param blk
 	 * @throws IOException
 	 */
-	private void forceparse(MDF4GenBlock blk) throws IOException {
+	@Override
+	protected void forceparse(MDF4GenBlock blk) throws IOException {
+		long bodypos = blk.getPos() + 24L + 8L * blk.getLinkCount();
 		long sectionsize = blk.getLength() - 24L - 8L * blk.getLinkCount();
 
 		byte[] content = null;
@@ -259,9 +240,12 @@ public class MDF4Parser extends MDFAbstractParser<MDF4GenBlock> {
 		}
 
 		if ("##DZ".equals(blk.getId())) {
-			content = readBytes(24, in);
+			content = readBytes(bodypos, 24);
+		} else if (sp instanceof DTBLOCK) {
+			// the data itself is not needed for parsing.
+			content = new byte[0];
 		} else if (sp != null) {
-			content = readBytes((int) sectionsize, in);
+			content = readBytes(bodypos, (int) sectionsize);
 		}
 
 		if (sp != null) {
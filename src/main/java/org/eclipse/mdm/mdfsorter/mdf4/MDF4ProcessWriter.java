@@ -17,26 +17,38 @@ package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.zip.DataFormatException;
 
 import org.eclipse.mdm.mdfsorter.AbstractDataProvider;
 import org.eclipse.mdm.mdfsorter.ArgumentStruct;
 import org.eclipse.mdm.mdfsorter.DataBlockBuffer;
+import org.eclipse.mdm.mdfsorter.LayoutPlan;
 import org.eclipse.mdm.mdfsorter.MDFAbstractProcessWriter;
 import org.eclipse.mdm.mdfsorter.MDFCompatibilityProblem;
 import org.eclipse.mdm.mdfsorter.MDFFileContent;
 import org.eclipse.mdm.mdfsorter.MDFGenBlock;
+import org.eclipse.mdm.mdfsorter.MDFParser;
 import org.eclipse.mdm.mdfsorter.MDFProblemType;
 import org.eclipse.mdm.mdfsorter.MDFSorter;
+import org.eclipse.mdm.mdfsorter.ReadWorker;
+import org.eclipse.mdm.mdfsorter.RecordDemultiplexer;
 import org.eclipse.mdm.mdfsorter.WriteDataCache;
 import org.eclipse.mdm.mdfsorter.WriteWorker;
 
@@ -48,6 +60,28 @@ import org.eclipse.mdm.mdfsorter.WriteWorker;
  */
 public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 
+	/**
+	 * Record ids of all channel groups, saved while the layout is planned.
+	 */
+	private Map<CGBLOCK, Long> savedrecordids;
+
+	/**
+	 * Compresses and writes DZ blocks, if the output is zipped.
+	 */
+	private DZCompressionStage compressionstage;
+
+	/**
+	 * Inflates DZ blocks of the input ahead of time, null while the layout is
+	 * planned.
+	 */
+	private DZReadAhead readahead;
+
+	/**
+	 * Solves problem sections on worker threads, null if they are solved by
+	 * the process thread.
+	 */
+	private ParallelSections sections;
+
 	/**
 	 * Main Constructor.
 	 *
@@ -59,7 +93,6 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 	public MDF4ProcessWriter(MDFFileContent<MDF4GenBlock> filestructure, ArgumentStruct args) {
 		this.filestructure = filestructure;
 		this.args = args;
-		writtenblocks = new LinkedList<>();
 	}
 
 	/**
@@ -76,89 +109,290 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 		// 1. Analyse situation
 		checkProblems();
 
+		mapInput();
+		try {
+			process();
+		} finally {
+			unmapInput();
+		}
+	}
+
+	/**
+	 * Plans and writes the output, while the input is mapped.
+	 *
+	 * @throws IOException
+	 *             If any I/O-Problems are encountered.
+	 * @throws DataFormatException
+	 *             If the data of any DZ-Blocks is not in a readable format.
+	 */
+	private void process() throws IOException, DataFormatException {
+		FileChannel reader = filestructure.getInput();
+
+		// 2. Plan the layout of the output, so it can be written in one pass.
+		// The length of zipped blocks is only known once they are compressed,
+		// and sections solved in parallel are only placed once they are
+		// written, then links are updated after writing.
+		LayoutPlan plan = null;
+		if (args.unzip && args.parallel <= 1) {
+			plan = planLayout(reader);
+		}
+
 		// Open outputfile
 		var out = new FileOutputStream(args.outputname);
+		if (plan != null) {
+			preallocate(out, plan);
+		}
 
 		// Start writer Thread
 
 		Thread t;
 		long start; // Variables used inside try.
 
-		try (var buf = new DataBlockBuffer()) {
-			start = System.currentTimeMillis();
-			t = new Thread(new WriteWorker(out, buf));
-			t.start();
-			myCache = new WriteDataCache(buf);
-			// write out blocks
-			FileChannel reader = filestructure.getInput();
-			reader.position(0L);
-			// reader = filestructure.getIn();
-
-			// write header block first
-			ByteBuffer headerbuf = ByteBuffer.allocate(MDF4Util.headersize);
-			reader.read(headerbuf);
-
-			// If Data has to be zipped, the file version has be set to at least
-			// 4.10
-			if (!args.unzip) {
-				alterVersion(headerbuf);
+		var buf = new DataBlockBuffer(args.writebuffersize);
+		var stage = args.unzip ? null : new DZCompressionStage(this, args.zipthreads, args.zipbuffersize);
+		if (stage != null) {
+			MDFSorter.log.log(Level.INFO, args.describeZipPolicy());
+		}
+		compressionstage = stage;
+		var ahead = args.zipthreads > 0 ? new DZReadAhead(reader, args.zipthreads) : null;
+		readahead = ahead;
+		var parallel = args.parallel > 1 ? new ParallelSections(args.parallel, getSpillDirectory()) : null;
+		sections = parallel;
+		// spill files of the sections are deleted, after the output is
+		// written.
+		try (parallel) {
+			try (buf; stage; ahead) {
+				start = System.currentTimeMillis();
+				t = new Thread(new WriteWorker(out, buf));
+				t.start();
+				myCache = new WriteDataCache(buf, plan);
+				// write out blocks
+				writeOutput(reader);
+				if (stage != null) {
+					stage.drain();
+				}
+
+				// Flush Cache
+				myCache.flush();
+			}
+			// signal buffer that all data is send (try), and wait for
+			// completion of the write operation.
+			try {
+				t.join();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			if (parallel != null) {
+				MDFSorter.log.log(Level.INFO, new StringBuilder().append("Solved ").append(parallel.getSectionCount()).append(" sections on ").append(args.parallel).append(" threads, spilling ")
+						.append(parallel.getSpilledBytes() / 1000).append(" kB.").toString());
+			}
+		}
+
+		out.close();
+		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Wrote ").append(writeptr / 1000).append(" kB.").toString());
+		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Writing took ").append(System.currentTimeMillis() - start).append(" ms").toString());
+		MDFSorter.log.log(Level.FINE, new StringBuilder().append("Allocated ").append(myCache.getPool().getAllocated()).append(" write buffers.").toString());
+		MDFSorter.log.log(Level.FINE, new StringBuilder().append("Write buffer stalls: producer ").append(buf.getProducerStalls()).append(" (").append(buf.getProducerStallNanos() / 1_000_000L)
+				.append(" ms), consumer ").append(buf.getConsumerStalls()).append(" (").append(buf.getConsumerStallNanos() / 1_000_000L).append(" ms)").toString());
+		if (ahead != null) {
+			MDFSorter.log.log(Level.FINE, new StringBuilder().append("Inflated ").append(ahead.getHits()).append(" DZ blocks ahead of time, ").append(ahead.getMisses()).append(" on demand.").toString());
+		}
+		if (stage != null) {
+			MDFSorter.log.log(Level.INFO, new StringBuilder().append("Zipped ").append(stage.getZippedBlocks()).append(" blocks, stored ").append(stage.getStoredBlocks())
+					.append(" blocks unzipped, saving about ").append(stage.getSavedNanos() / 1_000_000L).append(" ms of compression.").toString());
+			MDFSorter.log.log(Level.FINE, new StringBuilder().append("Waited ").append(stage.getWaitNanos() / 1_000_000L).append(" ms for DZ compression.").toString());
+		}
+
+		if (plan != null) {
+			if (writeptr != plan.getLength()) {
+				throw new IOException(new StringBuilder().append("Wrote ").append(writeptr).append(" Bytes, but ").append(plan.getLength()).append(" Bytes were planned.").toString());
 			}
+			return;
+		}
+
+		// Update links, with one positional write per link section, in
+		// ascending order.
+		var links = new LayoutPlan();
+		planLinks(links);
+		try (var r = FileChannel.open(Paths.get(args.outputname), StandardOpenOption.WRITE)) {
+			links.applyTo(r);
+		}
+		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Links updated successfully (").append(links.getSectionCount()).append(" link sections).").toString());
+	}
 
-			performPut(headerbuf, headerbuf.capacity(), false);
+	@Override
+	protected void writeOutput(FileChannel reader) throws IOException, DataFormatException {
+		// write header block first
+		ByteBuffer headerbuf = ByteBuffer.wrap(MDFParser.readBytes(reader, 0L, MDF4Util.headersize));
+
+		// If Data has to be zipped, the file version has be set to at least
+		// 4.10
+		if (!args.unzip) {
+			alterVersion(headerbuf);
+		}
 
+		performPut(headerbuf, headerbuf.capacity(), false);
+
+		if (sections != null && !planning) {
+			// start all sections, they are appended in file order.
 			for (MDF4GenBlock blk : filestructure.getList()) {
-				// copy block if untouched and no problem block
-				if (!blk.gettouched() && blk.getProblems() == null) {
-					copyBlock(blk, reader);
-				} else {
-					if (blk.getProblems() != null) {
-						blk.getProblems().forEach(p -> MDFSorter.log.log(Level.FINE, "Problem of Type: " + p.getType()));
-						solveProblem(blk.getProblems());
+				if (blk.getProblems() != null) {
+					sections.start(this, blk);
+				}
+			}
+		}
+
+		for (MDF4GenBlock blk : filestructure.getList()) {
+			// copy block if untouched and no problem block
+			if (!blk.gettouched() && blk.getProblems() == null) {
+				copyBlock(blk, reader);
+			} else {
+				if (blk.getProblems() != null) {
+					blk.getProblems().forEach(p -> MDFSorter.log.log(Level.FINE, "Problem of Type: " + p.getType()));
+					if (sections != null && !planning) {
+						appendSection(sections.take(blk));
 					} else {
-						// Do nothing if block is part of a bigger Problem.
-						// The Block will be written if the "head block" of the
-						// Problem is processed.
+						solveProblem(blk.getProblems());
 					}
+				} else {
+					// Do nothing if block is part of a bigger Problem.
+					// The Block will be written if the "head block" of the
+					// Problem is processed.
 				}
-
 			}
 
-			// Write updated File History Block.
-			updateFileHistory();
+		}
+
+		// Write updated File History Block.
+		updateFileHistory();
+	}
+
+	@Override
+	protected byte[] getBytesLink(long outputpos) {
+		return MDF4Util.getBytesLink(outputpos);
+	}
 
-			// Flush Cache
-			myCache.flush();
+	@Override
+	protected void beforeBlock() {
+		// Pending DZ blocks precede the next block.
+		if (compressionstage != null) {
+			compressionstage.drain();
 		}
-		// signal buffer that all data is send (try), and wait for completion of
-		// the
-		// write operation.
-		try {
-			t.join();
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+	}
+
+	/**
+	 * Solves the problems of a section with a new ProcessWriter, that writes
+	 * into a spill file instead of the output. Called by the workers of
+	 * ParallelSections.
+	 *
+	 * @param problems
+	 *            The problems of the section.
+	 * @param directory
+	 *            The directory of the spill file.
+	 * @return The written segment.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	ParallelSections.Segment spillSection(List<MDFCompatibilityProblem> problems, Path directory) throws IOException, DataFormatException {
+		var section = new MDF4ProcessWriter(filestructure, args);
+		section.placedblocks = new ArrayList<>();
+		section.mapped = mapped;
+		Path file = Files.createTempFile(directory, "mdfsorter", ".section");
+		try (var out = new FileOutputStream(file.toFile())) {
+			var buf = new DataBlockBuffer(args.writebuffersize);
+			var t = new Thread(new WriteWorker(out, buf), "Section spill");
+			t.start();
+			try (buf) {
+				section.myCache = new WriteDataCache(buf);
+				section.solveProblem(problems);
+				section.beforeBlock();
+				section.myCache.flush();
+			} finally {
+				try {
+					t.join();
+				} catch (InterruptedException e) {
+					throw new RuntimeException("Interrupted!");
+				}
+			}
+			if (out.getChannel().size() != section.writeptr) {
+				throw new IOException(new StringBuilder().append("Spilled ").append(out.getChannel().size()).append(" Bytes, but ").append(section.writeptr).append(" Bytes were written.").toString());
+			}
+		} catch (IOException | DataFormatException | RuntimeException e) {
+			Files.deleteIfExists(file);
+			throw e;
 		}
+		return new ParallelSections.Segment(file, section.writeptr, section.placedblocks, section.writtenblocks, section.compressionstage);
+	}
 
-		out.close();
-		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Wrote ").append(writeptr / 1000).append(" kB.").toString());
-		MDFSorter.log.log(Level.INFO, new StringBuilder().append("Writing took ").append(System.currentTimeMillis() - start).append(" ms").toString());
+	/**
+	 * Appends a segment at the current write position, and moves the output
+	 * positions of its blocks accordingly.
+	 *
+	 * @param seg
+	 *            The segment.
+	 */
+	private void appendSection(ParallelSections.Segment seg) {
+		beforeBlock();
+		long base = writeptr;
+		// a block may have been placed more than once, only its last position
+		// is valid.
+		Set<MDFGenBlock> moved = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (MDFGenBlock blk : seg.placed) {
+			if (moved.add(blk)) {
+				blk.setOutputpos(blk.getOutputpos() + base);
+			}
+		}
+		writtenblocks.addAll(seg.written, base);
+		performTransfer(seg.channel, 0L, seg.length);
+		if (compressionstage != null && seg.stage != null) {
+			compressionstage.addStatistics(seg.stage);
+		}
+	}
 
-		// Update links with RandomAccessFile
-		var r = new RandomAccessFile(args.outputname, "rw");
-		for (MDF4GenBlock blk : writtenblocks) {
-			// set position to start of Block link section
-			r.seek(blk.getOutputpos() + 24L);
-			MDF4GenBlock linkedblock;
-			for (int i = 0; i < blk.getLinkCount(); i++) {
-				if ((linkedblock = blk.getLink(i)) != null) {
-					r.write(MDF4Util.getBytesLink(linkedblock.getOutputpos()));
-				} else {
-					r.write(MDF4Util.getBytesLink(0));
-				}
+	/**
+	 * @return The read-ahead for DZ blocks of the input, or null if there is
+	 *         none.
+	 */
+	public DZReadAhead getReadAhead() {
+		return readahead;
+	}
+
+	/**
+	 * Compresses the data of a DZ block, and writes it. This may happen
+	 * asynchronously, but before the next block is written.
+	 *
+	 * @param blk
+	 *            The DZ block, its lengths are set here.
+	 * @param data
+	 *            The uncompressed data of the block.
+	 */
+	public void writeDZBlock(DZBLOCK blk, byte[] data) {
+		if (compressionstage == null) {
+			// compress synchronously
+			compressionstage = new DZCompressionStage(this, 0, 0);
+		}
+		compressionstage.submit(blk, data);
+	}
 
+	@Override
+	protected void saveInputState() {
+		super.saveInputState();
+		// Record ids are reset, if a data group is sorted.
+		savedrecordids = new HashMap<>();
+		for (MDF4GenBlock blk : filestructure.getList()) {
+			if (blk instanceof CGBLOCK) {
+				savedrecordids.put((CGBLOCK) blk, ((CGBLOCK) blk).getRecordId());
 			}
 		}
-		r.close();
-		MDFSorter.log.log(Level.INFO, "Links updated successfully.");
+	}
+
+	@Override
+	protected void restoreInputState() {
+		super.restoreInputState();
+		savedrecordids.forEach(CGBLOCK::setRecordId);
+		savedrecordids = null;
 	}
 
 	@Override
@@ -176,49 +410,6 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 		return ret;
 	}
 
-	/**
-	 * Copy a block.
-	 *
-	 * @param blk
-	 *            The block to copy.
-	 * @param reader
-	 *            Stream to the InputFile.
-	 * @throws IOException
-	 *             If an I/O error occurs.
-	 */
-	@Override
-	public void copyBlock(MDF4GenBlock blk, FileChannel reader) throws IOException {
-		reader.position(blk.getPos());
-		blk.setOutputpos(writeptr);
-
-		// write file out in 64k blocks
-		long length = blk.getLength();
-		// Number of Bytes written
-		long written = 0;
-
-		do {
-			int bytesread;
-			if (written + MAX_OUTPUTBLOCKSIZE > length) {
-				ByteBuffer custombuffer = ByteBuffer.allocate((int) (length - written));
-				bytesread = reader.read(custombuffer);
-				performPut(custombuffer, bytesread, false);
-			} else {
-				ByteBuffer buffer = ByteBuffer.allocate(MAX_OUTPUTBLOCKSIZE);
-				bytesread = reader.read(buffer);
-				performPut(buffer, bytesread, false);
-			}
-			written += bytesread;
-		} while (written < length);
-		if (length != written) {
-			throw new IOException(new StringBuilder().append("written length not equal to blocklength: ").append(length).append("/").append(written).toString());
-		}
-		// insert space if length%8!=0
-		if (length % 8 != 0) {
-			writeSpacer(length);
-		}
-		writtenblocks.addLast(blk);
-	}
-
 	/**
 	 * Updates this file's version to 4.10. (needed if the output will contain
 	 * any zipped data)
@@ -317,8 +508,12 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 				// Create new SplitMerger for this section.
 				var bsm = new MDF4BlocksSplittMerger(this, blocktype, parentnode, node,
 						realmaxblksize);
+				if (recordlength != -1 && "##DT".equals(blocktype)) {
+					bsm.setRecordLength(recordlength);
+				}
 
 				// Now attach data sections
+				List<MDF4GenBlock> datablocks = new ArrayList<>();
 				if (probtype == MDFProblemType.LINKED_DATALIST_PROBLEM) {
 					if (!(firstlistnode instanceof DLBLOCK)) {
 						MDFSorter.log.severe("List header is no DL Node. Aborting.");
@@ -327,12 +522,25 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 					var dlnode = (DLBLOCK) firstlistnode;
 					do {
 						for (int i = 1; i < dlnode.getLinkCount(); i++) {
-							bsm.splitmerge(dlnode.links[i]);
+							datablocks.add(dlnode.links[i]);
 						}
 					} while ((dlnode = (DLBLOCK) dlnode.links[0]) != null); // Next
 					// DL-Block
 				} else {
-					bsm.splitmerge(node);
+					datablocks.add(node);
+				}
+
+				// Unzipped blocks are read ahead by a ReadWorker, zipped
+				// blocks by the DZReadAhead. Large blocks are transferred
+				// without reading them. No data is read while planning.
+				try (var input = planning ? null : startReadWorker(datablocks, bsm)) {
+					for (MDF4GenBlock blk : datablocks) {
+						if (input == null || blk instanceof DZBLOCK || bsm.canTransfer(blk)) {
+							bsm.splitmerge(blk);
+						} else {
+							bsm.splitmerge(input, blk.getLength() - 24L);
+						}
+					}
 				}
 
 				// set links to new datasection correctly.
@@ -426,31 +634,75 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 
 		var datagroup = (DGBLOCK) prob.getStartnode();
 		// sort records.
-		MDF4DataProvider prov = new MDF4DataProvider(datasection, filestructure.getInput());
-
-		int[] recCounters = new int[groups.size()];
+		MDF4DataProvider prov = new MDF4DataProvider(datasection, filestructure.getInput(), readahead, mapped);
 
 		byte idSize = datagroup.getRecIdSize();
 
-		int i = 0;
+		long[] recordids = new long[groups.size()];
+		long[] recordsizes = new long[groups.size()];
+		long totalrecords = 0;
 		Map<Long, Integer> recNumtoArrIdx = new HashMap<>();
-		Map<Long, Long> recNumtoSize = new HashMap<>();
 
+		int i = 0;
 		for (CGBLOCK cgroup : groups) {
-			// create an Array for the startaddresses of each record
-			// TODO: Maybe improve, long number of records
-			recCounters[i] = (int) cgroup.getCycleCount();
-			long recID = cgroup.getRecordId();
-			recNumtoArrIdx.put(recID, i++);
+			recordids[i] = cgroup.getRecordId();
 			if (cgroup.isVLSDChannel()) {
-				recNumtoSize.put(recID, -1L);
+				recordsizes[i] = -1L;
 			} else {
-				recNumtoSize.put(recID, cgroup.getDataBytes() + cgroup.getInvalBytes());
+				recordsizes[i] = cgroup.getDataBytes() + cgroup.getInvalBytes();
+			}
+			totalrecords += cgroup.getCycleCount();
+			recNumtoArrIdx.put(recordids[i], i++);
+		}
+
+		// Split the records by groups in one pass over the section. Lengths
+		// are known from the channel groups, so the records are not needed
+		// while the layout is planned.
+		var demux = planning ? null
+				: new RecordDemultiplexer(idSize, recordids, recordsizes, getSpillDirectory(), RecordDemultiplexer.DEFAULT_BUDGET);
+		try (demux) {
+			if (demux != null) {
+				if (args.unzip) {
+					// large records are copied to the output without reading
+					// them.
+					demux.setTransfers(filestructure.getInput(), args.transferthreshold);
+				}
+				MDFSorter.log.info("Searching Records.");
+				demux.demux(prov, totalrecords);
+				MDFSorter.log.log(Level.FINE, new StringBuilder().append("Split records into ").append(groups.size()).append(" groups, spilling ").append(demux.getSpilledBytes() / 1024L).append(" kB.").toString());
 			}
+			writeSortedGroups(prob, groups, prov, recNumtoArrIdx, demux);
 		}
 
-		long[][] startaddresses = fillRecordArray(recCounters, recNumtoArrIdx, recNumtoSize, prov, idSize);
+		var zipcache = prov.getZippedCache();
+		if (zipcache != null && zipcache.getMisses() > 0) {
+			MDFSorter.log.log(Level.FINE, new StringBuilder().append("Zipped data cache: ").append(zipcache.getHits()).append(" hits, ").append(zipcache.getMisses()).append(" misses, ")
+					.append(zipcache.getEvictions()).append(" evictions, ").append(zipcache.getInflateNanos() / 1_000_000L).append(" ms inflating.").toString());
+		}
+	}
 
+	/**
+	 * Writes a data group and the data section of its own for each channel
+	 * group, and SD-Blocks for VLSD channels.
+	 *
+	 * @param prob
+	 *            The MDFCompatibilityProblem that describes the situation.
+	 * @param groups
+	 *            List of ChannelGroups contained in that block.
+	 * @param prov
+	 *            Provider of the unsorted data section.
+	 * @param recNumtoArrIdx
+	 *            Index of each channel group in the demultiplexer, by record
+	 *            id.
+	 * @param demux
+	 *            The records split by groups, null while the layout is planned.
+	 * @throws IOException
+	 *             If an I/O-Error occurs.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	private void writeSortedGroups(MDFCompatibilityProblem prob, LinkedList<CGBLOCK> groups, MDF4DataProvider prov,
+			Map<Long, Integer> recNumtoArrIdx, RecordDemultiplexer demux) throws IOException, DataFormatException {
 		MDF4GenBlock last = (MDF4GenBlock) prob.getParentnode();
 		// write new blocks
 		for (CGBLOCK cgroup : groups) {
@@ -461,7 +713,6 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 				// create new datagroup
 				// only normal channels.
 				last = copyChannelInfrastructure(last, cgroup);
-				newlength = cgroup.getCycleCount() * cgroup.getDataBytes();
 				long reclen = cgroup.getDataBytes() + cgroup.getInvalBytes();
 				newlength = cgroup.getCycleCount() * reclen;
 
@@ -470,10 +721,11 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 
 				var splitmerger = new MDF4BlocksSplittMerger(this, "##DT", last, newlength, prov,
 						realmaxblksize);
+				splitmerger.setRecordLength(reclen);
 
 				// write data sections.
-				for (long l : startaddresses[arridx]) {
-					splitmerger.splitmerge(l + idSize, reclen);
+				try (var in = demux == null ? null : demux.open(arridx)) {
+					splitmerger.splitmerge(in, newlength);
 				}
 				splitmerger.setLinks();
 
@@ -493,13 +745,9 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 							long expectedlength = vlsdcg.getVLSDlength() + vlsdcg.getCycleCount() * 4L;
 							var signalsplitmerger = new MDF4BlocksSplittMerger(this, "##SD",
 									vlsdchan, expectedlength, prov, args.maxblocksize);
-							ByteBuffer databuf;
 							// write data sections.
-							for (long l : startaddresses[parsingidx]) {
-								databuf = ByteBuffer.allocate(4);
-								prov.read(l + idSize, databuf);
-								long vllen = MDF4Util.readUInt32(databuf);
-								signalsplitmerger.splitmerge(l + idSize, vllen + 4L);
+							try (var in = demux == null ? null : demux.open(parsingidx)) {
+								signalsplitmerger.splitmerge(in, expectedlength);
 							}
 							signalsplitmerger.setLinks();
 						}
@@ -509,64 +757,30 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 		}
 	}
 
-	public long[][] fillRecordArray(int[] recordCounters, Map<Long, Integer> recNumtoArrIdx,
-			Map<Long, Long> recNumtoSize, AbstractDataProvider prov, int idSize)
-			throws IOException, DataFormatException {
-
-		MDFSorter.log.info("Searching Records.");
-		long[][] startaddresses = new long[recordCounters.length][];
-
-		// initilize array.
-		int counter = 0;
-		long totalRecords = 0; // total number of records
-		for (long i : recordCounters) {
-			totalRecords += i;
-			startaddresses[counter++] = new long[(int) i];
-		}
-
-		int[] foundrecCounters = new int[recordCounters.length];
-
-		long sectionoffset = 0; // our position in the data section
-		long foundrecords = 0; // number of records we found
-
-		ByteBuffer databuf;
-		while (foundrecords < totalRecords) {
-			// Read Group number
-			databuf = prov.cachedRead(sectionoffset, idSize);
-			long foundID = parseID(databuf, idSize);
-			int arridx = recNumtoArrIdx.get(foundID);
-
-			long foundsize = recNumtoSize.get(foundID);
-			startaddresses[arridx][foundrecCounters[arridx]++] = sectionoffset; // remember
-			if (foundsize == -1) {
-				// VLSD-Channel, read length
-				databuf = prov.cachedRead(sectionoffset + idSize, 4);
-				long vllen = MDF4Util.readUInt32(databuf);
-				sectionoffset = sectionoffset + vllen + idSize + 4L;
-			} else {
-				// Normal-Channel
-				sectionoffset = sectionoffset + foundsize + idSize;
+	/**
+	 * Starts a ReadWorker, which reads the data of all unzipped blocks of a
+	 * list in list order, which are not transferred.
+	 *
+	 * @param datablocks
+	 *            The data blocks of the list.
+	 * @param bsm
+	 *            The SplitMerger the blocks are written with.
+	 * @return The started ReadWorker, or null if no block needs to be read.
+	 */
+	private ReadWorker startReadWorker(List<MDF4GenBlock> datablocks, MDF4BlocksSplittMerger bsm) {
+		int count = 0;
+		long[] positions = new long[datablocks.size()];
+		long[] lengths = new long[datablocks.size()];
+		for (MDF4GenBlock blk : datablocks) {
+			if (!(blk instanceof DZBLOCK) && !bsm.canTransfer(blk)) {
+				positions[count] = blk.getPos() + 24L;
+				lengths[count++] = blk.getLength() - 24L;
 			}
-			foundrecords++;
 		}
-		MDFSorter.log.fine(new StringBuilder().append("Found ").append(foundrecords).append(" Records.").toString());
-		return startaddresses;
-	}
-
-	public long parseID(ByteBuffer buf, int idSize) {
-		switch (idSize) {
-		case 1:
-			return MDF4Util.readUInt8(buf);
-		case 2:
-			return MDF4Util.readUInt16(buf);
-		case 4:
-			return MDF4Util.readUInt32(buf);
-		case 8:
-			return MDF4Util.readUInt64(buf);
-		default:
-			System.err.println("Invalid bit size");
-			throw new RuntimeException("Invalid bit size.");
+		if (count == 0) {
+			return null;
 		}
+		return new ReadWorker(filestructure.getInput(), mapped, Arrays.copyOf(positions, count), Arrays.copyOf(lengths, count)).start();
 	}
 
 	public DGBLOCK copyChannelInfrastructure(MDF4GenBlock last, CGBLOCK towrite) throws IOException {
@@ -605,9 +819,10 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 		ret.setLength(size + 24L);
 		ret.setId(id);
 		ret.setLinkCount(0);
-		ret.setOutputpos(writeptr);
+		beforeBlock();
+		place(ret);
 		performPut(ret.getHeaderBytes());
-		writtenblocks.add(ret);
+		addWrittenBlock(ret);
 		return ret;
 	}
 
@@ -626,15 +841,12 @@ public class MDF4ProcessWriter extends MDFAbstractProcessWriter<MDF4GenBlock> {
 	 */
 	@Override
 	public void writeBlock(MDF4GenBlock blk, byte[] appendData) throws IOException {
-		blk.setOutputpos(writeptr);
+		beforeBlock();
+		place(blk);
 
-		performPut(blk.getHeaderBytes());
-		performPut(blk.getBodyBytes());
-		if (appendData != null) {
-			performPut(appendData);
-		}
+		performGatheringPut(blk.getHeaderBytes(), blk.getBodyBytes(), appendData);
 		writeSpacer(blk.getLength());
-		writtenblocks.add(blk);
+		addWrittenBlock(blk);
 	}
 
 	/**
@@ -17,6 +17,8 @@ package org.eclipse.mdm.mdfsorter.mdf4;
 //package de.rechner.openatfx_mdf.mdf4;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
@@ -40,6 +42,13 @@ public abstract class MDF4Util {
 	// Size of the first block in MDF
 	public static int headersize = 64;
 
+	// Little endian views of byte arrays. Numbers are read and written at an
+	// offset of the array, without copying or wrapping it.
+	private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle DOUBLE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
 	/**
 	 * Read an 8-bit signed integer from the byte buffer.
 	 *
@@ -51,6 +60,19 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).get();
 	}
 
+	/**
+	 * Read an 8-bit signed integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static byte readUInt8(byte[] data, int offset) {
+		return data[offset];
+	}
+
 	/**
 	 * Read an 8-bit signed integer from the byte buffer.
 	 *
@@ -62,6 +84,19 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).get() & 0xff;
 	}
 
+	/**
+	 * Read an 8-bit unsigned integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static int readInt8(byte[] data, int offset) {
+		return data[offset] & 0xff;
+	}
+
 	/**
 	 * Read an 16-bit unsigned integer from the byte buffer.
 	 *
@@ -74,6 +109,19 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).getShort() & 0xffff;
 	}
 
+	/**
+	 * Read an 16-bit unsigned integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static int readUInt16(byte[] data, int offset) {
+		return (short) SHORT.get(data, offset) & 0xffff;
+	}
+
 	/**
 	 * Get a byte array from an 16-bit unsigned integer. (Little Endian)
 	 *
@@ -82,10 +130,9 @@ public abstract class MDF4Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesUInt16(int val) {
-		var b = ByteBuffer.allocate(2);
-		b.order(ByteOrder.LITTLE_ENDIAN);
-		b.putShort((short) val);
-		return b.array();
+		byte[] b = new byte[2];
+		SHORT.set(b, 0, (short) val);
+		return b;
 	}
 
 	/**
@@ -99,6 +146,19 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).getShort();
 	}
 
+	/**
+	 * Read an 16-bit signed integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static short readInt16(byte[] data, int offset) {
+		return (short) SHORT.get(data, offset);
+	}
+
 	/**
 	 * Get a byte array from an 16-bit signed integer. (Little Endian)
 	 *
@@ -107,10 +167,9 @@ public abstract class MDF4Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesInt16(int val) {
-		var b = ByteBuffer.allocate(2);
-		b.order(ByteOrder.LITTLE_ENDIAN);
-		b.putShort((short) val);
-		return b.array();
+		byte[] b = new byte[2];
+		SHORT.set(b, 0, (short) val);
+		return b;
 	}
 
 	/**
@@ -124,6 +183,19 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).getInt() & 0xffffffffL;
 	}
 
+	/**
+	 * Read an 32-bit unsigned integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static long readUInt32(byte[] data, int offset) {
+		return (int) INT.get(data, offset) & 0xffffffffL;
+	}
+
 	/**
 	 * Get a byte array form an 32-bit unsigned integer. (Little Endian)
 	 *
@@ -132,10 +204,9 @@ public abstract class MDF4Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesUInt32(long val) {
-		var b = ByteBuffer.allocate(4);
-		b.order(ByteOrder.LITTLE_ENDIAN);
-		b.putInt((int) val);
-		return b.array();
+		byte[] b = new byte[4];
+		INT.set(b, 0, (int) val);
+		return b;
 	}
 
 	/**
@@ -149,6 +220,19 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).getInt();
 	}
 
+	/**
+	 * Read an 32-bit signed integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static int readInt32(byte[] data, int offset) {
+		return (int) INT.get(data, offset);
+	}
+
 	/**
 	 * Read an 64-bit unsigned integer from the byte buffer.
 	 *
@@ -157,13 +241,20 @@ public abstract class MDF4Util {
 	 * @return The value.
 	 */
 	public static long readUInt64(ByteBuffer bb) {
-		byte[] data = new byte[8];
-		bb.get(data);
-		long l1 = ((long) data[0] & 0xff) << 0 | ((long) data[1] & 0xff) << 8 | ((long) data[2] & 0xff) << 16
-				| ((long) data[3] & 0xff) << 24;
-		long l2 = ((long) data[4] & 0xff) << 0 | ((long) data[5] & 0xff) << 8 | ((long) data[6] & 0xff) << 16
-				| ((long) data[7] & 0xff) << 24;
-		return l1 << 0 | l2 << 32;
+		return bb.order(ByteOrder.LITTLE_ENDIAN).getLong();
+	}
+
+	/**
+	 * Read an 64-bit unsigned integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static long readUInt64(byte[] data, int offset) {
+		return (long) LONG.get(data, offset);
 	}
 
 	/**
@@ -174,10 +265,9 @@ public abstract class MDF4Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesUInt64(long val) {
-		var b = ByteBuffer.allocate(8);
-		b.order(ByteOrder.LITTLE_ENDIAN);
-		b.putLong(val);
-		return b.array();
+		byte[] b = new byte[8];
+		LONG.set(b, 0, val);
+		return b;
 	}
 
 	/**
@@ -191,6 +281,19 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).getLong();
 	}
 
+	/**
+	 * Read an 64-bit signed integer from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static long readInt64(byte[] data, int offset) {
+		return (long) LONG.get(data, offset);
+	}
+
 	/**
 	 * Read a floating-point value compliant with IEEE 754, double precision (64
 	 * bits) (see [IEEE-FP]) from the byte buffer. An infinite value (e.g. for
@@ -205,10 +308,24 @@ public abstract class MDF4Util {
 		return bb.order(ByteOrder.LITTLE_ENDIAN).getDouble();
 	}
 
+	/**
+	 * Read a floating-point value compliant with IEEE 754, double precision (64
+	 * bits) from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value.
+	 */
+	public static double readReal(byte[] data, int offset) {
+		return (double) DOUBLE.get(data, offset);
+	}
+
 	public static byte[] getBytesReal(double val) {
-		var bb = ByteBuffer.allocate(8);
-		bb.order(ByteOrder.LITTLE_ENDIAN).putDouble(val);
-		return bb.array();
+		byte[] b = new byte[8];
+		DOUBLE.set(b, 0, val);
+		return b;
 	}
 
 	/**
@@ -221,13 +338,21 @@ public abstract class MDF4Util {
 	 * @return The value as long.
 	 */
 	public static long readLink(ByteBuffer bb) {
-		byte[] data = new byte[8];
-		bb.get(data);
-		long l1 = ((long) data[0] & 0xff) << 0 | ((long) data[1] & 0xff) << 8 | ((long) data[2] & 0xff) << 16
-				| ((long) data[3] & 0xff) << 24;
-		long l2 = ((long) data[4] & 0xff) << 0 | ((long) data[5] & 0xff) << 8 | ((long) data[6] & 0xff) << 16
-				| ((long) data[7] & 0xff) << 24;
-		return l1 << 0 | l2 << 32;
+		return bb.order(ByteOrder.LITTLE_ENDIAN).getLong();
+	}
+
+	/**
+	 * Read a 64-bit signed integer from a byte array, used as byte position
+	 * within the file.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the value in the array.
+	 * @return The value as long.
+	 */
+	public static long readLink(byte[] data, int offset) {
+		return (long) LONG.get(data, offset);
 	}
 
 	/**
@@ -239,10 +364,9 @@ public abstract class MDF4Util {
 	 * @return The bytes.
 	 */
 	public static byte[] getBytesLink(long lnk) {
-		var b = ByteBuffer.allocate(8);
-		b.order(ByteOrder.LITTLE_ENDIAN);
-		b.putLong(lnk);
-		return b.array();
+		byte[] b = new byte[8];
+		LONG.set(b, 0, lnk);
+		return b;
 	}
 
 	/**
@@ -262,6 +386,23 @@ public abstract class MDF4Util {
 		return new String(b, 0, length, CHARSET_ISO8859);
 	}
 
+	/**
+	 * Read a String in ISO 8859 from a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the first char in the array.
+	 * @param length
+	 *            Number of chars to read.
+	 * @return The result as String.
+	 * @throws IOException
+	 *             If an reading error occurs.
+	 */
+	public static String readCharsISO8859(byte[] data, int offset, int length) throws IOException {
+		return new String(data, offset, length, CHARSET_ISO8859);
+	}
+
 	/**
 	 * Read a String from UTF-8 encoded bytes
 	 *
@@ -279,6 +420,23 @@ public abstract class MDF4Util {
 		return new String(b, 0, length, CHARSET_UTF8);
 	}
 
+	/**
+	 * Read a String from UTF-8 encoded bytes of a byte array.
+	 *
+	 * @param data
+	 *            The byte array.
+	 * @param offset
+	 *            Position of the first char in the array.
+	 * @param length
+	 *            Number of chars to read.
+	 * @return The result as String.
+	 * @throws IOException
+	 *             If an reading error occurs.
+	 */
+	public static String readCharsUTF8(byte[] data, int offset, int length) throws IOException {
+		return new String(data, offset, length, CHARSET_UTF8);
+	}
+
 	public static byte[] getBytesCharsUTF8(String s) throws IOException {
 		return s.getBytes(CHARSET_UTF8);
 	}
@@ -0,0 +1,227 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter.mdf4;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.zip.DataFormatException;
+
+import org.eclipse.mdm.mdfsorter.MDFGenBlock;
+import org.eclipse.mdm.mdfsorter.MDFSorter;
+import org.eclipse.mdm.mdfsorter.WrittenBlockTable;
+
+/**
+ * Solves the problem sections of a file (sorting, merging, zipping and
+ * unzipping data) on a pool of worker threads. Each section is written by its
+ * own MDF4ProcessWriter into a spill file, as if it started at position 0 of
+ * the output. The process thread appends the segments in file order, and
+ * moves the output positions of their blocks (see
+ * MDF4ProcessWriter.appendSection()).
+ *
+ * A section only changes links of its own blocks and of its parent node, and
+ * links are written once the whole output is written. Therefore the output is
+ * the same as if the sections were solved one after another.
+ */
+public class ParallelSections implements AutoCloseable {
+
+	/**
+	 * The worker threads.
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * Directory of the spill files.
+	 */
+	private final Path directory;
+
+	/**
+	 * Started sections by their first block.
+	 */
+	private final Map<MDF4GenBlock, Future<Segment>> started = new IdentityHashMap<>();
+
+	/**
+	 * Segments taken, their spill files are deleted when this is closed.
+	 */
+	private final List<Segment> taken = new ArrayList<>();
+
+	/**
+	 * A section written to a spill file.
+	 */
+	static class Segment {
+		/**
+		 * The spill file.
+		 */
+		final Path file;
+
+		/**
+		 * Number of bytes written.
+		 */
+		final long length;
+
+		/**
+		 * All blocks placed in this segment, and the link slots of the
+		 * written blocks, relative to the start of the segment.
+		 */
+		final List<MDFGenBlock> placed;
+		final WrittenBlockTable written;
+
+		/**
+		 * The compression stage of the section writer, or null.
+		 */
+		final DZCompressionStage stage;
+
+		/**
+		 * Channel to the spill file, while the segment is appended.
+		 */
+		FileChannel channel;
+
+		Segment(Path file, long length, List<MDFGenBlock> placed, WrittenBlockTable written, DZCompressionStage stage) {
+			this.file = file;
+			this.length = length;
+			this.placed = placed;
+			this.written = written;
+			this.stage = stage;
+		}
+	}
+
+	/**
+	 * Create a new pool for sections.
+	 *
+	 * @param threads
+	 *            Number of worker threads.
+	 * @param directory
+	 *            Directory of the spill files, usually the directory of the
+	 *            output file.
+	 */
+	public ParallelSections(int threads, Path directory) {
+		this.directory = directory;
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			var t = new Thread(r, "Section writer");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Starts to solve the problems of a block.
+	 *
+	 * @param ps
+	 *            The ProcessWriter of the output.
+	 * @param blk
+	 *            The block, which has problems.
+	 */
+	public void start(MDF4ProcessWriter ps, MDF4GenBlock blk) {
+		var problems = blk.getProblems();
+		started.put(blk, executor.submit(() -> ps.spillSection(problems, directory)));
+	}
+
+	/**
+	 * Waits for the section of a block, and opens its spill file.
+	 *
+	 * @param blk
+	 *            The block, whose section was started.
+	 * @return The written segment.
+	 * @throws IOException
+	 *             If an I/O error occurs.
+	 * @throws DataFormatException
+	 *             If zipped data is in an invalid format.
+	 */
+	Segment take(MDF4GenBlock blk) throws IOException, DataFormatException {
+		Segment ret;
+		try {
+			ret = started.remove(blk).get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof DataFormatException) {
+				throw (DataFormatException) e.getCause();
+			} else if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		taken.add(ret);
+		ret.channel = FileChannel.open(ret.file, StandardOpenOption.READ);
+		return ret;
+	}
+
+	/**
+	 * @return Number of sections taken.
+	 */
+	public int getSectionCount() {
+		return taken.size();
+	}
+
+	/**
+	 * @return Total length of all sections taken.
+	 */
+	public long getSpilledBytes() {
+		long ret = 0;
+		for (Segment seg : taken) {
+			ret += seg.length;
+		}
+		return ret;
+	}
+
+	/*
+	 * Stops the workers, and deletes all spill files. Sections which are not
+	 * started yet are skipped, running ones are finished first. Must not be
+	 * called before all taken segments have been written to the output.
+	 *
+	 * @see java.lang.AutoCloseable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		started.values().forEach(f -> f.cancel(false));
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted!");
+		}
+		for (Future<Segment> f : started.values()) {
+			try {
+				if (!f.isCancelled()) {
+					taken.add(f.get());
+				}
+			} catch (InterruptedException | ExecutionException e) {
+				// section failed, its spill file is already deleted.
+			}
+		}
+		started.clear();
+		for (Segment seg : taken) {
+			if (seg.channel != null) {
+				seg.channel.close();
+			}
+			Files.deleteIfExists(seg.file);
+		}
+		MDFSorter.log.log(Level.FINEST, new StringBuilder().append("Deleted ").append(taken.size()).append(" spill files.").toString());
+		taken.clear();
+	}
+}
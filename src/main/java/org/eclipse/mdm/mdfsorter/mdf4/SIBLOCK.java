@@ -16,7 +16,6 @@
 package org.eclipse.mdm.mdfsorter.mdf4;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
 
 /**
  * <p>
@@ -134,15 +133,14 @@ public class SIBLOCK extends MDF4GenBlock {
 	 */
 	@Override
 	public void parse(byte[] content) throws IOException {
-		ByteBuffer bb = ByteBuffer.wrap(content);
 		// UINT8: Source type: additional classification of source:
-		setSourceType(MDF4Util.readUInt8(bb));
+		setSourceType(MDF4Util.readUInt8(content, 0));
 
 		// UINT8: Bus type: additional classification of used bus (should be 0
 		// for si_type ≥ 3):
-		setBusType(MDF4Util.readUInt8(bb));
+		setBusType(MDF4Util.readUInt8(content, 1));
 
 		// UINT8: Flags
-		setFlags(MDF4Util.readUInt8(bb));
+		setFlags(MDF4Util.readUInt8(content, 2));
 	}
 }
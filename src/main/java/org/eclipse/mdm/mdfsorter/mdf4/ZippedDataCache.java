@@ -15,39 +15,90 @@
 
 package org.eclipse.mdm.mdfsorter.mdf4;
 
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.util.LinkedList;
-import java.util.NoSuchElementException;
-import java.util.logging.Level;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
-
-import org.eclipse.mdm.mdfsorter.MDFSorter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
 
+/**
+ * Cache for the uncompressed data of DZ blocks. Blocks are stored by their
+ * position in the file, and the least recently used blocks are evicted, if
+ * the total size of the uncompressed data exceeds the budget. The most recent
+ * block is always kept.
+ *
+ * A cache is not thread-safe and belongs to a single data provider. Reading
+ * ahead on other threads is done by the shared DZReadAhead.
+ */
 public class ZippedDataCache {
-	// private TreeMap<DZBLOCK, byte[]> cache;
-	private LinkedList<DZBLOCK> cacheblocks;
-	private LinkedList<byte[]> cachedata;
-	private FileChannel reader;
-	private static final int MAXENTRIES = 3;
+
+	/**
+	 * Default budget in uncompressed bytes.
+	 */
+	public static final long DEFAULT_BUDGET = 64L * 1024L * 1024L; // 64MB
+
+	/**
+	 * Uncompressed data by position of the DZ block, in access order.
+	 */
+	private final LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final FileChannel reader;
+	private final DZReadAhead readahead;
+
+	/**
+	 * Maximum and current number of uncompressed bytes in this cache.
+	 */
+	private final long budget;
+	private long size = 0;
+
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long inflatenanos = 0;
 
 	public ZippedDataCache(FileChannel reader) {
-		cacheblocks = new LinkedList<>();
-		cachedata = new LinkedList<>();
+		this(reader, null);
+	}
+
+	/**
+	 * Create a cache, which takes blocks from a read-ahead, if they were
+	 * inflated ahead of time.
+	 *
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param readahead
+	 *            The read-ahead, or null.
+	 */
+	public ZippedDataCache(FileChannel reader, DZReadAhead readahead) {
+		this(reader, readahead, DEFAULT_BUDGET);
+	}
+
+	/**
+	 * Create a cache with the given budget.
+	 *
+	 * @param reader
+	 *            FileChannel to the input file.
+	 * @param readahead
+	 *            The read-ahead, or null.
+	 * @param budget
+	 *            Maximum number of uncompressed bytes in this cache.
+	 */
+	public ZippedDataCache(FileChannel reader, DZReadAhead readahead, long budget) {
 		this.reader = reader;
+		this.readahead = readahead;
+		this.budget = budget;
 	}
 
 	public boolean isAvailable(DZBLOCK dzblk) {
-		return cacheblocks.contains(dzblk);
+		return entries.containsKey(dzblk.getPos());
 	}
 
 	public byte[] getData(DZBLOCK dzblk) {
-		if (cacheblocks.contains(dzblk)) {
-			return cachedata.get(cacheblocks.indexOf(dzblk));
+		byte[] data = entries.get(dzblk.getPos());
+		if (data == null) {
+			throw new NoSuchElementException("Element not found in Data Cache.");
 		}
-		throw new NoSuchElementException("Element not found in Data Cache.");
+		return data;
 	}
 
 	/**
@@ -55,44 +106,36 @@ public class ZippedDataCache {
 	 *
 	 * @param dzblk
 	 *            The dzblock to load.
+	 * @return The uncompressed data of the block.
 	 * @throws DataFormatException
 	 *             If zipped data is in an invalid format.
 	 * @throws IOException
 	 *             If an I/O error occurs.
 	 */
-	public void load(DZBLOCK dzblk) throws DataFormatException, IOException {
-		byte[] uncompressedData;
-		var decompresser = new Inflater();
-		uncompressedData = new byte[(int) dzblk.getOrg_data_length()];
-		ByteBuffer compressedData = ByteBuffer.allocate((int) dzblk.getData_length());
-		// Skip header section of DZ Block
-		reader.position(dzblk.getPos() + 48L);
-		reader.read(compressedData);
-		decompresser.setInput(compressedData.array(), 0, (int) dzblk.getData_length());
-
-		int resultLength = decompresser.inflate(uncompressedData);
-		decompresser.end();
-
-		if (dzblk.transposeNeeded()) {
-			int columnsize = (int) dzblk.getZip_parameters();
-			uncompressedData = MDF4Util.transposeArray(uncompressedData, columnsize, false);
-			MDFSorter.log.log(Level.FINER, new StringBuilder().append("Transposing data with columnsize ").append(columnsize).append(".").toString());
+	public byte[] load(DZBLOCK dzblk) throws DataFormatException, IOException {
+		long start = System.nanoTime();
+		byte[] uncompressedData = null;
+		if (readahead != null) {
+			uncompressedData = readahead.take(dzblk);
 		}
-
-		if (resultLength != dzblk.getOrg_data_length()) {
-			throw new RuntimeException(new StringBuilder().append("Data gain or loss detected while unziping. Expected ").append(dzblk.getOrg_data_length()).append(" bytes, got ").append(resultLength).toString());
+		if (uncompressedData == null) {
+			uncompressedData = DZReadAhead.inflate(reader, dzblk);
 		}
-		MDFSorter.log.log(Level.FINER, new StringBuilder().append("Unzipped block of size ").append(resultLength).append(".").toString());
+		inflatenanos += System.nanoTime() - start;
 
-		// Store Data in Cache
-		if (cacheblocks.size() == MAXENTRIES) {
-			cacheblocks.removeFirst();
-			cachedata.removeFirst();
-			System.out.println("Cache full. Removing");
+		// Store Data in Cache, evict least recently used blocks.
+		byte[] old = entries.put(dzblk.getPos(), uncompressedData);
+		if (old != null) {
+			size -= old.length;
 		}
-		cachedata.add(uncompressedData);
-		cacheblocks.add(dzblk);
-		System.out.println("Cache size:" + cacheblocks.size());
+		size += uncompressedData.length;
+		var it = entries.entrySet().iterator();
+		while (size > budget && entries.size() > 1) {
+			size -= it.next().getValue().length;
+			it.remove();
+			evictions++;
+		}
+		return uncompressedData;
 	}
 
 	/**
@@ -110,13 +153,52 @@ public class ZippedDataCache {
 	 *             If an input error occurs.
 	 */
 	public void read(DZBLOCK dzblk, long offset, ByteBuffer buf) throws DataFormatException, IOException {
-		// Load block if not available
-		if (!isAvailable(dzblk)) {
-			load(dzblk);
+		byte[] dt = entries.get(dzblk.getPos());
+		if (dt == null) {
+			// Load block if not available
+			misses++;
+			dt = load(dzblk);
+		} else {
+			hits++;
 		}
 
-		int readsize = buf.limit();
-		byte[] dt = getData(dzblk);
+		int readsize = buf.remaining();
 		buf.put(dt, (int) offset, readsize);
 	}
+
+	/**
+	 * @return Number of reads served from this cache.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return Number of reads, which needed to load a block.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return Number of blocks evicted to stay within the budget.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return Time spent loading blocks in ns, including the time waiting for
+	 *         the read-ahead.
+	 */
+	public long getInflateNanos() {
+		return inflatenanos;
+	}
+
+	/**
+	 * @return Number of uncompressed bytes in this cache.
+	 */
+	public long getSize() {
+		return size;
+	}
 }
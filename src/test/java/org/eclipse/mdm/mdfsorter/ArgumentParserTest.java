@@ -17,6 +17,8 @@ package org.eclipse.mdm.mdfsorter;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.zip.Deflater;
+
 import org.junit.Test;
 
 public class ArgumentParserTest {
@@ -78,4 +80,115 @@ public class ArgumentParserTest {
 		ar = ArgumentStruct.parseArgs(test1);
 		assertEquals(ar.maxblocksize, 3 * 1024L * 1024L * 1024L);
 	}
+
+	@Test // Check write buffer size
+	public void testWriteBuffer() {
+		String[] test1 = { "process", "file1", "file2" };
+		var ar = ArgumentStruct.parseArgs(test1);
+		assertEquals(ar.writebuffersize, DataBlockBuffer.DEFAULT_CAPACITY);
+
+		String[] test2 = { "process", "file1", "file2", "-writebuffer=16M" };
+		ar = ArgumentStruct.parseArgs(test2);
+		assertEquals(ar.writebuffersize, 16L * 1024L * 1024L);
+	}
+
+	@Test
+	public void testZipThreads() {
+		String[] test1 = { "process", "file1", "file2", "-zip", "-maxblocksize=300", "-zipthreads=3", "-zipbuffer=8M" };
+		var ar = ArgumentStruct.parseArgs(test1);
+		assertEquals(ar.zipthreads, 3);
+		assertEquals(ar.zipbuffersize, 8L * 1024L * 1024L);
+	}
+
+	// Check zipthreads without value
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoZipThreads() {
+		String[] test1 = { "process", "file1", "file2", "-zip", "-zipthreads" };
+		ArgumentStruct.parseArgs(test1);
+	}
+
+	@Test
+	public void testParallel() {
+		String[] test1 = { "process", "file1", "file2", "-unzip", "-parallel=8" };
+		assertEquals(ArgumentStruct.parseArgs(test1).parallel, 8);
+		String[] test2 = { "process", "file1", "file2", "-unzip" };
+		assertEquals(ArgumentStruct.parseArgs(test2).parallel, 0);
+	}
+
+	// Check parallel without value
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoParallel() {
+		String[] test1 = { "process", "file1", "file2", "-unzip", "-parallel" };
+		ArgumentStruct.parseArgs(test1);
+	}
+
+	@Test
+	public void testTransferThreshold() {
+		String[] test1 = { "process", "file1", "file2", "-unzip", "-transferthreshold=1M" };
+		assertEquals(ArgumentStruct.parseArgs(test1).transferthreshold, 1024L * 1024L);
+		String[] test2 = { "process", "file1", "file2", "-unzip" };
+		assertEquals(ArgumentStruct.parseArgs(test2).transferthreshold, 64L * 1024L);
+	}
+
+	@Test
+	public void testParseThreads() {
+		String[] test1 = { "process", "file1", "file2", "-unzip", "-parsethreads=4" };
+		assertEquals(ArgumentStruct.parseArgs(test1).parsethreads, 4);
+		String[] test2 = { "process", "file1", "file2", "-unzip" };
+		assertEquals(ArgumentStruct.parseArgs(test2).parsethreads, 1);
+	}
+
+	@Test
+	public void testZipMode() {
+		String[] test1 = { "process", "file1", "file2", "-zip", "-maxblocksize=300", "-zipmode=auto" };
+		assertEquals(ArgumentStruct.parseArgs(test1).zipmode, ArgumentStruct.ZipMode.AUTO);
+		String[] test2 = { "process", "file1", "file2", "-zip", "-maxblocksize=300" };
+		assertEquals(ArgumentStruct.parseArgs(test2).zipmode, ArgumentStruct.ZipMode.DEFLATE);
+	}
+
+	// Unknown zip mode
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownZipMode() {
+		String[] test1 = { "process", "file1", "file2", "-zip", "-zipmode=bzip2" };
+		ArgumentStruct.parseArgs(test1);
+	}
+
+	@Test
+	public void testZipLevel() {
+		String[] test1 = { "process", "file1", "file2", "-zip", "-maxblocksize=300", "-ziplevel=3", "-zipstrategy=filtered",
+				"-zipthreshold=80" };
+		var ar = ArgumentStruct.parseArgs(test1);
+		assertEquals(ar.ziplevel, 3);
+		assertEquals(ar.zipstrategy, Deflater.FILTERED);
+		assertEquals(ar.zipthreshold, 80);
+	}
+
+	// Zip level out of range
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidZipLevel() {
+		String[] test1 = { "process", "file1", "file2", "-zip", "-ziplevel=10" };
+		ArgumentStruct.parseArgs(test1);
+	}
+
+	@Test
+	public void testCheckZipFlags() {
+		String[] test1 = { "check", "file1", "4M", "-zip", "-zipmode=transpose", "-ziplevel=1" };
+		var ar = ArgumentStruct.parseArgsCheck(test1);
+		assertEquals(ar.inputname, "file1");
+		assertEquals(ar.maxblocksize, 4L * 1024L * 1024L);
+		assertEquals(ar.unzip, false);
+		assertEquals(ar.zipmode, ArgumentStruct.ZipMode.TRANSPOSE);
+		assertEquals(ar.ziplevel, 1);
+		String[] test2 = { "check", "file1" };
+		ar = ArgumentStruct.parseArgsCheck(test2);
+		assertEquals(ar.unzip, true);
+		assertEquals(ar.zipmode, ArgumentStruct.ZipMode.DEFLATE);
+	}
+
+	// Unknown flag of the check call
+	@Test(expected = IllegalArgumentException.class)
+	public void testCheckUnknownFlag() {
+		String[] test1 = { "check", "file1", "-unzip", "-parallel=2" };
+		ArgumentStruct.parseArgsCheck(test1);
+	}
 }
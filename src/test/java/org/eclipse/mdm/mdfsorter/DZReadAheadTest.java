@@ -0,0 +1,101 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.eclipse.mdm.mdfsorter.mdf4.DZBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf4.DZReadAhead;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4GenBlock;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DZReadAheadTest {
+
+	private static final int BLOCKLENGTH = 2 * 1024 * 1024;
+
+	@BeforeClass
+	public static void BeforeClass() {
+		MDFSorter.log = Logger.getLogger("vwg.audi.mdfsorter");
+		MDFSorter.log.setUseParentHandlers(false);
+	}
+
+	/**
+	 * Writes a DZ block with the (incompressible) data to pos.
+	 */
+	private static DZBLOCK writeBlock(FileChannel ch, long pos, byte[] data) throws IOException {
+		var compresser = new Deflater();
+		compresser.setInput(data);
+		compresser.finish();
+		byte[] out = new byte[data.length + 1024];
+		int len = compresser.deflate(out);
+		compresser.end();
+		ch.write(ByteBuffer.wrap(out, 0, len), pos + 48L);
+
+		var blk = new DZBLOCK(new MDF4GenBlock(pos));
+		blk.setZip_type((byte) 0);
+		blk.setOrg_data_length(data.length);
+		blk.setData_length(len);
+		return blk;
+	}
+
+	@Test
+	public void testSkippedBlocks() throws IOException, DataFormatException {
+		var file = File.createTempFile("readahead", ".mf4");
+		file.deleteOnExit();
+		var random = new Random(1);
+		try (var ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// a DL block, linking to 8 DZ blocks.
+			var dl = new MDF4GenBlock(0);
+			dl.setLinkCount(9);
+			byte[][] data = new byte[8][BLOCKLENGTH];
+			var blocks = new DZBLOCK[8];
+			for (int i = 0; i < blocks.length; i++) {
+				random.nextBytes(data[i]);
+				blocks[i] = writeBlock(ch, (i + 1) * (BLOCKLENGTH + 4096L), data[i]);
+				dl.addLink(i + 1, blocks[i]);
+			}
+
+			try (var ahead = new DZReadAhead(ch, 4)) {
+				ahead.walk(dl);
+				assertArrayEquals(ahead.take(blocks[0]), data[0]);
+				// skips the blocks in flight.
+				assertArrayEquals(ahead.take(blocks[6]), data[6]);
+				// discards the blocks in flight.
+				ahead.walk(dl);
+				assertArrayEquals(ahead.take(blocks[0]), data[0]);
+				ahead.walk(dl);
+			}
+
+			// the channel is still usable.
+			assertTrue(ch.isOpen());
+			var buf = ByteBuffer.allocate(10);
+			ch.read(buf, BLOCKLENGTH + 4096L + 48L);
+			assertTrue(ch.isOpen());
+		}
+	}
+}
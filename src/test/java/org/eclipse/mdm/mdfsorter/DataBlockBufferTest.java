@@ -0,0 +1,72 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DataBlockBufferTest {
+
+	@Test
+	public void testOrderAndClose() throws InterruptedException {
+		// small capacity, so the producer has to wait for the consumer.
+		var buf = new DataBlockBuffer(1000);
+		int count = 10000;
+		long[] received = new long[count];
+		int[] receivedcount = new int[1];
+		var consumer = new Thread(() -> {
+			DataSection s;
+			while ((s = buf.getData()) != null) {
+				received[receivedcount[0]++] = s.getLength();
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < count; i++) {
+			buf.putData(new DataSection(new byte[i % 400], i % 400));
+		}
+		buf.close();
+		consumer.join();
+
+		assertEquals(receivedcount[0], count);
+		for (int i = 0; i < count; i++) {
+			assertEquals(received[i], i % 400);
+		}
+		assertTrue(buf.getProducerStalls() > 0);
+	}
+
+	@Test
+	public void testLargeSection() {
+		// a section larger than the capacity is accepted, if the buffer is
+		// empty.
+		var buf = new DataBlockBuffer(10);
+		buf.putData(new DataSection(new byte[100], 100));
+		buf.putData(null);
+		assertEquals(buf.getData().getLength(), 100L);
+		assertNull(buf.getData());
+	}
+
+	@Test
+	public void testStallOnClose() {
+		// waiting for a closed, empty buffer counts as a stall.
+		var buf = new DataBlockBuffer(10);
+		buf.close();
+		assertNull(buf.getData());
+		assertEquals(buf.getConsumerStalls(), 1L);
+	}
+}
@@ -0,0 +1,64 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LayoutPlanTest {
+
+	@Test
+	public void testMergeAndOverlay() {
+		var plan = new LayoutPlan();
+		// written out of order, and in pieces.
+		plan.seek(20);
+		plan.write(new byte[] { 5, 6 });
+		plan.seek(4);
+		plan.write(new byte[] { 1, 2 });
+		plan.write(new byte[] { 3, 4 });
+		assertEquals(plan.getSectionCount(), 2);
+
+		assertFalse(plan.intersects(0, 4));
+		assertTrue(plan.intersects(0, 5));
+		assertEquals(plan.getSectionStart(0), 4L);
+		assertEquals(plan.getSectionEnd(0), 8L);
+
+		byte[] out = new byte[16];
+		plan.overlay(2, out, 0, 16);
+		assertArrayEquals(out, new byte[] { 0, 0, 1, 2, 3, 4, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 });
+		plan.overlay(18, out, 0, 16);
+		assertArrayEquals(out, new byte[] { 0, 0, 5, 6, 3, 4, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 });
+		assertFalse(plan.intersects(22, 100));
+		assertEquals(plan.getSectionStart(22), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testOverwrite() {
+		var plan = new LayoutPlan();
+		plan.seek(8);
+		plan.write(new byte[] { 1, 1, 1, 1 });
+		plan.seek(10);
+		plan.write(new byte[] { 2 });
+		assertEquals(plan.getSectionCount(), 1);
+		byte[] out = new byte[4];
+		plan.overlay(8, out, 0, 4);
+		assertArrayEquals(out, new byte[] { 1, 1, 2, 1 });
+	}
+}
@@ -84,7 +84,7 @@ public class MDF3UnsortProcessor extends MDF3ProcessWriter {
 					custombuffer.position(16);
 					custombuffer.put(MDF3Util.getBytesUInt16(1, filestructure.isBigEndian()));
 					performPut(custombuffer, bytesread, false);
-					writtenblocks.addLast(blk);
+					writtenblocks.add(blk);
 				} else {
 					copyBlock(blk, reader);
 				}
@@ -117,10 +117,9 @@ public class MDF3UnsortProcessor extends MDF3ProcessWriter {
 
 		// Update links with RandomAccessFile
 		RandomAccessFile r = new RandomAccessFile(args.outputname, "rw");
-		for (MDF3GenBlock blk : writtenblocks) {
-			// set position to start of Block link section
-			blk.updateLinks(r);
-		}
+		var links = new LayoutPlan();
+		planLinks(links);
+		links.applyTo(r.getChannel());
 		r.close();
 		MDFSorter.log.log(Level.FINE, "Links updated successfully.");
 	}
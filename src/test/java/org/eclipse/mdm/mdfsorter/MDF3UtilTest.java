@@ -62,6 +62,18 @@ public class MDF3UtilTest {
 		assertEquals(val, MDF3Util.readUInt32(buf2, false));
 	}
 
+	@Test
+	public void testReadAtOffset() throws Exception {
+		byte[] data = new byte[] { 0, -128, 0, 0, 0, 0, 1, 65, 66 };
+		assertEquals(MDF3Util.readUInt32(data, 1, true), Integer.MAX_VALUE + 1L);
+		assertEquals(MDF3Util.readUInt32(data, 0, false), 0x8000L);
+		assertEquals(MDF3Util.readUInt16(data, 5, true), 1);
+		assertEquals(MDF3Util.readUInt16(data, 5, false), 256);
+		assertTrue(MDF3Util.readBool(data, 5, false));
+		assertEquals(MDF3Util.readCharsISO8859(data, 7, 2), "AB");
+		assertEquals(MDF3Util.readLink(data, 3, true), 1L);
+	}
+
 	@Test
 	public void testGetBool() {
 		assertArrayEquals(new byte[] { 1, 0 }, MDF3Util.getBytesBool(true, false));
@@ -0,0 +1,103 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+
+import org.eclipse.mdm.mdfsorter.mdf4.DLBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4DataProvider;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4GenBlock;
+import org.junit.Test;
+
+public class MDF4DataProviderTest {
+
+	/**
+	 * Writes a DT block with <code>length</code> bytes of data to pos. Each
+	 * byte is its offset in the data section (starting at
+	 * <code>offset</code>) modulo 251.
+	 */
+	private static MDF4GenBlock writeBlock(FileChannel ch, long pos, int length, long offset) throws IOException {
+		byte[] data = new byte[length];
+		for (int i = 0; i < length; i++) {
+			data[i] = (byte) ((offset + i) % 251);
+		}
+		ch.write(ByteBuffer.wrap(data), pos + 24L);
+		var blk = new MDF4GenBlock(pos);
+		blk.setId("##DT");
+		blk.setLength(24L + length);
+		return blk;
+	}
+
+	private static DLBLOCK createList(MDF4GenBlock... blocks) {
+		var list = new DLBLOCK();
+		list.setLinkCount(blocks.length + 1);
+		list.setCount(blocks.length);
+		for (int i = 0; i < blocks.length; i++) {
+			list.addLink(i + 1, blocks[i]);
+		}
+		return list;
+	}
+
+	@Test
+	public void testLinkedLists() throws IOException, DataFormatException {
+		var file = File.createTempFile("provider", ".mf4");
+		file.deleteOnExit();
+		try (var ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// two lists, with an empty block in the first one.
+			var first = createList(writeBlock(ch, 0, 100, 0), writeBlock(ch, 1000, 0, 100), writeBlock(ch, 2000, 50, 100));
+			var second = createList(writeBlock(ch, 3000, 30, 150));
+			first.addLink(0, second);
+
+			var prov = new MDF4DataProvider(first, ch);
+			assertEquals(prov.getLength(), 180L);
+
+			// spans three blocks of both lists.
+			var data = ByteBuffer.allocate(70);
+			prov.read(90, data);
+			for (int i = 0; i < 70; i++) {
+				assertEquals(data.get(i), (byte) ((90 + i) % 251));
+			}
+			assertEquals(data.position(), 0);
+
+			var slice = prov.cachedRead(170, 10);
+			assertEquals(slice.get(slice.position()), (byte) 170);
+
+			assertEquals(prov.getFilePosition(100, 10), 2024L);
+			assertEquals(prov.getFilePosition(95, 10), -1L);
+		}
+	}
+
+	@Test(expected = EOFException.class)
+	public void testTruncatedFile() throws IOException, DataFormatException {
+		var file = File.createTempFile("provider", ".mf4");
+		file.deleteOnExit();
+		try (var ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// the block claims more data than the file contains.
+			var blk = writeBlock(ch, 0, 100, 0);
+			blk.setLength(24L + 200L);
+			var prov = new MDF4DataProvider(blk, ch);
+			prov.read(50, ByteBuffer.allocate(100));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import org.eclipse.mdm.mdfsorter.mdf4.FHBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf4.HDBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4Parser;
+import org.eclipse.mdm.mdfsorter.mdf4.TXBLOCK;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class MDF4ParserTest {
+
+	@BeforeClass
+	public static void BeforeClass() {
+		MDFSorter.log = Logger.getLogger("vwg.audi.mdfsorter");
+		MDFSorter.log.setUseParentHandlers(false);
+	}
+
+	/**
+	 * Writes the header and the links of a block to <code>file</code>.
+	 */
+	private static void putHeader(ByteBuffer file, int pos, String id, long length, long... links) {
+		file.position(pos);
+		file.put(id.getBytes(StandardCharsets.US_ASCII));
+		file.putInt(0);
+		file.putLong(length);
+		file.putLong(links.length);
+		for (long link : links) {
+			file.putLong(link);
+		}
+	}
+
+	/**
+	 * A file, where HD links to a TX block and to a FH block, which links back
+	 * to a TX block between them.
+	 */
+	private static File backwardLinkFile() throws IOException {
+		var file = ByteBuffer.allocate(456).order(ByteOrder.LITTLE_ENDIAN);
+		putHeader(file, 64, "##HD", 104, 0, 400, 0, 0, 0, 200);
+		putHeader(file, 200, "##TX", 32);
+		file.put("first".getBytes(StandardCharsets.UTF_8));
+		putHeader(file, 300, "##TX", 32);
+		file.put("second".getBytes(StandardCharsets.UTF_8));
+		putHeader(file, 400, "##FH", 56, 0, 300);
+
+		var tmp = File.createTempFile("parser", ".mf4");
+		tmp.deleteOnExit();
+		try (var ch = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+			ch.write(file.rewind());
+		}
+		return tmp;
+	}
+
+	@Test
+	public void testBackwardLink() throws IOException {
+		try (var ch = FileChannel.open(backwardLinkFile().toPath(), StandardOpenOption.READ)) {
+			var parser = new MDF4Parser(ch);
+			var content = parser.parse();
+			assertEquals(parser.getFileRuns(), 1);
+			assertEquals(parser.getBackwardBlocks(), 1);
+			// the whole file fits into the window.
+			assertEquals(parser.getFileReads(), 1);
+			assertEquals(content.getList().size(), 4);
+			var fh = content.getRoot().getLink(1);
+			assertEquals(((TXBLOCK) fh.getLink(1)).getTxData().trim(), "second");
+		}
+	}
+
+	@Test
+	public void testParallelDecoding() throws IOException {
+		try (var ch = FileChannel.open(backwardLinkFile().toPath(), StandardOpenOption.READ)) {
+			var parser = new MDF4Parser(ch);
+			parser.setParseThreads(2);
+			var content = parser.parse();
+			assertEquals(content.getList().size(), 4);
+			// all links lead to the decoded blocks.
+			assertEquals(content.getRoot().getClass(), HDBLOCK.class);
+			var fh = content.getRoot().getLink(1);
+			assertEquals(fh.getClass(), FHBLOCK.class);
+			assertEquals(((TXBLOCK) fh.getLink(1)).getTxData().trim(), "second");
+			assertEquals(((TXBLOCK) content.getRoot().getLink(5)).getTxData().trim(), "first");
+			for (var blk : content.getList()) {
+				assertEquals(blk.getPrec(), null);
+			}
+		}
+	}
+}
@@ -16,6 +16,7 @@
 package org.eclipse.mdm.mdfsorter;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
 import org.eclipse.mdm.mdfsorter.mdf4.MDF4Util;
 import org.junit.AfterClass;
@@ -44,6 +45,25 @@ public class MDF4UtilTest {
 		assertArrayEquals(MDF4Util.getBytesUInt16(val), new byte[] { 0, -128 });
 	}
 
+	@Test
+	public void testReadAtOffset() throws Exception {
+		byte[] data = new byte[40];
+		System.arraycopy(MDF4Util.getBytesUInt16(0xfffe), 0, data, 1, 2);
+		System.arraycopy(MDF4Util.getBytesUInt32(Integer.MAX_VALUE * 2L), 0, data, 3, 4);
+		System.arraycopy(MDF4Util.getBytesLink(-2L), 0, data, 7, 8);
+		System.arraycopy(MDF4Util.getBytesReal(-1.5), 0, data, 15, 8);
+		System.arraycopy(MDF4Util.getBytesCharsUTF8("\u00e4bc"), 0, data, 23, 4);
+		data[0] = -1;
+		assertEquals(MDF4Util.readInt8(data, 0), 255);
+		assertEquals(MDF4Util.readUInt16(data, 1), 0xfffe);
+		assertEquals(MDF4Util.readInt16(data, 1), (short) -2);
+		assertEquals(MDF4Util.readUInt32(data, 3), Integer.MAX_VALUE * 2L);
+		assertEquals(MDF4Util.readInt32(data, 3), -2);
+		assertEquals(MDF4Util.readLink(data, 7), -2L);
+		assertEquals(MDF4Util.readReal(data, 15), -1.5, 0.0);
+		assertEquals(MDF4Util.readCharsUTF8(data, 23, 4), "\u00e4bc");
+	}
+
 	@Test
 	public void testArrayTranspose() {
 
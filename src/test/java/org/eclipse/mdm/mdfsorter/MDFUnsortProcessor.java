@@ -126,19 +126,9 @@ public class MDFUnsortProcessor extends MDF4ProcessWriter {
 
 		// Update links with RandomAccessFile
 		var r = new RandomAccessFile(args.outputname, "rw");
-		for (MDF4GenBlock blk : writtenblocks) {
-			// set position to start of Block link section
-			r.seek(blk.getOutputpos() + 24L);
-			MDF4GenBlock linkedblock;
-			for (int i = 0; i < blk.getLinkCount(); i++) {
-				if ((linkedblock = blk.getLink(i)) != null) {
-					r.write(MDF4Util.getBytesLink(linkedblock.getOutputpos()));
-				} else {
-					r.write(MDF4Util.getBytesLink(0));
-				}
-
-			}
-		}
+		var links = new LayoutPlan();
+		planLinks(links);
+		links.applyTo(r.getChannel());
 		r.close();
 		MDFSorter.log.log(Level.FINE, "Links updated successfully.");
 	}
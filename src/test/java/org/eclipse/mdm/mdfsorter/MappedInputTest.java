@@ -0,0 +1,64 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+public class MappedInputTest {
+
+	@Test
+	public void testSliceAndRead() throws IOException {
+		var file = File.createTempFile("mapped", ".mf4");
+		file.deleteOnExit();
+		byte[] content = new byte[100];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		try (var ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.wrap(content));
+			var mapped = MappedInput.map(ch);
+
+			var slice = mapped.slice(10, 5);
+			assertEquals(slice.remaining(), 5);
+			assertEquals(slice.get(), 10);
+
+			var data = ByteBuffer.allocate(20);
+			assertTrue(mapped.read(80, data));
+			assertEquals(data.get(19), 99);
+
+			// beyond the end of the file
+			assertNull(mapped.slice(98, 5));
+			assertFalse(mapped.read(90, ByteBuffer.allocate(20)));
+
+			// the slice stays valid, after the mapping is released.
+			mapped.close();
+			assertNull(mapped.slice(10, 5));
+			assertFalse(mapped.read(80, ByteBuffer.allocate(20)));
+			assertEquals(slice.get(), 11);
+		}
+	}
+}
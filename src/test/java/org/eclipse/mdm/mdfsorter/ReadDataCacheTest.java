@@ -0,0 +1,93 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+import org.junit.Test;
+
+public class ReadDataCacheTest {
+
+	private static final int SECTIONLENGTH = 10 * 1024 * 1024;
+
+	/**
+	 * Provider of a section, where each byte is its offset modulo 251.
+	 */
+	private static AbstractDataProvider provider() {
+		return new AbstractDataProvider() {
+			@Override
+			public void read(long globaloffset, ByteBuffer data) {
+				for (int i = 0; i < data.capacity(); i++) {
+					data.put((byte) ((globaloffset + i) % 251));
+				}
+				data.rewind();
+			}
+
+			@Override
+			public ByteBuffer cachedRead(long globaloffset, int length) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public long getLength() {
+				return SECTIONLENGTH;
+			}
+		};
+	}
+
+	private static void check(ByteBuffer buf, long offset, int length) {
+		assertTrue(buf.remaining() >= length);
+		for (int i = 0; i < length; i++) {
+			assertEquals(buf.get(buf.position() + i), (byte) ((offset + i) % 251));
+		}
+	}
+
+	@Test
+	public void testForwardReads() throws IOException, DataFormatException {
+		var cache = new ReadDataCache(provider());
+		// records of 1000 bytes with a gap of 1 byte, crossing window bounds.
+		long offset = 0;
+		while (offset + 1000 <= SECTIONLENGTH) {
+			check(cache.read(offset, 1000), offset, 1000);
+			offset += 1001;
+		}
+		assertEquals(cache.getMisses(), 1L);
+		assertTrue(cache.getReadAheadHits() > 0);
+		assertEquals(cache.getWindowSize(), ReadDataCache.MAXWINDOW);
+		assertEquals(cache.getBytesRead(), (long) SECTIONLENGTH);
+	}
+
+	@Test
+	public void testRandomReads() throws IOException, DataFormatException {
+		var cache = new ReadDataCache(provider());
+		check(cache.read(5_000_000, 10), 5_000_000, 10);
+		check(cache.read(1_000, 10), 1_000, 10);
+		assertEquals(cache.getWindowSize(), ReadDataCache.MINWINDOW);
+		// large reads are served from the cache too.
+		check(cache.read(2_000_000, 1_000_000), 2_000_000, 1_000_000);
+		check(cache.read(2_500_000, 10), 2_500_000, 10);
+		assertEquals(cache.getHits(), 1L);
+		// up to the end of the section.
+		var buf = cache.read(SECTIONLENGTH - 10, 10);
+		check(buf, SECTIONLENGTH - 10, 10);
+		assertEquals(buf.remaining(), 10);
+	}
+}
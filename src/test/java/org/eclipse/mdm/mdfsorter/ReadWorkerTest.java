@@ -0,0 +1,89 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ReadWorkerTest {
+
+	@BeforeClass
+	public static void BeforeClass() {
+		MDFSorter.log = Logger.getLogger("vwg.audi.mdfsorter");
+		MDFSorter.log.setUseParentHandlers(false);
+	}
+
+	@Test
+	public void testReadSections() throws IOException {
+		var file = File.createTempFile("readworker", ".mf4");
+		file.deleteOnExit();
+		byte[] content = new byte[1024 * 1024];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) (i % 251);
+		}
+		try (var ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.wrap(content));
+			// the second section is larger than one chunk.
+			long[] positions = { 100, 1000, 10 };
+			long[] lengths = { 10, ReadWorker.CHUNKSIZE + 5, 3 };
+			try (var worker = new ReadWorker(ch, positions, lengths).start()) {
+				var data = ByteBuffer.allocate((int) (lengths[0] + lengths[1] + lengths[2]));
+				while (data.hasRemaining()) {
+					worker.read(data);
+				}
+				assertEquals(data.get(0), content[100]);
+				assertEquals(data.get(10), content[1000]);
+				assertEquals(data.get(10 + ReadWorker.CHUNKSIZE + 4), content[1000 + ReadWorker.CHUNKSIZE + 4]);
+				assertEquals(data.get(data.capacity() - 1), content[12]);
+				assertEquals(worker.read(ByteBuffer.allocate(1)), -1);
+			}
+
+			// stop reading early.
+			try (var worker = new ReadWorker(ch, new long[] { 0 }, new long[] { content.length }).start()) {
+				var data = ByteBuffer.allocate(5);
+				worker.read(data);
+				assertEquals(data.get(4), content[4]);
+			}
+		}
+	}
+
+	@Test
+	public void testRuntimeError() throws IOException {
+		var file = File.createTempFile("readworker", ".mf4");
+		file.deleteOnExit();
+		try (var ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.allocate(100));
+			// a negative position fails with an IllegalArgumentException.
+			try (var worker = new ReadWorker(ch, new long[] { -10 }, new long[] { 5 }).start()) {
+				worker.read(ByteBuffer.allocate(5));
+				fail("Error of the worker was not rethrown.");
+			} catch (IOException e) {
+				assertTrue(e.getCause() instanceof IllegalArgumentException);
+			}
+		}
+	}
+}
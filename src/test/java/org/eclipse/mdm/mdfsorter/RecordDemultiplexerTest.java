@@ -0,0 +1,268 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.eclipse.mdm.mdfsorter.mdf3.MDF3DataProvider;
+import org.eclipse.mdm.mdfsorter.mdf3.MDF3GenBlock;
+import org.eclipse.mdm.mdfsorter.mdf4.DLBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf4.DZBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf4.DZReadAhead;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4DataProvider;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4GenBlock;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RecordDemultiplexerTest {
+
+	@BeforeClass
+	public static void BeforeClass() {
+		MDFSorter.log = Logger.getLogger("vwg.audi.mdfsorter");
+		MDFSorter.log.setUseParentHandlers(false);
+	}
+
+	/**
+	 * Provider of a data section in memory.
+	 */
+	private static AbstractDataProvider provider(byte[] section) {
+		return new AbstractDataProvider() {
+			@Override
+			public void read(long globaloffset, ByteBuffer data) {
+				data.put(section, (int) globaloffset, data.capacity());
+				data.rewind();
+			}
+
+			@Override
+			public ByteBuffer cachedRead(long globaloffset, int length) {
+				return ByteBuffer.wrap(section, (int) globaloffset, length);
+			}
+
+			@Override
+			public long getLength() {
+				return section.length;
+			}
+		};
+	}
+
+	private static byte[] readAll(RecordDemultiplexer demux, int idx) throws IOException {
+		var ret = ByteBuffer.allocate((int) demux.getLength(idx));
+		try (ReadableByteChannel in = demux.open(idx)) {
+			while (ret.hasRemaining() && in.read(ret) >= 0) {
+			}
+		}
+		return ret.array();
+	}
+
+	// Two records of group 1 (3 Bytes), and one VLSD record of group 2.
+	private static final byte[] SECTION = { 1, 10, 11, 12, 2, 4, 0, 0, 0, 20, 21, 22, 23, 1, 13, 14, 15 };
+
+	@Test
+	public void testDemux() throws IOException, DataFormatException {
+		Path dir = Files.createTempDirectory("demux");
+		// the last record exceeds the budget, the larger second group is
+		// spilled.
+		try (var demux = new RecordDemultiplexer(1, new long[] { 1, 2 }, new long[] { 3, -1 }, dir, 12)) {
+			assertEquals(demux.demux(provider(SECTION), 3), 3L);
+			assertEquals(demux.getCount(0), 2L);
+			assertEquals(demux.getCount(1), 1L);
+			assertArrayEquals(readAll(demux, 0), new byte[] { 10, 11, 12, 13, 14, 15 });
+			assertArrayEquals(readAll(demux, 1), new byte[] { 4, 0, 0, 0, 20, 21, 22, 23 });
+			assertEquals(demux.getSpilledBytes(), 8L);
+		}
+		try (var files = Files.list(dir)) {
+			assertEquals(files.count(), 0L);
+		}
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testTransfers() throws IOException, DataFormatException {
+		// the section is stored at position 100 of the input file.
+		Path file = Files.createTempFile("demux", ".mf4");
+		try (var input = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			input.write(ByteBuffer.wrap(SECTION), 100);
+			var prov = new AbstractDataProvider() {
+				@Override
+				public void read(long globaloffset, ByteBuffer data) {
+					data.put(SECTION, (int) globaloffset, data.capacity());
+					data.rewind();
+				}
+
+				@Override
+				public ByteBuffer cachedRead(long globaloffset, int length) {
+					return ByteBuffer.wrap(SECTION, (int) globaloffset, length);
+				}
+
+				@Override
+				public long getLength() {
+					return SECTION.length;
+				}
+
+				@Override
+				public long getFilePosition(long globaloffset, long length) {
+					return 100 + globaloffset;
+				}
+			};
+			Path dir = Files.createTempDirectory("demux");
+			try (var demux = new RecordDemultiplexer(1, new long[] { 1, 2 }, new long[] { 3, -1 }, dir, 1024)) {
+				// only the data of the VLSD record is large enough.
+				demux.setTransfers(input, 4);
+				assertEquals(demux.demux(prov, 3), 3L);
+				assertArrayEquals(readAll(demux, 0), new byte[] { 10, 11, 12, 13, 14, 15 });
+				assertArrayEquals(readAll(demux, 1), new byte[] { 4, 0, 0, 0, 20, 21, 22, 23 });
+				try (var in = demux.open(1)) {
+					assertEquals(in.getInlineLength(), 4L);
+					assertEquals(in.getTransferLength(), 0L);
+					in.read(ByteBuffer.allocate(4));
+					assertEquals(in.getInlineLength(), 0L);
+					assertEquals(in.getTransferLength(), 4L);
+				}
+			}
+			Files.delete(dir);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testLargeIds() throws IOException, DataFormatException {
+		// 8 Byte ids, looked up in the sparse table.
+		byte[] section = { 1, 0, 0, 0, 0, 0, 0, -128, 10, -1, -1, -1, -1, -1, -1, -1, -1, 11, 1, 0, 0, 0, 0, 0, 0, -128, 12 };
+		try (var demux = new RecordDemultiplexer(8, new long[] { -1L, Long.MIN_VALUE + 1 }, new long[] { 1, 1 }, null, 0)) {
+			assertEquals(demux.demux(provider(section), 3), 3L);
+			assertEquals(demux.getCount(0), 1L);
+			assertEquals(demux.getCount(1), 2L);
+		}
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testUnknownId() throws IOException, DataFormatException {
+		byte[] section = { 1, 10, 3, 11 };
+		try (var demux = new RecordDemultiplexer(1, new long[] { 1, 2 }, new long[] { 1, 1 }, null, 0)) {
+			demux.demux(provider(section), 2);
+		}
+	}
+
+	@Test
+	public void testTruncatedMDF3Section() throws IOException, DataFormatException {
+		// the section should hold 6 records, but the file ends within the
+		// fifth one.
+		Path file = Files.createTempFile("demux", ".mdf");
+		try (var input = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			input.write(ByteBuffer.wrap(new byte[] { 1, 10, 11, 12, 2, 20, 1, 13, 14, 15, 2, 21, 1, 16 }), 100);
+			var section = new MDF3GenBlock(100, false);
+			section.setLength(3 * 4L + 3 * 2L);
+			var prov = new MDF3DataProvider(section, input);
+			assertEquals(prov.getLength(), 14L);
+			try (var demux = new RecordDemultiplexer(1, new long[] { 1, 2 }, new long[] { 3, 1 }, null, 0)) {
+				demux.setTrimMissing(true);
+				assertEquals(demux.demux(prov, 6), 4L);
+				assertEquals(demux.getCount(0), 2L);
+				assertEquals(demux.getCount(1), 2L);
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testTrimMissing() throws IOException, DataFormatException {
+		byte[] section = { 1, 10, 11, 12, 0, 0, 0, 0 };
+		try (var demux = new RecordDemultiplexer(1, new long[] { 1 }, new long[] { 3 }, null, 0)) {
+			demux.setTrimMissing(true);
+			assertEquals(demux.demux(provider(section), 2), 1L);
+			assertEquals(demux.getCount(0), 1L);
+		}
+	}
+
+	/**
+	 * Writes a DZ block with the data to pos.
+	 */
+	private static DZBLOCK writeZipped(FileChannel ch, long pos, byte[] data) throws IOException {
+		var compresser = new Deflater();
+		compresser.setInput(data);
+		compresser.finish();
+		byte[] out = new byte[data.length + 1024];
+		int len = compresser.deflate(out);
+		compresser.end();
+		ch.write(ByteBuffer.wrap(out, 0, len), pos + 48L);
+
+		var head = new MDF4GenBlock(pos);
+		head.setId("##DZ");
+		var blk = new DZBLOCK(head);
+		blk.setZip_type((byte) 0);
+		blk.setOrg_data_length(data.length);
+		blk.setData_length(len);
+		return blk;
+	}
+
+	/**
+	 * Writes a data list of <code>count</code> DZ blocks to pos, with records
+	 * of group 1 (255 Bytes) and group 2 (127 Bytes) alternating.
+	 */
+	private static DLBLOCK writeZippedList(FileChannel ch, long pos, int count, byte[] records) throws IOException {
+		var list = new DLBLOCK();
+		list.setLinkCount(count + 1);
+		list.setCount(count);
+		for (int i = 0; i < count; i++) {
+			list.addLink(i + 1, writeZipped(ch, pos + i * (records.length + 2048L), records));
+		}
+		return list;
+	}
+
+	@Test
+	public void testZippedSections() throws IOException, DataFormatException {
+		byte[] records = new byte[384 * 512];
+		for (int i = 0; i < records.length; i += 384) {
+			records[i] = 1;
+			records[i + 256] = 2;
+			for (int j = 1; j < 256; j++) {
+				records[i + j] = (byte) (i / 384 + j);
+			}
+		}
+		Path file = Files.createTempFile("demux", ".mf4");
+		try (var input = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				var ahead = new DZReadAhead(input, 2)) {
+			var first = writeZippedList(input, 0, 8, records);
+			var second = writeZippedList(input, 8 * (records.length + 2048L), 8, records);
+			long total = 8 * 2 * 512;
+			// the second section is walked, while the first one may still be
+			// read ahead.
+			for (var list : new DLBLOCK[] { first, second }) {
+				try (var demux = new RecordDemultiplexer(1, new long[] { 1, 2 }, new long[] { 255, 127 }, null, 0)) {
+					assertEquals(demux.demux(new MDF4DataProvider(list, input, ahead), total), total);
+					assertEquals(demux.getCount(0), total / 2);
+					assertEquals(demux.getCount(1), total / 2);
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
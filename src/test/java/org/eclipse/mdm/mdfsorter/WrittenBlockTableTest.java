@@ -0,0 +1,79 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.eclipse.mdm.mdfsorter.mdf3.CNBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf3.MDF3GenBlock;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4GenBlock;
+import org.junit.Test;
+
+public class WrittenBlockTableTest {
+
+	@Test
+	public void testLateLinks() {
+		var table = new WrittenBlockTable();
+		var blk = new MDF4GenBlock(0);
+		blk.setLinkCount(2);
+		blk.setOutputpos(64);
+		table.add(blk);
+		assertEquals(table.size(), 2);
+		assertEquals(table.getPosition(0), 64L + 24L);
+		assertEquals(table.getPosition(1), 64L + 32L);
+		assertNull(table.getTarget(1));
+
+		// the link is set after the block has been written.
+		var child = new MDF4GenBlock(0);
+		blk.addLink(1, child);
+		assertEquals(table.getTarget(1), child);
+
+		table.clear();
+		assertEquals(table.size(), 0);
+	}
+
+	@Test
+	public void testSegments() {
+		var segment = new WrittenBlockTable();
+		var blk = new MDF4GenBlock(0);
+		blk.setLinkCount(1);
+		blk.setOutputpos(8);
+		segment.add(blk);
+
+		var table = new WrittenBlockTable();
+		table.add(blk);
+		table.addAll(segment, 1000);
+		assertEquals(table.size(), 2);
+		assertEquals(table.getPosition(0), 8L + 24L);
+		assertEquals(table.getPosition(1), 1008L + 24L);
+	}
+
+	@Test
+	public void testMDF3Links() {
+		var parent = new MDF3GenBlock(0, false);
+		parent.setLinkCount(7);
+		var cn = new CNBLOCK(parent);
+		cn.setOutputpos(100);
+		var table = new WrittenBlockTable();
+		table.add(cn);
+		assertEquals(table.size(), 7);
+		assertEquals(table.getPosition(4), 100L + 4L + 16L);
+		// the last two links follow the other fields.
+		assertEquals(table.getPosition(5), 100L + 218L);
+		assertEquals(table.getPosition(6), 100L + 222L);
+	}
+}
@@ -0,0 +1,91 @@
+/********************************************************************************
+ * Copyright (c) 2015-2018 Contributors to the Eclipse Foundation
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ ********************************************************************************/
+
+
+package org.eclipse.mdm.mdfsorter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.eclipse.mdm.mdfsorter.mdf4.DZBLOCK;
+import org.eclipse.mdm.mdfsorter.mdf4.MDF4GenBlock;
+import org.eclipse.mdm.mdfsorter.mdf4.ZippedDataCache;
+import org.junit.Test;
+
+public class ZippedDataCacheTest {
+
+	/**
+	 * Writes a DZ block with 1000 bytes of value <code>val</code> to pos.
+	 */
+	private static DZBLOCK writeBlock(FileChannel ch, long pos, byte val) throws IOException {
+		byte[] data = new byte[1000];
+		Arrays.fill(data, val);
+		var compresser = new Deflater();
+		compresser.setInput(data);
+		compresser.finish();
+		byte[] out = new byte[2000];
+		int len = compresser.deflate(out);
+		compresser.end();
+		ch.write(ByteBuffer.wrap(out, 0, len), pos + 48L);
+
+		var blk = new DZBLOCK(new MDF4GenBlock(pos));
+		blk.setZip_type((byte) 0);
+		blk.setOrg_data_length(data.length);
+		blk.setData_length(len);
+		return blk;
+	}
+
+	private static byte readFirst(ZippedDataCache cache, DZBLOCK blk) throws DataFormatException, IOException {
+		var buf = ByteBuffer.allocate(1);
+		cache.read(blk, 0, buf);
+		return buf.get(0);
+	}
+
+	@Test
+	public void testLeastRecentlyUsed() throws IOException, DataFormatException {
+		var file = File.createTempFile("dzcache", ".mf4");
+		file.deleteOnExit();
+		try (var ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			var a = writeBlock(ch, 0, (byte) 1);
+			var b = writeBlock(ch, 4096, (byte) 2);
+			var c = writeBlock(ch, 8192, (byte) 3);
+
+			// room for two blocks.
+			var cache = new ZippedDataCache(ch, null, 2000);
+			assertEquals(readFirst(cache, a), 1);
+			assertEquals(readFirst(cache, a), 1);
+			assertEquals(readFirst(cache, b), 2);
+			assertEquals(readFirst(cache, c), 3); // evicts a
+			assertEquals(readFirst(cache, b), 2);
+			assertEquals(readFirst(cache, a), 1); // evicts c, not b
+
+			assertTrue(cache.isAvailable(b));
+			assertFalse(cache.isAvailable(c));
+			assertEquals(cache.getHits(), 2L);
+			assertEquals(cache.getMisses(), 4L);
+			assertEquals(cache.getEvictions(), 2L);
+			assertEquals(cache.getSize(), 2000L);
+		}
+	}
+}